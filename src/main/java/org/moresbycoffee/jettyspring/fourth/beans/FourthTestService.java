@@ -31,14 +31,23 @@
 package org.moresbycoffee.jettyspring.fourth.beans;
 
 import java.util.Collection;
+import java.util.List;
 
+import org.moresbycoffee.jettyspring.fourth.beans.dto.CacheStatisticsDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.NetworkStatisticsDTO;
 import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDetailDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationPageDTO;
+import org.moresbycoffee.jettyspring.fourth.dal.IHibernateCacheStatistics;
+import org.moresbycoffee.jettyspring.fourth.dal.INetworkDataVersion;
 import org.moresbycoffee.jettyspring.fourth.dal.IStationDao;
+import org.moresbycoffee.jettyspring.fourth.dal.ResultHandler;
 import org.moresbycoffee.jettyspring.fourth.domain.Station;
-import org.moresbycoffee.jettyspring.fourth.util.StationToDtoConverter;
+import org.moresbycoffee.jettyspring.fourth.util.StationToDetailDtoConverter;
 import org.moresbycoffee.jettyspring.util.converter.Converters;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 
@@ -52,25 +61,119 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class FourthTestService implements IFourthTestService {
 
-    private final IStationDao stationDao;
+    private final IStationDao               stationDao;
+    private final INetworkDataVersion       dataVersion;
+    private final IHibernateCacheStatistics cacheStatistics;
+
+    /** The last computed network statistics. (Nullable) */
+    private volatile VersionedStatistics    networkStatistics;
 
     /**
      * @param stationDao Data Access Object to handle the {@link Station} entities.
+     * @param dataVersion The version of the network data.
+     * @param cacheStatistics The statistics of the second-level cache.
      */
     @Autowired
-    public FourthTestService(final IStationDao stationDao) {
+    public FourthTestService(final IStationDao stationDao, final INetworkDataVersion dataVersion, final IHibernateCacheStatistics cacheStatistics) {
         super();
         this.stationDao = stationDao;
+        this.dataVersion = dataVersion;
+        this.cacheStatistics = cacheStatistics;
     }
 
     /** {@inheritDoc} */
     @Override
+    @Transactional(readOnly = true)
     public Collection<StationDTO> listStations() {
-        final Collection<Station>    stations    = stationDao.getAll();
-        final Collection<StationDTO> stationDtos = Converters.convertList(stations, StationToDtoConverter.getInstance());
-        return stationDtos;
+        return stationDao.getAllDtos();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamStations(final ResultHandler<StationDTO> handler) {
+        stationDao.scrollAllDtos(handler);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Transactional(readOnly = true)
+    public StationPageDTO listStations(final long afterId, final int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit has to be positive: " + limit);
+        }
+
+        /* One extra station is read to know whether there is a next page. */
+        final List<StationDTO> stations = stationDao.getDtoPage(afterId, limit + 1);
+        if (stations.size() <= limit) {
+            return new StationPageDTO(stations, null);
+        }
+
+        final List<StationDTO> page = stations.subList(0, limit);
+        return new StationPageDTO(page, page.get(limit - 1).getId());
     }
 
+    /** {@inheritDoc} */
+    @Override
+    @Transactional(readOnly = true)
+    public StationDetailDTO getStationDetail(final long id) {
+        return StationToDetailDtoConverter.getInstance().convert(stationDao.getDetail(id));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Transactional(readOnly = true)
+    public List<StationDetailDTO> listStationDetails() {
+        /*
+         * The stations are converted while the response is serialized, so the DTOs of the whole network are never
+         * held at once. The zones and the lines have been fetched, so the conversion does not need the transaction.
+         */
+        return Converters.convertedList(stationDao.getAllDetails(), StationToDetailDtoConverter.getInstance());
+    }
 
+    /** {@inheritDoc} */
+    @Override
+    @Transactional(readOnly = true)
+    public NetworkStatisticsDTO getNetworkStatistics() {
+        /* The version is read before the data, so a concurrent modification invalidates the result. */
+        final long version = dataVersion.getVersion();
+        final VersionedStatistics cached = networkStatistics;
+        if (cached != null && cached.version == version) {
+            return cached.statistics;
+        }
+
+        final NetworkStatisticsDTO statistics = new NetworkStatisticsDTO(stationDao.countStationsPerZone(),
+                                                                         stationDao.countStationsPerLine(),
+                                                                         stationDao.countInterchangeStations());
+        networkStatistics = new VersionedStatistics(statistics, version);
+        return statistics;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public long getDataVersion() {
+        return dataVersion.getVersion();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<CacheStatisticsDTO> getCacheStatistics() {
+        return cacheStatistics.getStatistics();
+    }
+
+    /**
+     * Immutable pair of the network statistics and the data version they have been computed from.
+     */
+    private static final class VersionedStatistics {
+        private final NetworkStatisticsDTO statistics;
+        private final long                 version;
+
+        private VersionedStatistics(final NetworkStatisticsDTO statistics, final long version) {
+            this.statistics = statistics;
+            this.version = version;
+        }
+    }
 
 }
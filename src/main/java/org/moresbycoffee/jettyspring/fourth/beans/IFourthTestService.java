@@ -31,8 +31,14 @@
 package org.moresbycoffee.jettyspring.fourth.beans;
 
 import java.util.Collection;
+import java.util.List;
 
+import org.moresbycoffee.jettyspring.fourth.beans.dto.CacheStatisticsDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.NetworkStatisticsDTO;
 import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDetailDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationPageDTO;
+import org.moresbycoffee.jettyspring.fourth.dal.ResultHandler;
 
 
 /**
@@ -48,4 +54,59 @@ public interface IFourthTestService {
      */
     Collection<StationDTO> listStations();
 
+    /**
+     * Streams the stations persisted in the database to the handler one by one.
+     * The stations are converted to {@link StationDTO} when they are read from the cursor,
+     * so neither the entities nor the DTOs are collected in the memory.
+     *
+     * @param handler The handler which processes the station DTOs. (NonNull)
+     */
+    void streamStations(ResultHandler<StationDTO> handler);
+
+    /**
+     * Returns one page of the stations using keyset pagination.
+     *
+     * @param afterId The identifier after which the page starts. <tt>0</tt> for the first page.
+     * @param limit The maximum number of the stations on the page. (Positive)
+     * @return The page with the cursor of the next page. (NonNull)
+     */
+    StationPageDTO listStations(long afterId, int limit);
+
+    /**
+     * Returns the station together with its zone and lines. The station is loaded by at most one statement.
+     *
+     * @param id The identifier of the station.
+     * @return The details of the station or <tt>null</tt> if there is no such station. (Nullable)
+     */
+    StationDetailDTO getStationDetail(long id);
+
+    /**
+     * Returns all the stations together with their zones and lines.
+     * The whole network is loaded by one statement, independently of its size.
+     *
+     * @return The details of the stations ordered by their identifiers. (NonNull)
+     */
+    List<StationDetailDTO> listStationDetails();
+
+    /**
+     * Returns the aggregated statistics of the network computed by grouped queries.
+     * The result is cached until the network data is modified, so it can be polled cheaply.
+     *
+     * @return The statistics of the network. (NonNull)
+     */
+    NetworkStatisticsDTO getNetworkStatistics();
+
+    /**
+     * Returns the version of the network (station, line and zone) data without reaching the database.
+     * The version changes every time the network data is modified.
+     *
+     * @return The actual version of the network data.
+     */
+    long getDataVersion();
+
+    /**
+     * @return The statistics of the second-level cache regions and the query cache. (NonNull)
+     */
+    List<CacheStatisticsDTO> getCacheStatistics();
+
 }
@@ -0,0 +1,63 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans;
+
+import org.moresbycoffee.jettyspring.fourth.beans.dto.RouteDTO;
+
+
+/**
+ * Business logic of the journey planner.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public interface IJourneyPlannerService {
+
+    /**
+     * Finds the route with the fewest changes between two stations. The database is never
+     * used, the route is searched in an in-memory graph of the network which is replaced
+     * in the background when the network changes.
+     *
+     * @param fromStationId The identifier of the departure station.
+     * @param toStationId The identifier of the destination station.
+     * @return The route or <tt>null</tt> if any of the stations is unknown or the destination
+     *         cannot be reached from the departure station. (Nullable)
+     */
+    RouteDTO findRoute(long fromStationId, long toStationId);
+
+    /**
+     * Rebuilds the graph of the network in the background if the network has changed since the
+     * graph was built, without waiting for the next query. It should be called after the network
+     * has been imported, so the graph and its snapshot are up to date as soon as possible.
+     */
+    void refreshNetwork();
+
+}
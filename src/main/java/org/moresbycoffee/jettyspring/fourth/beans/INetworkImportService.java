@@ -0,0 +1,77 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans;
+
+import java.io.File;
+
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportJobDTO;
+
+
+/**
+ * Business logic of the asynchronous network imports.<br>
+ * The imports are executed one after the other on a background thread, so the calling
+ * (HTTP request) thread is never blocked by an import.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public interface INetworkImportService {
+
+    /**
+     * Registers a new import job and schedules it. The job parses the CSV content while it reads
+     * the file, so the content is never buffered as a whole in the memory.
+     *
+     * @param csvFile The UTF-8 encoded CSV file with <tt>Station,Lines,Zone</tt> columns. It is read
+     *                on the import thread. (NonNull)
+     * @param gzip <tt>true</tt> if the file is gzip compressed.
+     * @param mode The mode of the import. (NonNull)
+     * @param whenFinished Called on the import thread when the job has finished in any state,
+     *                     so the file is not used anymore. (NonNull)
+     * @return The snapshot of the new job. (NonNull)
+     */
+    ImportJobDTO submitImport(File csvFile, boolean gzip, ImportMode mode, Runnable whenFinished);
+
+    /**
+     * @param id The identifier of the job.
+     * @return The snapshot of the job or <tt>null</tt> if there is no such job. (Nullable)
+     */
+    ImportJobDTO getImportJob(long id);
+
+    /**
+     * Cancels the job if it has not finished yet. A running import stops before its next row,
+     * the rows of its actual chunk are rolled back, but the already committed chunks remain.
+     *
+     * @param id The identifier of the job.
+     * @return The snapshot of the job or <tt>null</tt> if there is no such job. (Nullable)
+     */
+    ImportJobDTO cancelImportJob(long id);
+
+}
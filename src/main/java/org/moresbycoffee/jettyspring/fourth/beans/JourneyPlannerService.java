@@ -0,0 +1,293 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.RouteDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.RouteLegDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDTO;
+import org.moresbycoffee.jettyspring.fourth.dal.INetworkDataVersion;
+import org.moresbycoffee.jettyspring.fourth.dal.INetworkGraphDao;
+import org.moresbycoffee.jettyspring.fourth.util.NetworkGraph;
+import org.moresbycoffee.jettyspring.fourth.util.NetworkGraphSnapshot;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Implementation of {@link IJourneyPlannerService} using a {@link NetworkGraph}.<br>
+ * The graph is built from the database when the application context is started.
+ * When a query notices that the data version of the network has changed since the
+ * graph was built, a new graph is built on a background thread and swapped in
+ * atomically. Until then the queries are answered from the previous graph, so
+ * the queries never reach the database.<br>
+ * Every graph built from the database is written into the {@link NetworkGraphSnapshot}. If there is
+ * a valid snapshot when the application context is started, the queries are answered from it right
+ * away and the graph is built from the database in the background. If the snapshot is missing or
+ * corrupt, the graph is built from the database before the startup continues.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@Component
+public class JourneyPlannerService implements IJourneyPlannerService, ApplicationListener<ContextRefreshedEvent>, DisposableBean {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(JourneyPlannerService.class);
+
+    /** Data Access Object to read the network. (NonNull) */
+    private final INetworkGraphDao    networkGraphDao;
+    /** The version of the network data the graph is compared to. (NonNull) */
+    private final INetworkDataVersion networkDataVersion;
+    /** The snapshot the graph is restored from and written to. (NonNull) */
+    private final NetworkGraphSnapshot snapshot;
+
+    /** The actual graph together with the data version it has been built from. (NonNull) */
+    private volatile VersionedGraph graph = new VersionedGraph(NetworkGraph.EMPTY, Long.MIN_VALUE);
+
+    /** <tt>true</tt> while a rebuild is scheduled or running. */
+    private final AtomicBoolean   rebuilding = new AtomicBoolean();
+    /** The single background thread which builds the graphs. (NonNull) */
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "network-graph-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * @param networkGraphDao Data Access Object to read the network.
+     * @param networkDataVersion The version of the network data.
+     * @param snapshot The snapshot of the graph. (NonNull)
+     */
+    @Autowired
+    public JourneyPlannerService(final INetworkGraphDao networkGraphDao, final INetworkDataVersion networkDataVersion,
+                                 final NetworkGraphSnapshot snapshot) {
+        super();
+        this.networkGraphDao = networkGraphDao;
+        this.networkDataVersion = networkDataVersion;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Restores the graph from the snapshot and schedules its rebuild, or builds the graph from the
+     * database if there is no valid snapshot, when the application context is started.
+     *
+     * @param event The context refreshed event. (NonNull)
+     */
+    @Override
+    public void onApplicationEvent(final ContextRefreshedEvent event) {
+        final long start = System.currentTimeMillis();
+        NetworkGraph network = null;
+        try {
+            network = snapshot.read();
+        } catch (final IOException e) {
+            LOG.warn("Network graph snapshot " + snapshot.getFile() + " cannot be read, the graph is built from the database", e);
+        }
+        if (network == null) {
+            rebuild();
+            return;
+        }
+        LOG.info("Network graph has been restored from " + snapshot.getFile() + " with " + network.stationCount() + " stations and "
+                + network.lineCount() + " lines in " + (System.currentTimeMillis() - start) + " ms");
+        /* The snapshot may be older than the database, its version never matches, so it is rebuilt. */
+        graph = new VersionedGraph(network, Long.MIN_VALUE);
+        scheduleRebuild();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void destroy() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public RouteDTO findRoute(final long fromStationId, final long toStationId) {
+        final NetworkGraph network = currentGraph();
+
+        final int from = network.indexOfStation(fromStationId);
+        final int to = network.indexOfStation(toStationId);
+        if (from < 0 || to < 0) {
+            return null;
+        }
+        final int[][] route = network.findRoute(from, to);
+        if (route == null) {
+            return null;
+        }
+
+        final List<RouteLegDTO> legs = new ArrayList<RouteLegDTO>(route.length);
+        final SortedSet<Integer> zones = new TreeSet<Integer>();
+        addZone(zones, network, from);
+        for (final int[] leg : route) {
+            legs.add(new RouteLegDTO(network.lineName(leg[0]), toDto(network, leg[1]), toDto(network, leg[2])));
+            addZone(zones, network, leg[2]);
+        }
+        return new RouteDTO(legs, new ArrayList<Integer>(zones));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void refreshNetwork() {
+        /* Queued even if a rebuild is running, because the running one may have read the network before the change. */
+        rebuildExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (graph.version != networkDataVersion.getVersion()) {
+                    rebuildSafely();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the actual graph and schedules a rebuild if the network has changed since it was built.
+     *
+     * @return The actual graph. (NonNull)
+     */
+    private NetworkGraph currentGraph() {
+        final VersionedGraph current = graph;
+        if (current.version != networkDataVersion.getVersion()) {
+            scheduleRebuild();
+        }
+        return current.graph;
+    }
+
+    /**
+     * Schedules a rebuild on the background thread unless one is already scheduled or running.
+     */
+    private void scheduleRebuild() {
+        if (rebuilding.compareAndSet(false, true)) {
+            rebuildExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        rebuildSafely();
+                    } finally {
+                        rebuilding.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Rebuilds the graph and logs the failure instead of throwing it, so the background thread
+     * survives and the previous graph is kept.
+     */
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (final RuntimeException e) {
+            LOG.error("Network graph rebuild has failed", e);
+        }
+    }
+
+    /**
+     * Builds a new graph from the database, swaps it in and writes its snapshot.
+     * The data version is read before the network, so a change committed during
+     * the build triggers an other rebuild.
+     */
+    private void rebuild() {
+        final long start = System.currentTimeMillis();
+        final long version = networkDataVersion.getVersion();
+        final NetworkGraph.Builder builder = new NetworkGraph.Builder();
+        networkGraphDao.loadNetwork(builder);
+        final NetworkGraph network = builder.build();
+        graph = new VersionedGraph(network, version);
+        LOG.info("Network graph has been built with " + network.stationCount() + " stations and " + network.lineCount() + " lines in "
+                + (System.currentTimeMillis() - start) + " ms");
+
+        try {
+            snapshot.write(network);
+        } catch (final IOException e) {
+            LOG.warn("Network graph snapshot cannot be written to " + snapshot.getFile(), e);
+        }
+    }
+
+    /**
+     * @param network The graph. (NonNull)
+     * @param station The index of the station in the graph.
+     * @return The DTO of the station. (NonNull)
+     */
+    private static StationDTO toDto(final NetworkGraph network, final int station) {
+        return new StationDTO(Long.valueOf(network.stationId(station)), network.stationName(station));
+    }
+
+    /**
+     * Adds the zone of the station to the zones unless the station has no zone.
+     *
+     * @param zones The zones of the route. (NonNull)
+     * @param network The graph. (NonNull)
+     * @param station The index of the station in the graph.
+     */
+    private static void addZone(final SortedSet<Integer> zones, final NetworkGraph network, final int station) {
+        final int zone = network.stationZone(station);
+        if (zone != NetworkGraph.NO_ZONE) {
+            zones.add(Integer.valueOf(zone));
+        }
+    }
+
+    /**
+     * Immutable pair of a graph and the data version it has been built from.
+     */
+    private static final class VersionedGraph {
+        /** The graph. (NonNull) */
+        private final NetworkGraph graph;
+        /** The data version the graph has been built from or {@link Long#MIN_VALUE} if it is unknown. */
+        private final long         version;
+
+        /**
+         * @param graph The graph. (NonNull)
+         * @param version The data version the graph has been built from.
+         */
+        private VersionedGraph(final NetworkGraph graph, final long version) {
+            this.graph = graph;
+            this.version = version;
+        }
+    }
+
+}
@@ -0,0 +1,400 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.log4j.Logger;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportJobDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportJobDTO.State;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+import org.moresbycoffee.jettyspring.fourth.dal.INetworkImportDao;
+import org.moresbycoffee.jettyspring.fourth.dal.ImportMonitor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Implementation of {@link INetworkImportService}.<br>
+ * The jobs are executed by a single background thread, because the concurrent imports would
+ * create the same zones and lines independently. The last {@value #MAX_KEPT_JOBS} jobs are
+ * kept, so their results can be queried after they have finished.<br>
+ * The full imports are parsed by a
+ * {@link org.moresbycoffee.jettyspring.fourth.dal.PipelinedCsvNetworkImporter pipeline} with
+ * {@value #PARSER_THREADS_PROPERTY} parser threads (by default two less than the number of the processors, but
+ * at least one), <tt>0</tt> imports the rows on the job thread alone. If the {@value #MAPPED_PROPERTY}
+ * system property is <tt>true</tt>, the uncompressed files smaller than 2GB are parsed from the
+ * {@link org.moresbycoffee.jettyspring.fourth.dal.MappedCsvNetworkImporter memory mapped} file by the job
+ * thread instead. The single writer thread dominates all the three ways: the <tt>NetworkImportBenchmark</tt>
+ * has measured 2.3-2.8 s for 50000 stations with each of them, so the pipeline, which scales with the
+ * processors, is the default.<br>
+ * The journey planner is refreshed after every job which has started, because even a failed or
+ * cancelled job may have committed some chunks.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@Component
+public class NetworkImportService implements INetworkImportService, DisposableBean {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(NetworkImportService.class);
+
+    /** The maximum number of the kept jobs. */
+    private static final int MAX_KEPT_JOBS = 100;
+
+    /** The size of the buffer of the CSV stream reader. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** The system property of the number of the parser threads of the full imports. */
+    private static final String PARSER_THREADS_PROPERTY = "jettyspring.importParserThreads";
+
+    /** The system property which switches the uncompressed full imports to the memory mapped importer. */
+    private static final String MAPPED_PROPERTY = "jettyspring.importMapped";
+
+    private final INetworkImportDao      networkImportDao;
+    private final IJourneyPlannerService journeyPlannerService;
+    /** The number of the parser threads of the full imports, <tt>0</tt> if the rows are parsed by the job thread. */
+    private final int                    parserThreads;
+    /** <tt>true</tt> if the uncompressed full imports are parsed from the memory mapped file. */
+    private final boolean                mapped;
+
+    private final AtomicLong     jobIds = new AtomicLong();
+    /** The kept jobs by their identifiers in the order of their submission. (Guarded by itself) */
+    private final Map<Long, Job> jobs   = new LinkedHashMap<Long, Job>() {
+
+        /** @see java.io.Serializable */
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Job> eldest) {
+            return size() > MAX_KEPT_JOBS;
+        }
+
+    };
+
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "network-import");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Creates the service with the number of the parser threads set by the {@value #PARSER_THREADS_PROPERTY} and
+     * the importer set by the {@value #MAPPED_PROPERTY} system properties.
+     *
+     * @param networkImportDao Data Access Object to import the network.
+     * @param journeyPlannerService The journey planner which is refreshed after the imports.
+     */
+    @Autowired
+    public NetworkImportService(final INetworkImportDao networkImportDao, final IJourneyPlannerService journeyPlannerService) {
+        this(networkImportDao, journeyPlannerService,
+             Integer.getInteger(PARSER_THREADS_PROPERTY, Math.max(1, Runtime.getRuntime().availableProcessors() - 2)).intValue(),
+             Boolean.getBoolean(MAPPED_PROPERTY));
+    }
+
+    /**
+     * @param networkImportDao Data Access Object to import the network.
+     * @param journeyPlannerService The journey planner which is refreshed after the imports.
+     * @param parserThreads The number of the parser threads of the full imports, <tt>0</tt> if the rows have to be
+     *                      parsed by the job thread. (Not negative)
+     * @param mapped <tt>true</tt> if the uncompressed full imports smaller than 2GB have to be parsed from the
+     *               memory mapped file instead of the pipeline.
+     */
+    public NetworkImportService(final INetworkImportDao networkImportDao, final IJourneyPlannerService journeyPlannerService,
+                                final int parserThreads, final boolean mapped) {
+        super();
+        if (parserThreads < 0) {
+            throw new IllegalArgumentException("The number of the parser threads cannot be negative: " + parserThreads);
+        }
+        this.networkImportDao = networkImportDao;
+        this.journeyPlannerService = journeyPlannerService;
+        this.parserThreads = parserThreads;
+        this.mapped = mapped;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void destroy() {
+        importExecutor.shutdownNow();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ImportJobDTO submitImport(final File csvFile, final boolean gzip, final ImportMode mode, final Runnable whenFinished) {
+        final Job job = new Job(jobIds.incrementAndGet(), csvFile, gzip, mode);
+        synchronized (jobs) {
+            jobs.put(Long.valueOf(job.id), job);
+        }
+        importExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    job.run();
+                } finally {
+                    whenFinished.run();
+                }
+            }
+        });
+        return job.toDto();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ImportJobDTO getImportJob(final long id) {
+        final Job job = findJob(id);
+        return job == null ? null : job.toDto();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ImportJobDTO cancelImportJob(final long id) {
+        final Job job = findJob(id);
+        if (job == null) {
+            return null;
+        }
+        job.cancel();
+        return job.toDto();
+    }
+
+    private Job findJob(final long id) {
+        synchronized (jobs) {
+            return jobs.get(Long.valueOf(id));
+        }
+    }
+
+    /**
+     * An import job. The state is written by the import thread and read by the request threads.
+     */
+    private final class Job implements ImportMonitor {
+
+        private final long       id;
+        private final File       csvFile;
+        private final long       contentLength;
+        private final boolean    gzip;
+        private final ImportMode mode;
+
+        /** The opened file if it is read as a stream. (Nullable) */
+        private volatile CountingInputStream body;
+        /** The number of the read bytes reported by the importer if the file is not read as a stream. */
+        private volatile long                bytesRead;
+        private volatile State               state = State.QUEUED;
+        private volatile boolean             cancelled;
+        private volatile long                startMillis;
+        private volatile long                endMillis;
+        private volatile long                rows;
+        private volatile String              error;
+        private volatile ImportStatisticsDTO statistics;
+
+        private Job(final long id, final File csvFile, final boolean gzip, final ImportMode mode) {
+            this.id = id;
+            this.csvFile = csvFile;
+            this.contentLength = csvFile.length();
+            this.gzip = gzip;
+            this.mode = mode;
+        }
+
+        /**
+         * Imports the CSV content and closes the file.
+         */
+        private void run() {
+            if (cancelled) {
+                finish(State.CANCELLED);
+                return;
+            }
+            startMillis = System.currentTimeMillis();
+            state = State.RUNNING;
+            try {
+                if (mapped && mode == ImportMode.FULL && !gzip && contentLength <= Integer.MAX_VALUE) {
+                    statistics = networkImportDao.importCsv(csvFile, this);
+                    finish(State.FINISHED);
+                    return;
+                }
+
+                body = new CountingInputStream(new FileInputStream(csvFile));
+                final InputStream in = gzip ? new GZIPInputStream(body, BUFFER_SIZE) : body;
+                final Reader reader = new InputStreamReader(in, "UTF-8");
+                if (mode == ImportMode.DELTA) {
+                    statistics = networkImportDao.importCsvDelta(reader, this);
+                } else if (mode == ImportMode.NATIVE) {
+                    statistics = networkImportDao.loadCsvNative(reader, this);
+                } else if (parserThreads == 0) {
+                    statistics = networkImportDao.importCsv(reader, this);
+                } else {
+                    statistics = networkImportDao.importCsv(reader, parserThreads, this);
+                }
+                finish(State.FINISHED);
+            } catch (final CancellationException e) {
+                LOG.info("Network import job " + id + " has been cancelled after " + rows + " rows");
+                finish(State.CANCELLED);
+            } catch (final IOException e) {
+                LOG.info("Network import job " + id + " has failed", e);
+                error = e.getMessage();
+                finish(State.FAILED);
+            } catch (final RuntimeException e) {
+                LOG.error("Network import job " + id + " has failed", e);
+                error = e.toString();
+                finish(State.FAILED);
+            } finally {
+                closeBody();
+                journeyPlannerService.refreshNetwork();
+            }
+        }
+
+        private void finish(final State finalState) {
+            endMillis = System.currentTimeMillis();
+            state = finalState;
+        }
+
+        private void closeBody() {
+            final CountingInputStream actualBody = body;
+            if (actualBody == null) {
+                return;
+            }
+            try {
+                actualBody.close();
+            } catch (final IOException e) {
+                LOG.debug("The body of network import job " + id + " cannot be closed", e);
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void rowsWritten(final long writtenRows) {
+            this.rows = writtenRows;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void bytesRead(final long readBytes) {
+            this.bytesRead = readBytes;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return The snapshot of the job. (NonNull)
+         */
+        private ImportJobDTO toDto() {
+            final State actualState = state;
+            final long  start       = startMillis;
+            final long  elapsed     = actualState == State.QUEUED ? 0 : (actualState == State.RUNNING ? System.currentTimeMillis() : endMillis) - start;
+            final long  actualRows  = actualState == State.FINISHED ? statistics.getRows() : rows;
+            final CountingInputStream actualBody = body;
+            final long  readBytes   = actualBody == null ? bytesRead : actualBody.getCount();
+
+            Long eta = null;
+            if (actualState == State.RUNNING && contentLength > 0 && readBytes > 0) {
+                /* The remaining time is estimated from the ratio of the read bytes. */
+                eta = Long.valueOf(Math.max(0, elapsed * (contentLength - readBytes) / readBytes));
+            } else if (actualState == State.FINISHED) {
+                eta = Long.valueOf(0);
+            }
+            return new ImportJobDTO(id, actualState, actualRows, actualRows * 1000.0 / Math.max(1, elapsed), readBytes,
+                                    Long.valueOf(contentLength), eta, error, statistics);
+        }
+
+    }
+
+    /**
+     * Counts the bytes read from the underlying stream. The count can be read from any thread.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private volatile long count;
+
+        private CountingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            final int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private long getCount() {
+            return count;
+        }
+
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDTO;
+import org.moresbycoffee.jettyspring.fourth.dal.IStationChangeListener;
+import org.moresbycoffee.jettyspring.fourth.dal.IStationChangeTracker;
+import org.moresbycoffee.jettyspring.fourth.dal.IStationDao;
+import org.moresbycoffee.jettyspring.fourth.domain.Station;
+import org.moresbycoffee.jettyspring.fourth.util.StationNameIndex;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+
+/**
+ * Implementation of {@link IStationSuggestService} using a {@link StationNameIndex}.<br>
+ * The index is built from the database when the application context is started.
+ * After that the committed station changes are collected and merged into a new
+ * index on a background thread, so the queries neither reach the database nor
+ * pay for the merge. Until the merge has finished the queries are answered from
+ * the previous index. After a bulk load, which bypasses the entity events, the index is
+ * rebuilt from the database on the same background thread.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@Component
+@Transactional
+public class StationSuggestService implements IStationSuggestService, IStationChangeListener, ApplicationListener<ContextRefreshedEvent>,
+                                              DisposableBean {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(StationSuggestService.class);
+
+    private final IStationDao stationDao;
+
+    /** The actual index. It is only assigned by the update thread while the {@link #pendingChanges} lock is held. (NonNull) */
+    private volatile StationNameIndex index = StationNameIndex.EMPTY;
+
+    /**
+     * The station changes which are not applied to the index yet by the identifiers of the stations.
+     * The value is <tt>null</tt> if the station has been deleted. Guarded by itself.
+     */
+    private final Map<Long, StationDTO> pendingChanges = new LinkedHashMap<Long, StationDTO>();
+
+    /** <tt>true</tt> while an update of the index is scheduled and has not taken the pending changes yet. */
+    private final AtomicBoolean   updateScheduled = new AtomicBoolean();
+    private final ExecutorService updateExecutor  = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "station-name-index-update");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * @param stationDao Data Access Object to handle the {@link Station} entities.
+     * @param stationChangeTracker The tracker which notifies the service about the committed station changes.
+     */
+    @Autowired
+    public StationSuggestService(final IStationDao stationDao, final IStationChangeTracker stationChangeTracker) {
+        super();
+        this.stationDao = stationDao;
+        stationChangeTracker.addListener(this);
+    }
+
+    /**
+     * Builds the index on the update thread when the application context is started and waits for it,
+     * so the application starts with the complete index.
+     *
+     * @param event The context refreshed event. (NonNull)
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void onApplicationEvent(final ContextRefreshedEvent event) {
+        try {
+            updateExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    buildIndex();
+                }
+            }).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The station name index build has been interrupted", e);
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("The station name index build has failed", e.getCause());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void destroy() {
+        updateExecutor.shutdownNow();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<StationDTO> suggest(final String prefix, final int limit) {
+        return index.suggest(prefix, limit);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void stationSaved(final Station station) {
+        synchronized (pendingChanges) {
+            pendingChanges.put(station.getId(), new StationDTO(station.getId(), station.getName()));
+        }
+        scheduleUpdate();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void stationDeleted(final Station station) {
+        synchronized (pendingChanges) {
+            pendingChanges.put(station.getId(), null);
+        }
+        scheduleUpdate();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void stationsReloaded() {
+        updateExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    buildIndex();
+                } catch (final RuntimeException e) {
+                    LOG.error("Station name index rebuild has failed", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Builds the index from the database. It runs on the update thread, so no pending change is
+     * applied to the previous index meanwhile.<br>
+     * The stations are read without the {@link #pendingChanges} lock, so the committing threads
+     * which report their changes are not blocked by the read. The changes pending after the read are
+     * applied to the built index when it is assigned. Some of them may have been read already, but
+     * every change is the last known state of its station, so applying it again is harmless.
+     */
+    private void buildIndex() {
+        final long start = System.currentTimeMillis();
+        final StationNameIndex built = StationNameIndex.build(stationDao.getAllDtos());
+        synchronized (pendingChanges) {
+            index = built.withChanges(pendingChanges);
+            pendingChanges.clear();
+        }
+        LOG.info("Station name index has been built with " + index.size() + " stations in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Schedules the merge of the pending changes on the background thread unless one is already
+     * scheduled, so the changes of a bulk commit are merged by one or a few updates.
+     */
+    private void scheduleUpdate() {
+        if (updateScheduled.compareAndSet(false, true)) {
+            updateExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    /* Cleared before the changes are taken, so the changes arriving later schedule an other update. */
+                    updateScheduled.set(false);
+                    try {
+                        applyPendingChanges();
+                    } catch (final RuntimeException e) {
+                        LOG.error("Station name index update has failed", e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Merges the pending changes into a new index and swaps it in. It runs on the update thread.
+     */
+    private void applyPendingChanges() {
+        synchronized (pendingChanges) {
+            if (!pendingChanges.isEmpty()) {
+                index = index.withChanges(pendingChanges);
+                pendingChanges.clear();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans.dto;
+
+/**
+ * Statistics of a cache.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class CacheStatisticsDTO {
+
+    /** The name of the cache. (NonNull) */
+    private final String name;
+    /** The number of the requests served from the cache. */
+    private final long   hits;
+    /** The number of the requests which were not served from the cache. */
+    private final long   misses;
+    /** The ratio of the hits, <tt>0</tt> if the cache has not been used yet. */
+    private final double hitRatio;
+    /** The number of the elements in the cache. <tt>-1</tt> if it is unknown. */
+    private final long   elements;
+    /** The memory used by the cache in bytes. <tt>-1</tt> if it is unknown. */
+    private final long   bytes;
+
+    /**
+     * @param name The name of the cache. (NonNull)
+     * @param hits The number of the requests served from the cache.
+     * @param misses The number of the requests which were not served from the cache.
+     * @param elements The number of the elements in the cache. <tt>-1</tt> if it is unknown.
+     * @param bytes The memory used by the cache in bytes. <tt>-1</tt> if it is unknown.
+     */
+    public CacheStatisticsDTO(final String name, final long hits, final long misses, final long elements, final long bytes) {
+        super();
+        this.name = name;
+        this.hits = hits;
+        this.misses = misses;
+        this.hitRatio = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        this.elements = elements;
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return The name of the cache. (NonNull)
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The number of the requests served from the cache.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of the requests which were not served from the cache.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return The ratio of the hits, <tt>0</tt> if the cache has not been used yet.
+     */
+    public double getHitRatio() {
+        return hitRatio;
+    }
+
+    /**
+     * @return The number of the elements in the cache. <tt>-1</tt> if it is unknown.
+     */
+    public long getElements() {
+        return elements;
+    }
+
+    /**
+     * @return The memory used by the cache in bytes. <tt>-1</tt> if it is unknown.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans.dto;
+
+/**
+ * Statistics of a finished delta network import. The {@link #getRows() rows} are the scanned rows of the file.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class DeltaImportStatisticsDTO extends ImportStatisticsDTO {
+
+    /** The number of the inserted stations. */
+    private final long inserted;
+    /** The number of the updated stations. */
+    private final long updated;
+    /** The number of the deleted stations. */
+    private final long deleted;
+    /** The number of the unchanged stations. */
+    private final long unchanged;
+
+    /**
+     * @param rows The number of the scanned rows.
+     * @param inserted The number of the inserted stations.
+     * @param updated The number of the updated stations.
+     * @param deleted The number of the deleted stations.
+     * @param zones The number of the created zones.
+     * @param lines The number of the created lines.
+     * @param elapsedMillis The duration of the import in milliseconds.
+     */
+    public DeltaImportStatisticsDTO(final long rows, final long inserted, final long updated, final long deleted,
+                                    final long zones, final long lines, final long elapsedMillis) {
+        super(rows, zones, lines, elapsedMillis);
+        this.inserted = inserted;
+        this.updated = updated;
+        this.deleted = deleted;
+        this.unchanged = rows - inserted - updated;
+    }
+
+    /**
+     * @return The number of the inserted stations.
+     */
+    public long getInserted() {
+        return inserted;
+    }
+
+    /**
+     * @return The number of the updated stations.
+     */
+    public long getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return The number of the deleted stations.
+     */
+    public long getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * @return The number of the unchanged stations.
+     */
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return super.toString() + ": " + inserted + " inserted, " + updated + " updated, " + deleted + " deleted, " + unchanged + " unchanged";
+    }
+
+}
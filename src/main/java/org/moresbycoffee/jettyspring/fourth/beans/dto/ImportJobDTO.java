@@ -0,0 +1,164 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans.dto;
+
+/**
+ * Snapshot of the progress of an asynchronous network import job.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ImportJobDTO {
+
+    /**
+     * The states of an import job.
+     */
+    public enum State {
+        /** The job waits for the previous imports to finish. */
+        QUEUED,
+        /** The job is reading and importing the CSV. */
+        RUNNING,
+        /** The import has finished successfully. */
+        FINISHED,
+        /** The import has failed, the already committed chunks remain in the database. */
+        FAILED,
+        /** The import has been cancelled, the already committed chunks remain in the database. */
+        CANCELLED
+    }
+
+    /** The identifier of the job. */
+    private final long                id;
+    /** The state of the job. */
+    private final State               state;
+    /** The number of the imported rows so far. */
+    private final long                rows;
+    /** The number of the imported rows per second since the job has been started. */
+    private final double              rowsPerSecond;
+    /** The number of the imported bytes of the request body. */
+    private final long                bytesRead;
+    /** The length of the request body or <tt>null</tt> if it is unknown. */
+    private final Long                totalBytes;
+    /** The estimated remaining time in milliseconds or <tt>null</tt> if it cannot be estimated. */
+    private final Long                etaMillis;
+    /** The reason of the failure or <tt>null</tt>. */
+    private final String              error;
+    /** The statistics of the finished import or <tt>null</tt>. */
+    private final ImportStatisticsDTO statistics;
+
+    /**
+     * @param id The identifier of the job.
+     * @param state The state of the job. (NonNull)
+     * @param rows The number of the imported rows so far.
+     * @param rowsPerSecond The number of the imported rows per second since the job has been started.
+     * @param bytesRead The number of the imported bytes of the request body.
+     * @param totalBytes The length of the request body. (Nullable)
+     * @param etaMillis The estimated remaining time in milliseconds. (Nullable)
+     * @param error The reason of the failure. (Nullable)
+     * @param statistics The statistics of the finished import. (Nullable)
+     */
+    public ImportJobDTO(final long id, final State state, final long rows, final double rowsPerSecond, final long bytesRead,
+                        final Long totalBytes, final Long etaMillis, final String error, final ImportStatisticsDTO statistics) {
+        super();
+        this.id = id;
+        this.state = state;
+        this.rows = rows;
+        this.rowsPerSecond = rowsPerSecond;
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.etaMillis = etaMillis;
+        this.error = error;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return The identifier of the job.
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return The state of the job. (NonNull)
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return The number of the imported rows so far.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return The number of the imported rows per second since the job has been started.
+     */
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    /**
+     * @return The number of the imported bytes of the request body.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * @return The length of the request body. (Nullable)
+     */
+    public Long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return The estimated remaining time in milliseconds. (Nullable)
+     */
+    public Long getEtaMillis() {
+        return etaMillis;
+    }
+
+    /**
+     * @return The reason of the failure. (Nullable)
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return The statistics of the finished import. (Nullable)
+     */
+    public ImportStatisticsDTO getStatistics() {
+        return statistics;
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans.dto;
+
+/**
+ * Statistics of a finished network import.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ImportStatisticsDTO {
+
+    /** The number of the imported rows (stations). */
+    private final long   rows;
+    /** The number of the created zones. */
+    private final long   zones;
+    /** The number of the created lines. */
+    private final long   lines;
+    /** The duration of the import in milliseconds. */
+    private final long   elapsedMillis;
+    /** The number of the imported rows per second. */
+    private final double rowsPerSecond;
+
+    /**
+     * @param rows The number of the imported rows (stations).
+     * @param zones The number of the created zones.
+     * @param lines The number of the created lines.
+     * @param elapsedMillis The duration of the import in milliseconds.
+     */
+    public ImportStatisticsDTO(final long rows, final long zones, final long lines, final long elapsedMillis) {
+        super();
+        this.rows = rows;
+        this.zones = zones;
+        this.lines = lines;
+        this.elapsedMillis = elapsedMillis;
+        this.rowsPerSecond = rows * 1000.0 / Math.max(1, elapsedMillis);
+    }
+
+    /**
+     * @return The number of the imported rows (stations).
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return The number of the created zones.
+     */
+    public long getZones() {
+        return zones;
+    }
+
+    /**
+     * @return The number of the created lines.
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * @return The duration of the import in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return The number of the imported rows per second.
+     */
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return rows + " rows (" + zones + " zones, " + lines + " lines) in " + elapsedMillis + " ms, " + Math.round(rowsPerSecond) + " rows/s";
+    }
+
+}
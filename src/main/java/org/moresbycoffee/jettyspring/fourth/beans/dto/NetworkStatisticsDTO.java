@@ -0,0 +1,83 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans.dto;
+
+import java.util.Map;
+
+/**
+ * Aggregated statistics of the railway network.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class NetworkStatisticsDTO {
+
+    /** The number of the stations by the zone numbers in ascending order of the zone numbers. (NonNull) */
+    private final Map<Integer, Long> stationsPerZone;
+    /** The number of the stations by the line names in alphabetical order. (NonNull) */
+    private final Map<String, Long>  stationsPerLine;
+    /** The number of the stations which are on more than one line. */
+    private final long               interchangeStations;
+
+    /**
+     * @param stationsPerZone The number of the stations by the zone numbers. (NonNull)
+     * @param stationsPerLine The number of the stations by the line names. (NonNull)
+     * @param interchangeStations The number of the stations which are on more than one line.
+     */
+    public NetworkStatisticsDTO(final Map<Integer, Long> stationsPerZone, final Map<String, Long> stationsPerLine, final long interchangeStations) {
+        super();
+        this.stationsPerZone = stationsPerZone;
+        this.stationsPerLine = stationsPerLine;
+        this.interchangeStations = interchangeStations;
+    }
+
+    /**
+     * @return The number of the stations by the zone numbers in ascending order of the zone numbers. (NonNull)
+     */
+    public Map<Integer, Long> getStationsPerZone() {
+        return stationsPerZone;
+    }
+
+    /**
+     * @return The number of the stations by the line names in alphabetical order. (NonNull)
+     */
+    public Map<String, Long> getStationsPerLine() {
+        return stationsPerLine;
+    }
+
+    /**
+     * @return The number of the stations which are on more than one line.
+     */
+    public long getInterchangeStations() {
+        return interchangeStations;
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans.dto;
+
+import java.util.List;
+
+/**
+ * Route between two stations with the fewest changes.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class RouteDTO {
+
+    /** The legs of the route in the order of travel. Empty if the departure and the destination are the same. (NonNull) */
+    private final List<RouteLegDTO> legs;
+    /** The number of the changes. */
+    private final int               changes;
+    /** The numbers of the zones of the boarding and alighting stations in ascending order. (NonNull) */
+    private final List<Integer>     zones;
+
+    /**
+     * @param legs The legs of the route in the order of travel. (NonNull)
+     * @param zones The numbers of the zones of the boarding and alighting stations in ascending order. (NonNull)
+     */
+    public RouteDTO(final List<RouteLegDTO> legs, final List<Integer> zones) {
+        super();
+        this.legs = legs;
+        this.changes = Math.max(0, legs.size() - 1);
+        this.zones = zones;
+    }
+
+    /**
+     * @return The legs of the route in the order of travel. Empty if the departure and the destination are the same. (NonNull)
+     */
+    public List<RouteLegDTO> getLegs() {
+        return legs;
+    }
+
+    /**
+     * @return The number of the changes.
+     */
+    public int getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return The numbers of the zones of the boarding and alighting stations in ascending order. (NonNull)
+     */
+    public List<Integer> getZones() {
+        return zones;
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans.dto;
+
+/**
+ * One leg of a route: a journey on one line without changing.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class RouteLegDTO {
+
+    /** The name of the line. (NonNull) */
+    private final String     line;
+    /** The station where the line is boarded. (NonNull) */
+    private final StationDTO from;
+    /** The station where the line is left. (NonNull) */
+    private final StationDTO to;
+
+    /**
+     * @param line The name of the line. (NonNull)
+     * @param from The station where the line is boarded. (NonNull)
+     * @param to The station where the line is left. (NonNull)
+     */
+    public RouteLegDTO(final String line, final StationDTO from, final StationDTO to) {
+        super();
+        this.line = line;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return The name of the line. (NonNull)
+     */
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * @return The station where the line is boarded. (NonNull)
+     */
+    public StationDTO getFrom() {
+        return from;
+    }
+
+    /**
+     * @return The station where the line is left. (NonNull)
+     */
+    public StationDTO getTo() {
+        return to;
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans.dto;
+
+import java.util.List;
+
+/**
+ * Data transfer object of a station together with its zone and lines.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StationDetailDTO {
+
+    /** The identifier of the station. */
+    private final Long         id;
+    /** The name of the station. (NonNull) */
+    private final String       name;
+    /** The number of the zone of the station. (Nullable) */
+    private final Integer      zone;
+    /** The names of the lines the station is on. (NonNull) */
+    private final List<String> lines;
+
+    /**
+     * @param id The identifier of the station.
+     * @param name The name of the station. (NonNull)
+     * @param zone The number of the zone of the station. (Nullable)
+     * @param lines The names of the lines the station is on. (NonNull)
+     */
+    public StationDetailDTO(final Long id, final String name, final Integer zone, final List<String> lines) {
+        super();
+        this.id = id;
+        this.name = name;
+        this.zone = zone;
+        this.lines = lines;
+    }
+
+    /**
+     * @return The identifier of the station.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * @return The name of the station. (NonNull)
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The number of the zone of the station. (Nullable)
+     */
+    public Integer getZone() {
+        return zone;
+    }
+
+    /**
+     * @return The names of the lines the station is on. (NonNull)
+     */
+    public List<String> getLines() {
+        return lines;
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.beans.dto;
+
+import java.util.List;
+
+/**
+ * One page of the stations retrieved by keyset (seek) pagination.<br>
+ * The next page can be requested using the {@link #getNextAfterId()} as
+ * the <tt>afterId</tt> of the next request.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StationPageDTO {
+
+    /** The stations of the page ordered by their identifiers. (NonNull) */
+    private final List<StationDTO> stations;
+    /** The cursor of the next page. <tt>null</tt> if this is the last page. */
+    private final Long             nextAfterId;
+
+    /**
+     * @param stations The stations of the page ordered by their identifiers. (NonNull)
+     * @param nextAfterId The cursor of the next page. <tt>null</tt> if this is the last page.
+     */
+    public StationPageDTO(final List<StationDTO> stations, final Long nextAfterId) {
+        super();
+        this.stations = stations;
+        this.nextAfterId = nextAfterId;
+    }
+
+    /**
+     * @return The stations of the page ordered by their identifiers. (NonNull)
+     */
+    public List<StationDTO> getStations() {
+        return stations;
+    }
+
+    /**
+     * @return The cursor of the next page. <tt>null</tt> if this is the last page.
+     */
+    public Long getNextAfterId() {
+        return nextAfterId;
+    }
+
+}
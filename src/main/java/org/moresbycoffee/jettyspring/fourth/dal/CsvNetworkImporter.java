@@ -0,0 +1,146 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.apache.log4j.Logger;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+
+import au.com.bytecode.opencsv.CSVReader;
+
+
+/**
+ * Imports the railway network from a CSV file with <tt>Station,Lines,Zone</tt> columns
+ * (the first row is the header, the lines are separated by commas) into the database.<br>
+ * The zones and the lines are created once (the stored ones are reused) and afterwards they are referred by their identifiers.
+ * The rows are imported in chunks of <tt>chunkSize</tt> rows, every chunk is flushed and committed
+ * in its own transaction and then the persistence context is cleared. So neither the persistence
+ * context nor the pending actions of the transaction grow with the size of the file, and the inserts
+ * are sent to the database in JDBC batches (see <tt>hibernate.jdbc.batch_size</tt>). The second-level
+ * cache is not populated by the imported entities.<br>
+ * The chunks are written by a {@link NetworkRowWriter}, see there what remains after a failed import.<br>
+ * The importer is not thread safe.
+ *
+ * @see PipelinedCsvNetworkImporter
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class CsvNetworkImporter {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(CsvNetworkImporter.class);
+
+    /** The default number of the rows imported in one transaction. */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final int                  chunkSize;
+
+    /** The identifiers of the already persisted zones by their numbers. */
+    private final Map<Integer, Long> zoneIds = new HashMap<Integer, Long>();
+    /** The identifiers of the already persisted lines by their names. */
+    private final Map<String, Long>  lineIds = new HashMap<String, Long>();
+
+    /**
+     * @param entityManagerFactory The factory of the resource local entity managers. (NonNull)
+     */
+    public CsvNetworkImporter(final EntityManagerFactory entityManagerFactory) {
+        this(entityManagerFactory, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param entityManagerFactory The factory of the resource local entity managers. (NonNull)
+     * @param chunkSize The number of the rows imported in one transaction.
+     *                  It should be a multiple of the <tt>hibernate.jdbc.batch_size</tt>. (Positive)
+     */
+    public CsvNetworkImporter(final EntityManagerFactory entityManagerFactory, final int chunkSize) {
+        super();
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size has to be positive: " + chunkSize);
+        }
+        this.entityManagerFactory = entityManagerFactory;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports the content of the CSV file. The zones and lines stored in the database are reused.
+     *
+     * @param reader The CSV content reader. (NonNull)
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     */
+    public ImportStatisticsDTO importCsv(final Reader reader) throws IOException {
+        return importCsv(reader, null);
+    }
+
+    /**
+     * Imports the content of the CSV file. The zones and lines stored in the database are reused.
+     *
+     * @param reader The CSV content reader. (NonNull)
+     * @param monitor The monitor which is notified about the progress and can cancel the import. (Nullable)
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     * @throws java.util.concurrent.CancellationException If the monitor has cancelled the import.
+     */
+    public ImportStatisticsDTO importCsv(final Reader reader, final ImportMonitor monitor) throws IOException {
+        final long start = System.currentTimeMillis();
+
+        final CSVReader csvReader = new CSVReader(reader);
+        if (csvReader.readNext() == null) {
+            throw new IOException("There is not enough data in the csv file");
+        }
+
+        final NetworkRowWriter writer = new NetworkRowWriter(entityManagerFactory, chunkSize, zoneIds, lineIds, monitor);
+        try {
+            long lineNumber = 1;
+            String[] nextLine;
+            while ((nextLine = csvReader.readNext()) != null) {
+                writer.write(NetworkRow.parse(nextLine, ++lineNumber));
+            }
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+
+        final ImportStatisticsDTO statistics = new ImportStatisticsDTO(writer.getRows(), writer.getCreatedZones(), writer.getCreatedLines(),
+                                                                       System.currentTimeMillis() - start);
+        LOG.info("Network import has finished: " + statistics);
+        return statistics;
+    }
+
+}
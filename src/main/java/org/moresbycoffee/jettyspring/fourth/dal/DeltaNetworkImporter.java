@@ -0,0 +1,208 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.apache.log4j.Logger;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.DeltaImportStatisticsDTO;
+
+import au.com.bytecode.opencsv.CSVReader;
+
+
+/**
+ * Synchronises the network in the database with a CSV file of the same format as the one of the
+ * {@link CsvNetworkImporter}, applying only the differences.<br>
+ * The stations are identified by their names. The content of every row (the zone and the set of
+ * the lines) is hashed and compared to the hash stored with the station at its last import, so an
+ * unchanged station costs only a lookup. The new stations are inserted, the changed ones are updated
+ * (their lines by set difference) and the stations missing from the file are deleted. The zones and
+ * the lines are never deleted.<br>
+ * The changes are written in chunks by a {@link NetworkRowWriter}. The stations are deleted only
+ * after the whole file has been scanned successfully.<br>
+ * The importer is not thread safe.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class DeltaNetworkImporter {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(DeltaNetworkImporter.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final int                  chunkSize;
+
+    /**
+     * @param entityManagerFactory The factory of the resource local entity managers. (NonNull)
+     */
+    public DeltaNetworkImporter(final EntityManagerFactory entityManagerFactory) {
+        this(entityManagerFactory, CsvNetworkImporter.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param entityManagerFactory The factory of the resource local entity managers. (NonNull)
+     * @param chunkSize The number of the changes written in one transaction. (Positive)
+     */
+    public DeltaNetworkImporter(final EntityManagerFactory entityManagerFactory, final int chunkSize) {
+        super();
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size has to be positive: " + chunkSize);
+        }
+        this.entityManagerFactory = entityManagerFactory;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Applies the differences between the CSV file and the database.
+     *
+     * @param reader The CSV content reader. (NonNull)
+     * @param monitor The monitor which is notified about the written changes and can cancel the import. (Nullable)
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid
+     *                     (e.g. a station name occurs more than once).
+     * @throws java.util.concurrent.CancellationException If the monitor has cancelled the import.
+     */
+    public DeltaImportStatisticsDTO importCsv(final Reader reader, final ImportMonitor monitor) throws IOException {
+        final long start = System.currentTimeMillis();
+
+        final CSVReader csvReader = new CSVReader(reader);
+        if (csvReader.readNext() == null) {
+            throw new IOException("There is not enough data in the csv file");
+        }
+
+        final Map<Integer, Long>         zoneIds        = new HashMap<Integer, Long>();
+        final Map<String, Long>          lineIds        = new HashMap<String, Long>();
+        final Map<String, StoredStation> storedStations = new HashMap<String, StoredStation>();
+        final List<Long>                 duplicateIds   = new ArrayList<Long>();
+        loadStoredStations(storedStations, duplicateIds);
+
+        final Set<String> seenNames = new HashSet<String>();
+        long scannedRows = 0;
+        final NetworkRowWriter writer = new NetworkRowWriter(entityManagerFactory, chunkSize, zoneIds, lineIds, monitor);
+        try {
+            long lineNumber = 1;
+            String[] nextLine;
+            while ((nextLine = csvReader.readNext()) != null) {
+                final NetworkRow row = NetworkRow.parse(nextLine, ++lineNumber);
+                if (!seenNames.add(row.stationName)) {
+                    throw new IOException("Duplicate station in line " + lineNumber + ": " + row.stationName);
+                }
+                scannedRows++;
+
+                final StoredStation stored = storedStations.remove(row.stationName);
+                if (stored == null) {
+                    writer.write(row);
+                } else if (stored.contentHash == null || stored.contentHash.longValue() != row.contentHash()) {
+                    writer.update(stored.id, row);
+                }
+            }
+
+            for (final StoredStation removed : storedStations.values()) {
+                writer.delete(removed.id);
+            }
+            for (final Long duplicateId : duplicateIds) {
+                writer.delete(duplicateId.longValue());
+            }
+            writer.finish();
+        } finally {
+            writer.close();
+        }
+
+        final DeltaImportStatisticsDTO statistics = new DeltaImportStatisticsDTO(scannedRows, writer.getRows(), writer.getUpdatedRows(),
+                                                                                 writer.getDeletedRows(), writer.getCreatedZones(),
+                                                                                 writer.getCreatedLines(), System.currentTimeMillis() - start);
+        LOG.info("Delta network import has finished: " + statistics);
+        return statistics;
+    }
+
+    /**
+     * Loads the identifiers and the content hashes of the stations by projection, so no entity is loaded.
+     * The zones and the lines are loaded by the {@link NetworkRowWriter}.
+     *
+     * @param storedStations The map the stations are put into by their names. (NonNull)
+     * @param duplicateIds The list the identifiers of the stations with already seen names are added to. (NonNull)
+     */
+    private void loadStoredStations(final Map<String, StoredStation> storedStations, final List<Long> duplicateIds) {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            final ScrollableResults results = entityManager.unwrap(Session.class)
+                                                           .createQuery("select s.name, s.id, s.contentHash from Station s order by s.id")
+                                                           .setFetchSize(StationDao.FETCH_SIZE)
+                                                           .scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                while (results.next()) {
+                    final StoredStation station = new StoredStation(results.getLong(1).longValue(), results.getLong(2));
+                    final StoredStation previous = storedStations.put(results.getString(0), station);
+                    if (previous != null) {
+                        /* The first station of the name is kept. */
+                        storedStations.put(results.getString(0), previous);
+                        duplicateIds.add(Long.valueOf(station.id));
+                    }
+                }
+            } finally {
+                results.close();
+            }
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * The identifier and the content hash of a station in the database.
+     */
+    private static final class StoredStation {
+
+        private final long id;
+        /** <tt>null</tt> if the station has been created without hash. */
+        private final Long contentHash;
+
+        private StoredStation(final long id, final Long contentHash) {
+            this.id = id;
+            this.contentHash = contentHash;
+        }
+
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.CacheStatisticsDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Implementation of {@link IHibernateCacheStatistics} based on the Hibernate {@link Statistics}.
+ * The hit and miss counts are only collected if the <tt>hibernate.generate_statistics</tt>
+ * property is enabled.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@Component
+public class HibernateCacheStatistics implements IHibernateCacheStatistics {
+
+    /** The name of the query cache statistics. */
+    static final String QUERY_CACHE_NAME = "queryCache";
+
+    /** The statistics of the session factory. */
+    private final Statistics statistics;
+
+    /**
+     * @param entityManagerFactory The Hibernate based entity manager factory. (NonNull)
+     */
+    @Autowired
+    public HibernateCacheStatistics(final EntityManagerFactory entityManagerFactory) {
+        super();
+        this.statistics = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory().getStatistics();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<CacheStatisticsDTO> getStatistics() {
+        final String[] regionNames = statistics.getSecondLevelCacheRegionNames();
+        final List<CacheStatisticsDTO> result = new ArrayList<CacheStatisticsDTO>(regionNames.length + 1);
+
+        for (final String regionName : regionNames) {
+            final SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(regionName);
+            if (regionStatistics != null) {
+                result.add(new CacheStatisticsDTO(regionName,
+                                                  regionStatistics.getHitCount(),
+                                                  regionStatistics.getMissCount(),
+                                                  regionStatistics.getElementCountInMemory(),
+                                                  regionStatistics.getSizeInMemory()));
+            }
+        }
+        if (regionNames.length > 0) {
+            result.add(new CacheStatisticsDTO(QUERY_CACHE_NAME,
+                                              statistics.getQueryCacheHitCount(),
+                                              statistics.getQueryCacheMissCount(),
+                                              -1,
+                                              -1));
+        }
+        return result;
+    }
+
+}
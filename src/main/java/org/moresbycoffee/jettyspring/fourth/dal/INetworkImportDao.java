@@ -0,0 +1,137 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.moresbycoffee.jettyspring.fourth.beans.dto.DeltaImportStatisticsDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+
+
+/**
+ * Data Access Object Interface to import the railway network in bulk.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public interface INetworkImportDao {
+
+    /**
+     * Imports the network from a CSV file with <tt>Station,Lines,Zone</tt> columns.
+     * The rows are committed in chunks, so the memory usage does not depend on the size of the file.
+     *
+     * @param reader The CSV content reader. (NonNull)
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     * @see CsvNetworkImporter
+     */
+    ImportStatisticsDTO importCsv(Reader reader) throws IOException;
+
+    /**
+     * Imports the network from a CSV file with <tt>Station,Lines,Zone</tt> columns and reports
+     * the progress to the monitor.
+     * The rows are committed in chunks, so the memory usage does not depend on the size of the file.
+     *
+     * @param reader The CSV content reader. (NonNull)
+     * @param monitor The monitor which is notified about the progress and can cancel the import. (NonNull)
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     * @throws java.util.concurrent.CancellationException If the monitor has cancelled the import.
+     * @see CsvNetworkImporter
+     */
+    ImportStatisticsDTO importCsv(Reader reader, ImportMonitor monitor) throws IOException;
+
+    /**
+     * Synchronises the network with a CSV file with <tt>Station,Lines,Zone</tt> columns by applying only
+     * the differences: the stations are identified by their names and only the new, changed and
+     * missing stations are written.
+     *
+     * @param reader The CSV content reader. (NonNull)
+     * @param monitor The monitor which is notified about the written changes and can cancel the import. (Nullable)
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     * @throws java.util.concurrent.CancellationException If the monitor has cancelled the import.
+     * @see DeltaNetworkImporter
+     */
+    DeltaImportStatisticsDTO importCsvDelta(Reader reader, ImportMonitor monitor) throws IOException;
+
+    /**
+     * Imports the network from a CSV file with <tt>Station,Lines,Zone</tt> columns using a
+     * reader thread, <tt>parserThreads</tt> parser threads and the calling thread as the writer,
+     * and reports the progress to the monitor.
+     * The rows are committed in chunks, so the memory usage does not depend on the size of the file.
+     *
+     * @param reader The CSV content reader. (NonNull)
+     * @param parserThreads The number of the parser threads. (Positive)
+     * @param monitor The monitor which is notified about the progress and can cancel the import. (NonNull)
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     * @throws java.util.concurrent.CancellationException If the monitor has cancelled the import.
+     * @see PipelinedCsvNetworkImporter
+     */
+    ImportStatisticsDTO importCsv(Reader reader, int parserThreads, ImportMonitor monitor) throws IOException;
+
+    /**
+     * Imports the network from a CSV file with <tt>Station,Lines,Zone</tt> columns by memory mapping
+     * the file, so the records are parsed without copying them into strings, and reports the
+     * progress to the monitor.
+     * The rows are committed in chunks, so the memory usage does not depend on the size of the file.
+     *
+     * @param csvFile The UTF-8 encoded CSV file, smaller than 2GB. (NonNull)
+     * @param monitor The monitor which is notified about the progress and can cancel the import. (NonNull)
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     * @throws java.util.concurrent.CancellationException If the monitor has cancelled the import.
+     * @see MappedCsvNetworkImporter
+     */
+    ImportStatisticsDTO importCsv(File csvFile, ImportMonitor monitor) throws IOException;
+
+    /**
+     * Loads the network from a CSV file with <tt>Station,Lines,Zone</tt> columns by batched JDBC inserts
+     * which bypass the persistence context, the entity events and the second-level cache.
+     * The whole file is loaded in one transaction. It is intended for the initial population of the
+     * database, the network must not be modified by other means during the load.
+     * The data version is incremented and the station change listeners are notified after the load.
+     * A cancelled load is rolled back.
+     *
+     * @param reader The CSV content reader. (NonNull)
+     * @param monitor The monitor which is notified about the loaded rows and can cancel the load. (Nullable)
+     * @return The statistics of the load. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     * @throws IllegalStateException If the network tables are not empty.
+     * @throws java.util.concurrent.CancellationException If the monitor has cancelled the load.
+     * @see NativeNetworkLoader
+     */
+    ImportStatisticsDTO loadCsvNative(Reader reader, ImportMonitor monitor) throws IOException;
+
+}
@@ -31,7 +31,10 @@
 package org.moresbycoffee.jettyspring.fourth.dal;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDTO;
 import org.moresbycoffee.jettyspring.fourth.domain.Station;
 
 
@@ -44,8 +47,80 @@ import org.moresbycoffee.jettyspring.fourth.domain.Station;
 public interface IStationDao {
 
     /**
+     * The result of the query is cached in the query cache.
+     * Only the stations are loaded, their zones and lines are not initialized.
+     *
      * @return The list of the stations from the persistence context. (NonNull)
      */
     Collection<Station> getAll();
 
+    /**
+     * Retrieves the stations directly as {@link StationDTO}s using a constructor projection.
+     * The stations are not loaded into the persistence context, therefore neither the
+     * dirty-check snapshots nor the eager associations (e.g. zone) are created.
+     *
+     * @return The list of the stations ordered by their identifiers. (NonNull)
+     */
+    List<StationDTO> getAllDtos();
+
+    /**
+     * Iterates over all the stations as {@link StationDTO}s using a constructor
+     * projection and a forward only database cursor.
+     *
+     * @param handler The handler which processes the station DTOs one by one. (NonNull)
+     */
+    void scrollAllDtos(ResultHandler<StationDTO> handler);
+
+    /**
+     * Retrieves a page of the stations as {@link StationDTO}s using keyset (seek) pagination.
+     * The page starts right after the given identifier, so the cost of a page does not depend
+     * on how deep the page is.
+     *
+     * @param afterId The identifier after which the page starts. <tt>0</tt> for the first page.
+     * @param limit The maximum number of the stations on the page.
+     * @return The stations of the page ordered by their identifiers. (NonNull)
+     */
+    List<StationDTO> getDtoPage(long afterId, int limit);
+
+    /**
+     * Loads the station together with its zone and lines using the
+     * {@link Station#FETCH_PROFILE_DETAIL} fetch profile, so at most one statement is
+     * executed (none if everything is in the second-level cache).
+     *
+     * @param id The identifier of the station.
+     * @return The station with initialized zone and lines or <tt>null</tt> if there is no such station. (Nullable)
+     */
+    Station getDetail(long id);
+
+    /**
+     * Loads all the stations together with their zones and lines by one join fetch
+     * statement, independently of the number of the stations.
+     *
+     * @return The stations with initialized zone and lines ordered by their identifiers. (NonNull)
+     */
+    List<Station> getAllDetails();
+
+    /**
+     * Counts the stations of the zones by a grouped query, the stations are not loaded.
+     *
+     * @return The number of the stations by the zone numbers in ascending order of the zone numbers,
+     *         including the zones without stations. (NonNull)
+     */
+    Map<Integer, Long> countStationsPerZone();
+
+    /**
+     * Counts the stations of the lines by a grouped query, neither the stations nor the lines are loaded.
+     *
+     * @return The number of the stations by the line names in alphabetical order.
+     *         The lines without stations are not included. (NonNull)
+     */
+    Map<String, Long> countStationsPerLine();
+
+    /**
+     * Counts the interchange stations (the stations which are on more than one line) by one query.
+     *
+     * @return The number of the interchange stations.
+     */
+    long countInterchangeStations();
+
 }
@@ -0,0 +1,270 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.apache.log4j.Logger;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+import org.moresbycoffee.jettyspring.util.csv.MappedCsvReader;
+
+
+/**
+ * Imports the railway network from the same CSV format as the {@link CsvNetworkImporter}
+ * using a {@link MappedCsvReader}.<br>
+ * The records are not copied into strings: the zone numbers are parsed directly from the
+ * mapped bytes and the line names are looked up by their byte slices, so a line name is
+ * decoded only once, when it first occurs. Only the station names are decoded for every row,
+ * because they are persisted.<br>
+ * The rows are written in chunked transactions by a {@link NetworkRowWriter}.<br>
+ * The importer is not thread safe.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class MappedCsvNetworkImporter {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(MappedCsvNetworkImporter.class);
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final int                  chunkSize;
+
+    /** The identifiers of the already persisted zones by their numbers. */
+    private final Map<Integer, Long> zoneIds = new HashMap<Integer, Long>();
+    /** The identifiers of the already persisted lines by their names. */
+    private final Map<String, Long>  lineIds = new HashMap<String, Long>();
+
+    /**
+     * @param entityManagerFactory The factory of the resource local entity managers. (NonNull)
+     */
+    public MappedCsvNetworkImporter(final EntityManagerFactory entityManagerFactory) {
+        this(entityManagerFactory, CsvNetworkImporter.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param entityManagerFactory The factory of the resource local entity managers. (NonNull)
+     * @param chunkSize The number of the rows imported in one transaction.
+     *                  It should be a multiple of the <tt>hibernate.jdbc.batch_size</tt>. (Positive)
+     */
+    public MappedCsvNetworkImporter(final EntityManagerFactory entityManagerFactory, final int chunkSize) {
+        super();
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size has to be positive: " + chunkSize);
+        }
+        this.entityManagerFactory = entityManagerFactory;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports the content of the CSV file. The zones and lines stored in the database are reused.
+     *
+     * @param csvFile The CSV file. (NonNull)
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     */
+    public ImportStatisticsDTO importCsv(final File csvFile) throws IOException {
+        return importCsv(csvFile, null);
+    }
+
+    /**
+     * Imports the content of the CSV file. The zones and lines stored in the database are reused.
+     *
+     * @param csvFile The CSV file. (NonNull)
+     * @param monitor The monitor which is notified about the progress and can cancel the import. (Nullable)
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     * @throws java.util.concurrent.CancellationException If the monitor has cancelled the import.
+     */
+    public ImportStatisticsDTO importCsv(final File csvFile, final ImportMonitor monitor) throws IOException {
+        final long start = System.currentTimeMillis();
+
+        final MappedCsvReader csv = new MappedCsvReader(csvFile);
+        final NetworkRowWriter writer;
+        try {
+            if (!csv.nextRecord()) {
+                throw new IOException("There is not enough data in the csv file");
+            }
+
+            writer = new NetworkRowWriter(entityManagerFactory, chunkSize, zoneIds, lineIds, monitor);
+            try {
+                final LineNameTable lineNameTable = new LineNameTable(csv);
+                int[] valueStarts = new int[8];
+                int[] valueEnds = new int[8];
+                String[] lineNames = new String[8];
+
+                while (csv.nextRecord()) {
+                    if (csv.getFieldCount() == 1 && csv.getFieldStart(0) == csv.getFieldEnd(0)) {
+                        /* Empty line. */
+                        continue;
+                    }
+                    if (csv.getFieldCount() < 3) {
+                        throw new IOException("Missing columns in line " + csv.getRecordNumber());
+                    }
+                    final int zoneNumber;
+                    try {
+                        zoneNumber = csv.getInt(2);
+                    } catch (final NumberFormatException e) {
+                        throw new IOException("Invalid zone number in line " + csv.getRecordNumber() + ": " + csv.getString(2), e);
+                    }
+
+                    int valueCount = csv.splitField(1, ',', valueStarts, valueEnds);
+                    if (valueCount > valueStarts.length) {
+                        valueStarts = new int[valueCount];
+                        valueEnds = new int[valueCount];
+                        lineNames = new String[valueCount];
+                        valueCount = csv.splitField(1, ',', valueStarts, valueEnds);
+                    }
+                    int lineCount = 0;
+                    for (int i = 0; i < valueCount; i++) {
+                        final String lineName = lineNameTable.get(valueStarts[i], valueEnds[i], csv.isQuoted(1));
+                        if (!contains(lineNames, lineCount, lineName)) {
+                            lineNames[lineCount++] = lineName;
+                        }
+                    }
+
+                    writer.write(csv.getTrimmedString(0), Integer.valueOf(zoneNumber), lineNames, lineCount);
+                    if (monitor != null) {
+                        monitor.bytesRead(csv.getPosition());
+                    }
+                }
+                writer.finish();
+            } finally {
+                writer.close();
+            }
+        } finally {
+            csv.close();
+        }
+
+        final ImportStatisticsDTO statistics = new ImportStatisticsDTO(writer.getRows(), writer.getCreatedZones(), writer.getCreatedLines(),
+                                                                       System.currentTimeMillis() - start);
+        LOG.info("Memory mapped network import has finished: " + statistics);
+        return statistics;
+    }
+
+    /**
+     * @param names The canonical names. (NonNull)
+     * @param count The number of the used elements of the names.
+     * @param name The canonical name to look for. (NonNull)
+     * @return <tt>true</tt> if the name is among the first <tt>count</tt> names.
+     */
+    private static boolean contains(final String[] names, final int count, final String name) {
+        for (int i = 0; i < count; i++) {
+            if (names[i] == name) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Open addressing hash table of the line names keyed by their first occurrence in the
+     * mapped file, so neither the lookup nor the stored keys need copies of the bytes.
+     * The same name is always returned as the same (canonical) {@link String} instance.
+     */
+    private static final class LineNameTable {
+
+        private final MappedCsvReader csv;
+
+        /** The start positions of the first occurrences, <tt>-1</tt> for empty slots. */
+        private int[]    starts = new int[64];
+        private int[]    ends   = new int[64];
+        private String[] names  = new String[64];
+        private int      size;
+
+        private LineNameTable(final MappedCsvReader csv) {
+            this.csv = csv;
+            Arrays.fill(starts, -1);
+        }
+
+        /**
+         * @param start The start of the name in the file.
+         * @param end The end of the name in the file.
+         * @param unescapeQuotes <tt>true</tt> if the name is in a quoted field.
+         * @return The canonical name. (NonNull)
+         */
+        private String get(final int start, final int end, final boolean unescapeQuotes) {
+            int slot = hash(start, end) & (starts.length - 1);
+            while (starts[slot] >= 0) {
+                if (csv.sliceEquals(starts[slot], ends[slot], start, end)) {
+                    return names[slot];
+                }
+                slot = (slot + 1) & (starts.length - 1);
+            }
+
+            final String name = csv.decode(start, end, unescapeQuotes);
+            starts[slot] = start;
+            ends[slot] = end;
+            names[slot] = name;
+            if (++size * 2 > starts.length) {
+                rehash();
+            }
+            return name;
+        }
+
+        private int hash(final int start, final int end) {
+            int hash = 0;
+            for (int pos = start; pos < end; pos++) {
+                hash = 31 * hash + csv.byteAt(pos);
+            }
+            return hash ^ (hash >>> 16);
+        }
+
+        private void rehash() {
+            final int[] oldStarts = starts;
+            final int[] oldEnds = ends;
+            final String[] oldNames = names;
+            starts = new int[oldStarts.length * 2];
+            ends = new int[oldStarts.length * 2];
+            names = new String[oldStarts.length * 2];
+            Arrays.fill(starts, -1);
+            for (int i = 0; i < oldStarts.length; i++) {
+                if (oldStarts[i] >= 0) {
+                    int slot = hash(oldStarts[i], oldEnds[i]) & (starts.length - 1);
+                    while (starts[slot] >= 0) {
+                        slot = (slot + 1) & (starts.length - 1);
+                    }
+                    starts[slot] = oldStarts[i];
+                    ends[slot] = oldEnds[i];
+                    names[slot] = oldNames[i];
+                }
+            }
+        }
+
+    }
+
+}
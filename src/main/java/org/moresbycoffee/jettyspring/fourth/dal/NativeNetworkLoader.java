@@ -0,0 +1,392 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.SequenceGenerator;
+
+import org.apache.log4j.Logger;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.jdbc.Work;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+import org.moresbycoffee.jettyspring.fourth.domain.Line;
+import org.moresbycoffee.jettyspring.fourth.domain.Station;
+import org.moresbycoffee.jettyspring.fourth.domain.Zone;
+
+import au.com.bytecode.opencsv.CSVReader;
+
+
+/**
+ * Loads the railway network from the same CSV format as the {@link CsvNetworkImporter} directly
+ * into the H2 tables by batched JDBC inserts, bypassing the persistence context, the entity events
+ * and the second-level cache. It is intended for the initial population of a large database.<br>
+ * The identifiers are assigned in memory from a block reserved from the sequences of the entities,
+ * exactly as Hibernate would assign them (<tt>sequence value * allocationSize</tt>), and the sequences
+ * are moved after the loaded block afterwards. So a load into an empty database produces the same
+ * rows as the {@link CsvNetworkImporter}.<br>
+ * The whole file is loaded in one transaction, so a failed load leaves nothing behind. The second-level
+ * cache and the query cache are evicted after the commit.<br>
+ * The loader refuses to load into non-empty tables, because it does not know the stored zones and lines.<br>
+ * <strong>WARNING:</strong> The network must not be modified through JPA while the load is running,
+ * because the reserved identifier blocks are larger than one sequence step. As the entity events are
+ * bypassed, the caller is responsible for invalidating the data derived from the network.<br>
+ * The loader is not thread safe.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class NativeNetworkLoader {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(NativeNetworkLoader.class);
+
+    /** The default number of the rows sent to the database in one JDBC batch. */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final int                  batchSize;
+
+    /**
+     * @param entityManagerFactory The factory of the resource local entity managers of an H2 database. (NonNull)
+     */
+    public NativeNetworkLoader(final EntityManagerFactory entityManagerFactory) {
+        this(entityManagerFactory, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param entityManagerFactory The factory of the resource local entity managers of an H2 database. (NonNull)
+     * @param batchSize The number of the rows sent to the database in one JDBC batch. (Positive)
+     */
+    public NativeNetworkLoader(final EntityManagerFactory entityManagerFactory, final int batchSize) {
+        super();
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size has to be positive: " + batchSize);
+        }
+        this.entityManagerFactory = entityManagerFactory;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Loads the content of the CSV file.
+     *
+     * @param reader The CSV content reader. (NonNull)
+     * @return The statistics of the load. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     * @throws IllegalStateException If the network tables are not empty.
+     */
+    public ImportStatisticsDTO load(final Reader reader) throws IOException {
+        return load(reader, null);
+    }
+
+    /**
+     * Loads the content of the CSV file. The whole load is one transaction, so a cancelled
+     * load is rolled back and leaves nothing behind.
+     *
+     * @param reader The CSV content reader. (NonNull)
+     * @param monitor The monitor which is notified about the loaded rows and can cancel the load. (Nullable)
+     * @return The statistics of the load. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     * @throws IllegalStateException If the network tables are not empty.
+     * @throws java.util.concurrent.CancellationException If the monitor has cancelled the load.
+     */
+    public ImportStatisticsDTO load(final Reader reader, final ImportMonitor monitor) throws IOException {
+        final long start = System.currentTimeMillis();
+
+        final CSVReader csvReader = new CSVReader(reader);
+        if (csvReader.readNext() == null) {
+            throw new IOException("There is not enough data in the csv file");
+        }
+
+        final LoadWork work = new LoadWork(csvReader, monitor);
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            final EntityTransaction transaction = entityManager.getTransaction();
+            transaction.begin();
+            try {
+                entityManager.unwrap(Session.class).doWork(work);
+                transaction.commit();
+            } finally {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+            }
+        } catch (final LoadException e) {
+            throw e.getCause();
+        } finally {
+            entityManager.close();
+        }
+        evictCaches();
+
+        final ImportStatisticsDTO statistics = new ImportStatisticsDTO(work.rows, work.zoneIds.size(), work.lineIds.size(),
+                                                                       System.currentTimeMillis() - start);
+        LOG.info("Native network load has finished: " + statistics);
+        return statistics;
+    }
+
+    /**
+     * Evicts the entity, collection and query regions of the second-level cache,
+     * because they do not know about the inserted rows.
+     */
+    private void evictCaches() {
+        final Cache cache = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory().getCache();
+        cache.evictEntityRegions();
+        cache.evictCollectionRegions();
+        cache.evictQueryRegions();
+    }
+
+    /**
+     * Inserts the rows of the CSV file by the connection of the session.
+     */
+    private final class LoadWork implements Work {
+
+        private final CSVReader     csvReader;
+        private final ImportMonitor monitor;
+
+        /** The identifiers of the inserted zones by their numbers. */
+        private final Map<Integer, Long> zoneIds = new HashMap<Integer, Long>();
+        /** The identifiers of the inserted lines by their names. */
+        private final Map<String, Long>  lineIds = new HashMap<String, Long>();
+
+        private long rows;
+
+        private LoadWork(final CSVReader csvReader, final ImportMonitor monitor) {
+            this.csvReader = csvReader;
+            this.monitor = monitor;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void execute(final Connection connection) throws SQLException {
+            checkEmpty(connection, "Zone");
+            checkEmpty(connection, "Line");
+            checkEmpty(connection, "Station");
+
+            final IdBlock zoneIdBlock = IdBlock.reserve(connection, Zone.class);
+            final IdBlock lineIdBlock = IdBlock.reserve(connection, Line.class);
+            final IdBlock stationIdBlock = IdBlock.reserve(connection, Station.class);
+
+            final PreparedStatement insertZone = connection.prepareStatement("insert into Zone (id, number) values (?, ?)");
+            final PreparedStatement insertLine = connection.prepareStatement("insert into Line (id, name) values (?, ?)");
+            final PreparedStatement insertStation = connection.prepareStatement("insert into Station (id, name, zone_id, contentHash) values (?, ?, ?, ?)");
+            final PreparedStatement insertStationLine = connection.prepareStatement("insert into Station_Line (stations_id, lines_id) values (?, ?)");
+            try {
+                long lineNumber = 1;
+                String[] nextLine;
+                while ((nextLine = csvReader.readNext()) != null) {
+                    if (monitor != null && monitor.isCancelled()) {
+                        throw new CancellationException("The load has been cancelled after " + rows + " rows");
+                    }
+                    final NetworkRow row = NetworkRow.parse(nextLine, ++lineNumber);
+
+                    Long zoneId = zoneIds.get(row.zoneNumber);
+                    if (zoneId == null) {
+                        zoneId = Long.valueOf(zoneIdBlock.next());
+                        zoneIds.put(row.zoneNumber, zoneId);
+                        insertZone.setLong(1, zoneId.longValue());
+                        insertZone.setInt(2, row.zoneNumber.intValue());
+                        insertZone.addBatch();
+                    }
+
+                    final long stationId = stationIdBlock.next();
+                    insertStation.setLong(1, stationId);
+                    insertStation.setString(2, row.stationName);
+                    insertStation.setLong(3, zoneId.longValue());
+                    insertStation.setLong(4, row.contentHash());
+                    insertStation.addBatch();
+
+                    for (final String lineName : row.lineNames) {
+                        Long lineId = lineIds.get(lineName);
+                        if (lineId == null) {
+                            lineId = Long.valueOf(lineIdBlock.next());
+                            lineIds.put(lineName, lineId);
+                            insertLine.setLong(1, lineId.longValue());
+                            insertLine.setString(2, lineName);
+                            insertLine.addBatch();
+                        }
+                        insertStationLine.setLong(1, stationId);
+                        insertStationLine.setLong(2, lineId.longValue());
+                        insertStationLine.addBatch();
+                    }
+
+                    if (++rows % batchSize == 0) {
+                        /* The referred rows have to be inserted first. */
+                        insertZone.executeBatch();
+                        insertLine.executeBatch();
+                        insertStation.executeBatch();
+                        insertStationLine.executeBatch();
+                    }
+                    if (monitor != null) {
+                        monitor.rowsWritten(rows);
+                    }
+                }
+                insertZone.executeBatch();
+                insertLine.executeBatch();
+                insertStation.executeBatch();
+                insertStationLine.executeBatch();
+            } catch (final IOException e) {
+                throw new LoadException(e);
+            } finally {
+                close(insertZone, insertLine, insertStation, insertStationLine);
+            }
+
+            zoneIdBlock.release(connection);
+            lineIdBlock.release(connection);
+            stationIdBlock.release(connection);
+        }
+
+    }
+
+    /**
+     * @param connection The connection. (NonNull)
+     * @param table The name of the table. (NonNull)
+     * @throws SQLException If the table cannot be read.
+     * @throws IllegalStateException If the table is not empty.
+     */
+    private static void checkEmpty(final Connection connection, final String table) throws SQLException {
+        final Statement statement = connection.createStatement();
+        try {
+            final ResultSet result = statement.executeQuery("select count(*) from " + table);
+            result.next();
+            if (result.getLong(1) > 0) {
+                throw new IllegalStateException("The native load requires an empty database, but the " + table + " table has "
+                                                + result.getLong(1) + " rows");
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    private static void close(final Statement... statements) throws SQLException {
+        for (final Statement statement : statements) {
+            statement.close();
+        }
+    }
+
+    /**
+     * The identifiers reserved from the sequence of an entity.
+     */
+    private static final class IdBlock {
+
+        private final String sequenceName;
+        private final int    allocationSize;
+        private long         nextId;
+
+        private IdBlock(final String sequenceName, final int allocationSize, final long firstId) {
+            this.sequenceName = sequenceName;
+            this.allocationSize = allocationSize;
+            this.nextId = firstId;
+        }
+
+        /**
+         * Reserves the identifiers starting from the block belonging to the next value of the sequence of the entity.
+         * Hibernate assigns the identifiers <tt>value * allocationSize + lo</tt> from the value of the sequence
+         * (and skips the <tt>0</tt> identifier).
+         *
+         * @param connection The connection. (NonNull)
+         * @param entityClass The entity class with {@link SequenceGenerator} on its <tt>id</tt> field. (NonNull)
+         * @return The reserved block. (NonNull)
+         * @throws SQLException If the sequence cannot be read.
+         */
+        private static IdBlock reserve(final Connection connection, final Class<?> entityClass) throws SQLException {
+            final SequenceGenerator generator;
+            try {
+                generator = entityClass.getDeclaredField("id").getAnnotation(SequenceGenerator.class);
+            } catch (final NoSuchFieldException e) {
+                throw new IllegalArgumentException("The entity has no id field: " + entityClass, e);
+            }
+
+            final Statement statement = connection.createStatement();
+            try {
+                final ResultSet result = statement.executeQuery("select next value for " + generator.sequenceName());
+                result.next();
+                final long value = result.getLong(1);
+                return new IdBlock(generator.sequenceName(), generator.allocationSize(), Math.max(1, value * generator.allocationSize()));
+            } finally {
+                statement.close();
+            }
+        }
+
+        private long next() {
+            return nextId++;
+        }
+
+        /**
+         * Restarts the sequence after the used identifiers, so Hibernate continues from the next block.
+         *
+         * @param connection The connection. (NonNull)
+         * @throws SQLException If the sequence cannot be altered.
+         */
+        private void release(final Connection connection) throws SQLException {
+            final Statement statement = connection.createStatement();
+            try {
+                statement.execute("alter sequence " + sequenceName + " restart with " + ((nextId - 1) / allocationSize + 1));
+            } finally {
+                statement.close();
+            }
+        }
+
+    }
+
+    /**
+     * Carries the {@link IOException} of the CSV reading through the {@link Work}.
+     */
+    private static final class LoadException extends RuntimeException {
+
+        /** @see java.io.Serializable */
+        private static final long serialVersionUID = 1L;
+
+        private LoadException(final IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+
+    }
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.moresbycoffee.jettyspring.fourth.domain.Line;
+import org.moresbycoffee.jettyspring.fourth.domain.Station;
+import org.moresbycoffee.jettyspring.fourth.domain.Zone;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Implementation of {@link INetworkDataVersion} which registers itself as a Hibernate
+ * event listener and increments the version on every insert, update and delete of the
+ * {@link Station}, {@link Line} and {@link Zone} entities and their collections.<br>
+ * The version is incremented twice: when the change is flushed and when the transaction
+ * is successfully committed. The second increment guarantees that a response which was
+ * created between the flush and the commit (so it still contains the old data) will
+ * not be considered valid after the commit.<br>
+ * The version starts from the current time, so the versions of different application
+ * runs do not collide.<br>
+ * <strong>WARNING:</strong> Bulk (HQL or native SQL) updates bypass the Hibernate events,
+ * and so this version.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@Component
+public class NetworkDataVersion implements INetworkDataVersion,
+                                           PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+                                           PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener {
+
+    /** @see java.io.Serializable */
+    private static final long serialVersionUID = 1L;
+
+    /** The actual version. */
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * The sessions which have already registered the {@link #incrementAfterCommit} process
+     * in their actual transaction. (Weak references so they are never leaked.)
+     */
+    private final Set<SessionImplementor> pendingSessions = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<SessionImplementor, Boolean>()));
+
+    /** Increments the version after the transaction is committed. */
+    private final AfterTransactionCompletionProcess incrementAfterCommit = new AfterTransactionCompletionProcess() {
+
+        @Override
+        public void doAfterTransactionCompletion(final boolean success, final SessionImplementor session) {
+            pendingSessions.remove(session);
+            if (success) {
+                increment();
+            }
+        }
+
+    };
+
+    /**
+     * Registers the version as event listener of the entityManagerFactory.
+     *
+     * @param entityManagerFactory The Hibernate based entity manager factory. (NonNull)
+     */
+    @Autowired
+    public NetworkDataVersion(final EntityManagerFactory entityManagerFactory) {
+        super();
+        final SessionFactoryImplementor sessionFactory = (SessionFactoryImplementor) ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory();
+        final EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+
+        registry.appendListeners(EventType.POST_INSERT,              this);
+        registry.appendListeners(EventType.POST_UPDATE,              this);
+        registry.appendListeners(EventType.POST_DELETE,              this);
+        registry.appendListeners(EventType.POST_COLLECTION_RECREATE, this);
+        registry.appendListeners(EventType.POST_COLLECTION_UPDATE,   this);
+        registry.appendListeners(EventType.POST_COLLECTION_REMOVE,   this);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Increments the version.
+     */
+    void increment() {
+        version.incrementAndGet();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onPostInsert(final PostInsertEvent event) {
+        entityChanged(event.getEntity(), event.getSession());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onPostUpdate(final PostUpdateEvent event) {
+        entityChanged(event.getEntity(), event.getSession());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onPostDelete(final PostDeleteEvent event) {
+        entityChanged(event.getEntity(), event.getSession());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onPostRecreateCollection(final PostCollectionRecreateEvent event) {
+        collectionChanged(event);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onPostUpdateCollection(final PostCollectionUpdateEvent event) {
+        collectionChanged(event);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onPostRemoveCollection(final PostCollectionRemoveEvent event) {
+        collectionChanged(event);
+    }
+
+    /**
+     * @param event The collection event. (NonNull)
+     */
+    private void collectionChanged(final AbstractCollectionEvent event) {
+        entityChanged(event.getAffectedOwnerOrNull(), event.getSession());
+    }
+
+    /**
+     * Increments the version now and after the commit if the entity is part of the network data.
+     *
+     * @param entity The changed entity. (Nullable)
+     * @param session The session in which the entity has been changed. (NonNull)
+     */
+    private void entityChanged(final Object entity, final EventSource session) {
+        if (entity instanceof Station || entity instanceof Line || entity instanceof Zone) {
+            increment();
+            if (pendingSessions.add(session)) {
+                session.getActionQueue().registerProcess(incrementAfterCommit);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+
+/**
+ * Implementation of {@link INetworkGraphDao} using scalar projection queries.
+ * @see INetworkGraphDao
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@Component
+@Transactional
+public class NetworkGraphDao implements INetworkGraphDao {
+
+    /**
+     * EntityManager through that the persistence context can be manipulated.
+     */
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /** {@inheritDoc} */
+    @Override
+    @Transactional(readOnly = true)
+    public void loadNetwork(final NetworkHandler handler) {
+        final Session session = entityManager.unwrap(Session.class);
+
+        ScrollableResults results = scroll(session, "select s.id, s.name, z.number from Station s left join s.zone z");
+        try {
+            while (results.next()) {
+                handler.station(results.getLong(0).longValue(), results.getString(1), results.getInteger(2));
+            }
+        } finally {
+            results.close();
+        }
+
+        results = scroll(session, "select l.id, l.name from Line l");
+        try {
+            while (results.next()) {
+                handler.line(results.getLong(0).longValue(), results.getString(1));
+            }
+        } finally {
+            results.close();
+        }
+
+        results = scroll(session, "select s.id, l.id from Station s join s.lines l");
+        try {
+            while (results.next()) {
+                handler.membership(results.getLong(0).longValue(), results.getLong(1).longValue());
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    /**
+     * @param session The Hibernate session. (NonNull)
+     * @param hql The scalar projection query. (NonNull)
+     * @return The forward only cursor of the query. (NonNull)
+     */
+    private static ScrollableResults scroll(final Session session, final String hql) {
+        return session.createQuery(hql)
+                      .setFetchSize(StationDao.FETCH_SIZE)
+                      .setCacheMode(CacheMode.IGNORE)
+                      .scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.moresbycoffee.jettyspring.fourth.beans.dto.DeltaImportStatisticsDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Implementation of {@link INetworkImportDao} using the {@link CsvNetworkImporter}.
+ * The importer manages its own transactions, so this DAO is not transactional.
+ * @see INetworkImportDao
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@Component
+public class NetworkImportDao implements INetworkImportDao {
+
+    private final EntityManagerFactory  entityManagerFactory;
+    private final NetworkDataVersion    networkDataVersion;
+    private final IStationChangeTracker stationChangeTracker;
+
+    /**
+     * @param entityManagerFactory The factory of the entity managers used by the imports.
+     * @param networkDataVersion The version of the network data, it is incremented by the native loads
+     *                           as they bypass the entity events.
+     * @param stationChangeTracker The tracker whose listeners are notified about the native loads
+     *                             as they bypass the entity events.
+     */
+    @Autowired
+    public NetworkImportDao(final EntityManagerFactory entityManagerFactory, final NetworkDataVersion networkDataVersion,
+                            final IStationChangeTracker stationChangeTracker) {
+        super();
+        this.entityManagerFactory = entityManagerFactory;
+        this.networkDataVersion = networkDataVersion;
+        this.stationChangeTracker = stationChangeTracker;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ImportStatisticsDTO importCsv(final Reader reader) throws IOException {
+        return new CsvNetworkImporter(entityManagerFactory).importCsv(reader);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ImportStatisticsDTO importCsv(final Reader reader, final ImportMonitor monitor) throws IOException {
+        return new CsvNetworkImporter(entityManagerFactory).importCsv(reader, monitor);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public DeltaImportStatisticsDTO importCsvDelta(final Reader reader, final ImportMonitor monitor) throws IOException {
+        return new DeltaNetworkImporter(entityManagerFactory).importCsv(reader, monitor);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ImportStatisticsDTO importCsv(final Reader reader, final int parserThreads, final ImportMonitor monitor) throws IOException {
+        return new PipelinedCsvNetworkImporter(entityManagerFactory, parserThreads).importCsv(reader, monitor);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ImportStatisticsDTO importCsv(final File csvFile, final ImportMonitor monitor) throws IOException {
+        return new MappedCsvNetworkImporter(entityManagerFactory).importCsv(csvFile, monitor);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ImportStatisticsDTO loadCsvNative(final Reader reader, final ImportMonitor monitor) throws IOException {
+        final ImportStatisticsDTO statistics = new NativeNetworkLoader(entityManagerFactory).load(reader, monitor);
+        /* The native load bypasses the entity events which maintain the version and notify the station listeners. */
+        networkDataVersion.increment();
+        stationChangeTracker.stationsReloaded();
+        return statistics;
+    }
+
+}
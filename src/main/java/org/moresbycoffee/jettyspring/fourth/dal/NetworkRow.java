@@ -0,0 +1,147 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.moresbycoffee.jettyspring.util.converter.ConverterException;
+import org.moresbycoffee.jettyspring.util.converter.Converters;
+import org.moresbycoffee.jettyspring.util.converter.StringPool;
+
+
+/**
+ * One parsed row of the network CSV file: a station with its zone and lines.
+ * The values are trimmed and the line names are distinct.<br>
+ * The line names repeat on many rows, so they are canonicalised by a shared {@link StringPool}:
+ * the rows waiting in the queues of the importers share the name instances. The zone numbers need
+ * no pool, they are parsed into primitives by {@link Converters#PARSE_INT} and
+ * {@link Integer#valueOf(int)} already returns cached instances for the small numbers.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+final class NetworkRow {
+
+    /** The offset basis of the 64 bit FNV-1a hash. */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    /** The prime of the 64 bit FNV-1a hash. */
+    private static final long FNV_PRIME        = 0x100000001b3L;
+
+    /** The pool of the line names shared by all the imports. */
+    private static final StringPool LINE_NAMES = new StringPool();
+
+    /** The name of the station. (NonNull) */
+    final String   stationName;
+    /** The number of the zone of the station. (NonNull) */
+    final Integer  zoneNumber;
+    /** The distinct names of the lines of the station in their original order. (NonNull) */
+    final String[] lineNames;
+
+    private NetworkRow(final String stationName, final Integer zoneNumber, final String[] lineNames) {
+        this.stationName = stationName;
+        this.zoneNumber = zoneNumber;
+        this.lineNames = lineNames;
+    }
+
+    /**
+     * Parses the <tt>Station,Lines,Zone</tt> fields of a CSV row. The lines are separated by commas.
+     *
+     * @param fields The fields of the CSV row. (NonNull)
+     * @param lineNumber The number of the row in the file for the error messages.
+     * @return The parsed row. (NonNull)
+     * @throws IOException If the row is invalid.
+     */
+    static NetworkRow parse(final String[] fields, final long lineNumber) throws IOException {
+        if (fields.length < 3) {
+            throw new IOException("Missing columns in line " + lineNumber);
+        }
+        final String stationName = Converters.TRIM.convert(fields[0]);
+        final Integer zoneNumber;
+        try {
+            zoneNumber = Integer.valueOf(Converters.PARSE_INT.convert(fields[2]));
+        } catch (final ConverterException e) {
+            throw new IOException("Invalid zone number in line " + lineNumber + ": " + fields[2], e);
+        }
+
+        final Set<String> lineNames = new LinkedHashSet<String>();
+        for (final String field : fields[1].split(",")) {
+            final String lineName = Converters.TRIM.convert(field);
+            if (lineName.length() > 0) {
+                lineNames.add(LINE_NAMES.convert(lineName));
+            }
+        }
+        return new NetworkRow(stationName, zoneNumber, lineNames.toArray(new String[lineNames.size()]));
+    }
+
+    /**
+     * @return The hash of the normalised content (zone and the set of the lines) of the row.
+     * @see #contentHash(Integer, String[], int)
+     */
+    long contentHash() {
+        return contentHash(zoneNumber, lineNames, lineNames.length);
+    }
+
+    /**
+     * Computes the 64 bit FNV-1a hash of the normalised content of a station: the zone number and the
+     * line names in alphabetical order. The order of the lines in the file does not change the hash.
+     *
+     * @param zoneNumber The number of the zone of the station. (NonNull)
+     * @param lineNames The distinct names of the lines of the station. (NonNull)
+     * @param lineCount The number of the used elements of the <tt>lineNames</tt>.
+     * @return The hash of the content.
+     */
+    static long contentHash(final Integer zoneNumber, final String[] lineNames, final int lineCount) {
+        final String[] sortedLineNames = Arrays.copyOf(lineNames, lineCount);
+        Arrays.sort(sortedLineNames);
+
+        long hash = FNV_OFFSET_BASIS;
+        hash = hashInt(hash, zoneNumber.intValue());
+        for (final String lineName : sortedLineNames) {
+            hash = hashInt(hash, lineName.length());
+            for (int i = 0; i < lineName.length(); i++) {
+                hash = (hash ^ lineName.charAt(i)) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    private static long hashInt(final long hash, final int value) {
+        long result = hash;
+        for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+            result = (result ^ ((value >>> shift) & 0xff)) * FNV_PRIME;
+        }
+        return result;
+    }
+
+}
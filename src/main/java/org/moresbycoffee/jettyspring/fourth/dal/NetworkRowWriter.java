@@ -0,0 +1,389 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+
+import org.hibernate.Cache;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.moresbycoffee.jettyspring.fourth.domain.Line;
+import org.moresbycoffee.jettyspring.fourth.domain.Station;
+import org.moresbycoffee.jettyspring.fourth.domain.Zone;
+
+
+/**
+ * Persists the parsed {@link NetworkRow}s and applies the station updates and deletes of the
+ * delta imports in chunks. Every chunk is flushed and committed
+ * in its own transaction and then the persistence context is cleared, so neither the
+ * persistence context nor the pending actions of the transaction grow with the number of
+ * the rows. The zones and the lines are created once and afterwards they are referred by
+ * their identifiers: the identifier maps are completed with the zones and lines stored in the
+ * database when the writer is created, and the zones and lines created by a chunk which is not
+ * committed are removed from the maps when the writer is closed. The second-level cache is not
+ * populated by the written entities. Hibernate does not maintain the inverse sides of the relations
+ * ({@link Line#getStations()} and {@link Zone#getStations()}), so the cached collections of the lines
+ * and the zones the stations of a chunk have been added to or removed from are evicted after the
+ * chunk is committed.<br>
+ * <strong>WARNING:</strong> If an import fails, only the actual chunk is rolled back, the already
+ * committed chunks remain in the database.<br>
+ * The writer has to be {@link #close() closed}. It is not thread safe.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+final class NetworkRowWriter {
+
+    /** The role of the inverse collection of the stations of a line. */
+    private static final String LINE_STATIONS = Line.class.getName() + ".stations";
+    /** The role of the inverse collection of the stations of a zone. */
+    private static final String ZONE_STATIONS = Zone.class.getName() + ".stations";
+
+    private final EntityManager     entityManager;
+    private final EntityTransaction transaction;
+    private final int               chunkSize;
+    private final ImportMonitor     monitor;
+
+    /** The identifiers of the already persisted zones by their numbers. */
+    private final Map<Integer, Long> zoneIds;
+    /** The identifiers of the already persisted lines by their names. */
+    private final Map<String, Long>  lineIds;
+
+    /** The numbers of the zones created in the actual chunk. (NonNull) */
+    private final List<Integer> chunkZones = new ArrayList<Integer>();
+    /** The names of the lines created in the actual chunk. (NonNull) */
+    private final List<String>  chunkLines = new ArrayList<String>();
+
+    /** The identifiers of the zones the stations of the actual chunk have been added to or removed from. (NonNull) */
+    private final Set<Long> changedZoneIds = new HashSet<Long>();
+    /** The identifiers of the lines the stations of the actual chunk have been added to or removed from. (NonNull) */
+    private final Set<Long> changedLineIds = new HashSet<Long>();
+
+    private long rows;
+    private long updatedRows;
+    private long deletedRows;
+    private long createdZones;
+    private long createdLines;
+
+    /**
+     * Creates a new entity manager, begins the first transaction and loads the stored zones and lines into the maps.
+     *
+     * @param entityManagerFactory The factory of the resource local entity managers. (NonNull)
+     * @param chunkSize The number of the rows committed in one transaction. (Positive)
+     * @param zoneIds The identifiers of the already persisted zones by their numbers. It is updated by the writer. (NonNull)
+     * @param lineIds The identifiers of the already persisted lines by their names. It is updated by the writer. (NonNull)
+     * @param monitor The monitor which is notified about the written rows. (Nullable)
+     */
+    NetworkRowWriter(final EntityManagerFactory entityManagerFactory, final int chunkSize,
+                     final Map<Integer, Long> zoneIds, final Map<String, Long> lineIds, final ImportMonitor monitor) {
+        this.entityManager = entityManagerFactory.createEntityManager();
+        this.entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+        this.transaction = entityManager.getTransaction();
+        this.chunkSize = chunkSize;
+        this.zoneIds = zoneIds;
+        this.lineIds = lineIds;
+        this.monitor = monitor;
+        transaction.begin();
+        loadStoredZonesAndLines();
+    }
+
+    /**
+     * Puts the identifiers of the zones and the lines stored in the database into the maps by projections,
+     * so an import into a non-empty database does not create them again.
+     */
+    private void loadStoredZonesAndLines() {
+        for (final Object[] zone : entityManager.createQuery("select z.number, z.id from Zone z", Object[].class).getResultList()) {
+            zoneIds.put((Integer) zone[0], (Long) zone[1]);
+        }
+        for (final Object[] line : entityManager.createQuery("select l.name, l.id from Line l", Object[].class).getResultList()) {
+            lineIds.put((String) line[0], (Long) line[1]);
+        }
+    }
+
+    /**
+     * Persists the row and commits the chunk if it is full.
+     *
+     * @param row The parsed row. (NonNull)
+     * @throws CancellationException If the monitor has cancelled the import.
+     */
+    void write(final NetworkRow row) {
+        write(row.stationName, row.zoneNumber, row.lineNames, row.lineNames.length);
+    }
+
+    /**
+     * Persists the row and commits the chunk if it is full.
+     *
+     * @param stationName The name of the station. (NonNull)
+     * @param zoneNumber The number of the zone of the station. (NonNull)
+     * @param lineNames The distinct names of the lines of the station. (NonNull)
+     * @param lineCount The number of the used elements of the <tt>lineNames</tt>.
+     * @throws CancellationException If the monitor has cancelled the import.
+     */
+    void write(final String stationName, final Integer zoneNumber, final String[] lineNames, final int lineCount) {
+        checkCancelled();
+        final Station station = new Station(stationName, findOrCreateZone(zoneNumber));
+        changedZoneIds.add(zoneIds.get(zoneNumber));
+        for (int i = 0; i < lineCount; i++) {
+            station.getLines().add(findOrCreateLine(lineNames[i]));
+            changedLineIds.add(lineIds.get(lineNames[i]));
+        }
+        station.setContentHash(Long.valueOf(NetworkRow.contentHash(zoneNumber, lineNames, lineCount)));
+        entityManager.persist(station);
+
+        rows++;
+        operationDone();
+    }
+
+    /**
+     * Updates the zone and the lines of an existing station to the content of the row and commits the
+     * chunk if it is full. Only the lines which are not in the row are removed and only the missing ones
+     * are added, so the untouched memberships are not rewritten.
+     *
+     * @param stationId The identifier of the station. (NonNull)
+     * @param row The parsed row. (NonNull)
+     * @throws CancellationException If the monitor has cancelled the import.
+     */
+    void update(final long stationId, final NetworkRow row) {
+        checkCancelled();
+        final Station station = entityManager.find(Station.class, Long.valueOf(stationId));
+
+        final Zone zone = findOrCreateZone(row.zoneNumber);
+        if (!zone.getId().equals(station.getZone().getId())) {
+            changedZoneIds.add(station.getZone().getId());
+            changedZoneIds.add(zone.getId());
+            station.setZone(zone);
+        }
+
+        final Set<String> lineNames = new HashSet<String>(Arrays.asList(row.lineNames));
+        for (final Iterator<Line> lines = station.getLines().iterator(); lines.hasNext();) {
+            /* What remains in the set after the loop is the set of the missing lines. */
+            final Line line = lines.next();
+            if (!lineNames.remove(line.getName())) {
+                changedLineIds.add(line.getId());
+                lines.remove();
+            }
+        }
+        for (final String lineName : row.lineNames) {
+            if (lineNames.contains(lineName)) {
+                station.getLines().add(findOrCreateLine(lineName));
+                changedLineIds.add(lineIds.get(lineName));
+            }
+        }
+        station.setContentHash(Long.valueOf(row.contentHash()));
+
+        updatedRows++;
+        operationDone();
+    }
+
+    /**
+     * Deletes the station and commits the chunk if it is full.
+     * The station is loaded with its lines, so the collections it is removed from are known.
+     *
+     * @param stationId The identifier of the station. (NonNull)
+     * @throws CancellationException If the monitor has cancelled the import.
+     */
+    void delete(final long stationId) {
+        checkCancelled();
+        final Station station = entityManager.find(Station.class, Long.valueOf(stationId));
+        changedZoneIds.add(station.getZone().getId());
+        for (final Line line : station.getLines()) {
+            changedLineIds.add(line.getId());
+        }
+        entityManager.remove(station);
+
+        deletedRows++;
+        operationDone();
+    }
+
+    /**
+     * @throws CancellationException If the monitor has cancelled the import.
+     */
+    private void checkCancelled() {
+        if (monitor != null && monitor.isCancelled()) {
+            throw new CancellationException("The import has been cancelled after " + (rows + updatedRows + deletedRows) + " rows");
+        }
+    }
+
+    /**
+     * Commits the chunk if it is full and notifies the monitor.
+     */
+    private void operationDone() {
+        final long operations = rows + updatedRows + deletedRows;
+        if (operations % chunkSize == 0) {
+            commit();
+            transaction.begin();
+        }
+        if (monitor != null) {
+            monitor.rowsWritten(operations);
+        }
+    }
+
+    /**
+     * Commits the last chunk.
+     */
+    void finish() {
+        commit();
+    }
+
+    /**
+     * Commits the actual chunk, so its zones and lines are kept in the maps, evicts the changed inverse
+     * collections from the second-level cache and clears the persistence context.
+     */
+    private void commit() {
+        transaction.commit();
+        chunkZones.clear();
+        chunkLines.clear();
+        evictChangedCollections();
+        entityManager.clear();
+    }
+
+    /**
+     * Evicts the cached station collections of the changed zones and lines. It is done after the commit,
+     * so a concurrent reader cannot cache the collections again with the old content.
+     */
+    private void evictChangedCollections() {
+        final Cache cache = entityManager.unwrap(Session.class).getSessionFactory().getCache();
+        for (final Long zoneId : changedZoneIds) {
+            cache.evictCollection(ZONE_STATIONS, zoneId);
+        }
+        for (final Long lineId : changedLineIds) {
+            cache.evictCollection(LINE_STATIONS, lineId);
+        }
+        changedZoneIds.clear();
+        changedLineIds.clear();
+    }
+
+    /**
+     * Rolls back the actual chunk if it has not been committed, removes its zones and lines from the maps
+     * and closes the entity manager.
+     */
+    void close() {
+        try {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+        } finally {
+            /* Also reached if the commit of the chunk has failed. */
+            for (final Integer zoneNumber : chunkZones) {
+                zoneIds.remove(zoneNumber);
+            }
+            for (final String lineName : chunkLines) {
+                lineIds.remove(lineName);
+            }
+            chunkZones.clear();
+            chunkLines.clear();
+            changedZoneIds.clear();
+            changedLineIds.clear();
+            entityManager.close();
+        }
+    }
+
+    /**
+     * @return The number of the inserted rows.
+     */
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return The number of the updated rows.
+     */
+    long getUpdatedRows() {
+        return updatedRows;
+    }
+
+    /**
+     * @return The number of the deleted rows.
+     */
+    long getDeletedRows() {
+        return deletedRows;
+    }
+
+    /**
+     * @return The number of the zones created by this writer.
+     */
+    long getCreatedZones() {
+        return createdZones;
+    }
+
+    /**
+     * @return The number of the lines created by this writer.
+     */
+    long getCreatedLines() {
+        return createdLines;
+    }
+
+    /**
+     * @param zoneNumber The number of the zone. (NonNull)
+     * @return The persisted zone or its reference. (NonNull)
+     */
+    private Zone findOrCreateZone(final Integer zoneNumber) {
+        final Long zoneId = zoneIds.get(zoneNumber);
+        if (zoneId != null) {
+            return entityManager.getReference(Zone.class, zoneId);
+        }
+        final Zone zone = new Zone(zoneNumber);
+        entityManager.persist(zone);
+        zoneIds.put(zoneNumber, zone.getId());
+        chunkZones.add(zoneNumber);
+        createdZones++;
+        return zone;
+    }
+
+    /**
+     * @param lineName The name of the line. (NonNull)
+     * @return The persisted line or its reference. (NonNull)
+     */
+    private Line findOrCreateLine(final String lineName) {
+        final Long lineId = lineIds.get(lineName);
+        if (lineId != null) {
+            return entityManager.getReference(Line.class, lineId);
+        }
+        final Line line = new Line(lineName);
+        entityManager.persist(line);
+        lineIds.put(lineName, line.getId());
+        chunkLines.add(lineName);
+        createdLines++;
+        return line;
+    }
+
+}
@@ -0,0 +1,335 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.apache.log4j.Logger;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+
+import au.com.bytecode.opencsv.CSVReader;
+
+
+/**
+ * Imports the railway network from the same CSV format as the {@link CsvNetworkImporter}
+ * using a three stage pipeline:
+ * <ol>
+ *   <li>one reader thread reads the raw CSV records in batches,</li>
+ *   <li><tt>parserThreads</tt> parser threads trim and parse the records into {@link NetworkRow}s,</li>
+ *   <li>the calling thread writes the rows in chunked transactions by a {@link NetworkRowWriter}.</li>
+ * </ol>
+ * The stages are connected by bounded queues, so if the database is slower than the parsing
+ * the reader and the parsers are blocked instead of piling up the records in the memory.<br>
+ * The rows are not necessarily written in the order of the file, so the identifiers
+ * of the stations do not follow the order of the file either.<br>
+ * The importer is not thread safe.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class PipelinedCsvNetworkImporter {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(PipelinedCsvNetworkImporter.class);
+
+    /** The number of the records passed between the stages at once. */
+    private static final int BATCH_SIZE = 500;
+
+    /** The capacity of the queues in batches per parser thread. */
+    private static final int QUEUED_BATCHES_PER_PARSER = 2;
+
+    /** The time the writer waits for a batch before it checks the failure of the other stages. */
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    /** Marks the end of the records for a parser thread. */
+    private static final RecordBatch END_OF_RECORDS = new RecordBatch(0, new ArrayList<String[]>(0));
+
+    /** Marks the end of the rows of a parser thread. */
+    private static final List<NetworkRow> END_OF_ROWS = new ArrayList<NetworkRow>(0);
+
+    /** Numbers the importer threads. */
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final int                  parserThreads;
+    private final int                  chunkSize;
+
+    /** The identifiers of the already persisted zones by their numbers. */
+    private final Map<Integer, Long> zoneIds = new HashMap<Integer, Long>();
+    /** The identifiers of the already persisted lines by their names. */
+    private final Map<String, Long>  lineIds = new HashMap<String, Long>();
+
+    /**
+     * @param entityManagerFactory The factory of the resource local entity managers. (NonNull)
+     * @param parserThreads The number of the parser threads. (Positive)
+     */
+    public PipelinedCsvNetworkImporter(final EntityManagerFactory entityManagerFactory, final int parserThreads) {
+        this(entityManagerFactory, parserThreads, CsvNetworkImporter.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param entityManagerFactory The factory of the resource local entity managers. (NonNull)
+     * @param parserThreads The number of the parser threads. (Positive)
+     * @param chunkSize The number of the rows imported in one transaction.
+     *                  It should be a multiple of the <tt>hibernate.jdbc.batch_size</tt>. (Positive)
+     */
+    public PipelinedCsvNetworkImporter(final EntityManagerFactory entityManagerFactory, final int parserThreads, final int chunkSize) {
+        super();
+        if (parserThreads < 1) {
+            throw new IllegalArgumentException("The number of the parser threads has to be positive: " + parserThreads);
+        }
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size has to be positive: " + chunkSize);
+        }
+        this.entityManagerFactory = entityManagerFactory;
+        this.parserThreads = parserThreads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Imports the content of the CSV file. The zones and lines stored in the database are reused.
+     *
+     * @param reader The CSV content reader. (NonNull)
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     */
+    public ImportStatisticsDTO importCsv(final Reader reader) throws IOException {
+        return importCsv(reader, null);
+    }
+
+    /**
+     * Imports the content of the CSV file. The zones and lines stored in the database are reused.
+     *
+     * @param reader The CSV content reader. (NonNull)
+     * @param monitor The monitor which is notified about the progress and can cancel the import. (Nullable)
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If error occurs during the CSV reading or the content is invalid.
+     * @throws java.util.concurrent.CancellationException If the monitor has cancelled the import.
+     */
+    public ImportStatisticsDTO importCsv(final Reader reader, final ImportMonitor monitor) throws IOException {
+        final long start = System.currentTimeMillis();
+
+        final CSVReader csvReader = new CSVReader(reader);
+        if (csvReader.readNext() == null) {
+            throw new IOException("There is not enough data in the csv file");
+        }
+
+        final BlockingQueue<RecordBatch>      records = new ArrayBlockingQueue<RecordBatch>(parserThreads * QUEUED_BATCHES_PER_PARSER);
+        final BlockingQueue<List<NetworkRow>> rows    = new ArrayBlockingQueue<List<NetworkRow>>(parserThreads * QUEUED_BATCHES_PER_PARSER);
+        final AtomicReference<Throwable>      failure = new AtomicReference<Throwable>();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(parserThreads + 1, new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "network-import-" + THREAD_COUNTER.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final NetworkRowWriter writer;
+        try {
+            executor.execute(new RecordReader(csvReader, records, failure));
+            for (int i = 0; i < parserThreads; i++) {
+                executor.execute(new RecordParser(records, rows, failure));
+            }
+
+            writer = new NetworkRowWriter(entityManagerFactory, chunkSize, zoneIds, lineIds, monitor);
+            try {
+                int finishedParsers = 0;
+                while (finishedParsers < parserThreads) {
+                    final List<NetworkRow> batch = rows.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    checkFailure(failure);
+                    if (batch == END_OF_ROWS) {
+                        finishedParsers++;
+                    } else if (batch != null) {
+                        for (final NetworkRow row : batch) {
+                            writer.write(row);
+                        }
+                    }
+                }
+                writer.finish();
+            } finally {
+                writer.close();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("The network import has been interrupted");
+        } finally {
+            /* Stops the reader and the parsers if the writer has failed or has been cancelled. */
+            executor.shutdownNow();
+        }
+
+        final ImportStatisticsDTO statistics = new ImportStatisticsDTO(writer.getRows(), writer.getCreatedZones(), writer.getCreatedLines(),
+                                                                       System.currentTimeMillis() - start);
+        LOG.info("Pipelined network import with " + parserThreads + " parser threads has finished: " + statistics);
+        return statistics;
+    }
+
+    /**
+     * Rethrows the failure of the reader or a parser thread.
+     *
+     * @param failure The first failure of the reader and the parser threads. (NonNull)
+     * @throws IOException If the failure is an {@link IOException}.
+     */
+    private static void checkFailure(final AtomicReference<Throwable> failure) throws IOException {
+        final Throwable cause = failure.get();
+        if (cause == null) {
+            return;
+        }
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        throw (Error) cause;
+    }
+
+    /**
+     * Consecutive raw records of the CSV file.
+     */
+    private static final class RecordBatch {
+        /** The line number of the first record for the error messages. */
+        private final long           firstLineNumber;
+        private final List<String[]> records;
+
+        private RecordBatch(final long firstLineNumber, final List<String[]> records) {
+            this.firstLineNumber = firstLineNumber;
+            this.records = records;
+        }
+    }
+
+    /**
+     * The first stage of the pipeline: reads the records in batches and sends an
+     * {@link PipelinedCsvNetworkImporter#END_OF_RECORDS} to every parser at the end.
+     */
+    private final class RecordReader implements Runnable {
+
+        private final CSVReader                  csvReader;
+        private final BlockingQueue<RecordBatch> records;
+        private final AtomicReference<Throwable> failure;
+
+        private RecordReader(final CSVReader csvReader, final BlockingQueue<RecordBatch> records, final AtomicReference<Throwable> failure) {
+            this.csvReader = csvReader;
+            this.records = records;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            try {
+                /* The header is the first line. */
+                long firstLineNumber = 2;
+                List<String[]> batch = new ArrayList<String[]>(BATCH_SIZE);
+                String[] nextLine;
+                while ((nextLine = csvReader.readNext()) != null) {
+                    batch.add(nextLine);
+                    if (batch.size() == BATCH_SIZE) {
+                        records.put(new RecordBatch(firstLineNumber, batch));
+                        firstLineNumber += BATCH_SIZE;
+                        batch = new ArrayList<String[]>(BATCH_SIZE);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    records.put(new RecordBatch(firstLineNumber, batch));
+                }
+                for (int i = 0; i < parserThreads; i++) {
+                    records.put(END_OF_RECORDS);
+                }
+            } catch (final InterruptedException e) {
+                /* The import has been aborted. */
+                return;
+            } catch (final Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+
+    }
+
+    /**
+     * The second stage of the pipeline: parses the record batches into row batches and sends an
+     * {@link PipelinedCsvNetworkImporter#END_OF_ROWS} to the writer at the end.
+     */
+    private static final class RecordParser implements Runnable {
+
+        private final BlockingQueue<RecordBatch>      records;
+        private final BlockingQueue<List<NetworkRow>> rows;
+        private final AtomicReference<Throwable>      failure;
+
+        private RecordParser(final BlockingQueue<RecordBatch> records, final BlockingQueue<List<NetworkRow>> rows, final AtomicReference<Throwable> failure) {
+            this.records = records;
+            this.rows = rows;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final RecordBatch batch = records.take();
+                    if (batch == END_OF_RECORDS) {
+                        rows.put(END_OF_ROWS);
+                        return;
+                    }
+                    final List<NetworkRow> parsed = new ArrayList<NetworkRow>(batch.records.size());
+                    long lineNumber = batch.firstLineNumber;
+                    for (final String[] record : batch.records) {
+                        parsed.add(NetworkRow.parse(record, lineNumber++));
+                    }
+                    rows.put(parsed);
+                }
+            } catch (final InterruptedException e) {
+                /* The import has been aborted. */
+                return;
+            } catch (final Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+
+    }
+
+}
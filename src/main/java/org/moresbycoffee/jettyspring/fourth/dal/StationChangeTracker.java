@@ -0,0 +1,132 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.moresbycoffee.jettyspring.fourth.domain.Station;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Implementation of {@link IStationChangeTracker} which registers itself as a Hibernate
+ * post-commit event listener, so the {@link IStationChangeListener}s are notified only
+ * about the successfully committed changes.<br>
+ * <strong>WARNING:</strong> Bulk (HQL or native SQL) updates bypass the Hibernate events, their
+ * callers have to call {@link #stationsReloaded()}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@Component
+public class StationChangeTracker implements IStationChangeTracker, PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    /** @see java.io.Serializable */
+    private static final long serialVersionUID = 1L;
+
+    /** The registered listeners. */
+    private final List<IStationChangeListener> listeners = new CopyOnWriteArrayList<IStationChangeListener>();
+
+    /**
+     * Registers the tracker as post-commit event listener of the entityManagerFactory.
+     *
+     * @param entityManagerFactory The Hibernate based entity manager factory. (NonNull)
+     */
+    @Autowired
+    public StationChangeTracker(final EntityManagerFactory entityManagerFactory) {
+        super();
+        final SessionFactoryImplementor sessionFactory = (SessionFactoryImplementor) ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory();
+        final EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void addListener(final IStationChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void stationsReloaded() {
+        for (final IStationChangeListener listener : listeners) {
+            listener.stationsReloaded();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onPostInsert(final PostInsertEvent event) {
+        if (event.getEntity() instanceof Station) {
+            for (final IStationChangeListener listener : listeners) {
+                listener.stationSaved((Station) event.getEntity());
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onPostUpdate(final PostUpdateEvent event) {
+        if (event.getEntity() instanceof Station) {
+            for (final IStationChangeListener listener : listeners) {
+                listener.stationSaved((Station) event.getEntity());
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onPostDelete(final PostDeleteEvent event) {
+        if (event.getEntity() instanceof Station) {
+            for (final IStationChangeListener listener : listeners) {
+                listener.stationDeleted((Station) event.getEntity());
+            }
+        }
+    }
+
+}
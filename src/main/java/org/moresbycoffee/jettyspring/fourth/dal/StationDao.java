@@ -31,12 +31,21 @@
 package org.moresbycoffee.jettyspring.fourth.dal;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.ejb.QueryHints;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDTO;
 import org.moresbycoffee.jettyspring.fourth.domain.Station;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -53,6 +62,18 @@ import org.springframework.transaction.annotation.Transactional;
 @Transactional
 public class StationDao implements IStationDao {
 
+    /** The number of rows fetched from the database in one round trip during scrolling. */
+    static final int FETCH_SIZE = 500;
+
+    /** Constructor projection query of the {@link StationDTO}s. */
+    private static final String STATION_DTO_QUERY = "select new " + StationDTO.class.getName() + "(s.id, s.name) from Station s order by s.id";
+
+    /** Constructor projection query of a {@link StationDTO} page. */
+    private static final String STATION_DTO_PAGE_QUERY = "select new " + StationDTO.class.getName() + "(s.id, s.name) from Station s where s.id > :afterId order by s.id";
+
+    /** Join fetch query of the stations together with their zones and lines. */
+    private static final String STATION_DETAIL_QUERY = "select distinct s from Station s left join fetch s.zone left join fetch s.lines order by s.id";
+
     /**
      * EntityManager through that the persistence context can be manipulated.
      */
@@ -64,10 +85,103 @@ public class StationDao implements IStationDao {
     public Collection<Station> getAll() {
 
         final Query query = entityManager.createQuery("from Station");
+        query.setHint(QueryHints.HINT_CACHEABLE, Boolean.TRUE);
         @SuppressWarnings("unchecked")
         final List<Station> result = query.getResultList();
 
         return result;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public List<StationDTO> getAllDtos() {
+        final TypedQuery<StationDTO> query = entityManager.createQuery(STATION_DTO_QUERY, StationDTO.class);
+        return query.getResultList();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void scrollAllDtos(final ResultHandler<StationDTO> handler) {
+        final Session session = entityManager.unwrap(Session.class);
+
+        /* The DTOs are not managed entities, so there is no need to clear the session. */
+        final ScrollableResults results = session.createQuery(STATION_DTO_QUERY)
+                                                 .setFetchSize(FETCH_SIZE)
+                                                 .setCacheMode(CacheMode.IGNORE)
+                                                 .scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                handler.handle((StationDTO) results.get(0));
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<StationDTO> getDtoPage(final long afterId, final int limit) {
+        final TypedQuery<StationDTO> query = entityManager.createQuery(STATION_DTO_PAGE_QUERY, StationDTO.class);
+        query.setParameter("afterId", Long.valueOf(afterId));
+        query.setMaxResults(limit);
+        query.setHint(QueryHints.HINT_CACHEABLE, Boolean.TRUE);
+        return query.getResultList();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Station getDetail(final long id) {
+        final Session session = entityManager.unwrap(Session.class);
+        session.enableFetchProfile(Station.FETCH_PROFILE_DETAIL);
+        try {
+            return (Station) session.get(Station.class, Long.valueOf(id));
+        } finally {
+            session.disableFetchProfile(Station.FETCH_PROFILE_DETAIL);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public List<Station> getAllDetails() {
+        final TypedQuery<Station> query = entityManager.createQuery(STATION_DETAIL_QUERY, Station.class);
+        /*
+         * Not cacheable: a query cache hit returns the cached ids only and does not apply the join fetches,
+         * so the lines would be uninitialized once the stations leave the persistence context.
+         */
+        return query.getResultList();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<Integer, Long> countStationsPerZone() {
+        final TypedQuery<Object[]> query = entityManager.createQuery(
+                "select z.number, count(s.id) from Zone z left join z.stations s group by z.number order by z.number", Object[].class);
+
+        final Map<Integer, Long> result = new LinkedHashMap<Integer, Long>();
+        for (final Object[] row : query.getResultList()) {
+            result.put((Integer) row[0], (Long) row[1]);
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String, Long> countStationsPerLine() {
+        final TypedQuery<Object[]> query = entityManager.createQuery(
+                "select l.name, count(distinct s.id) from Station s join s.lines l group by l.name order by l.name", Object[].class);
+
+        final Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (final Object[] row : query.getResultList()) {
+            result.put((String) row[0], (Long) row[1]);
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long countInterchangeStations() {
+        final TypedQuery<Long> query = entityManager.createQuery("select count(s.id) from Station s where size(s.lines) > 1", Long.class);
+        return query.getSingleResult().longValue();
+    }
+
 }
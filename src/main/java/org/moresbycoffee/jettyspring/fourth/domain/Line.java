@@ -33,10 +33,16 @@ package org.moresbycoffee.jettyspring.fourth.domain;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToMany;
+import javax.persistence.SequenceGenerator;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Database entity to represent a railway line.
@@ -45,18 +51,28 @@ import javax.persistence.ManyToMany;
  * @since 2012
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Line {
 
-    /** Unique identifier. <tt>null</tt> until it's persisted. */
+    /**
+     * Unique identifier. <tt>null</tt> until it's persisted.
+     * The identifiers are allocated in blocks from a sequence, so the inserts can be batched.
+     */
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "line_seq")
+    @SequenceGenerator(name = "line_seq", sequenceName = "line_seq", allocationSize = 50)
     private Long id;
 
     /** The name of the line. (NonNull) */
     private String name;
 
-    /** The list of the stations on the line. (NonNull) */
-    @ManyToMany
+    /**
+     * The list of the stations on the line. (NonNull)
+     * This is the inverse side of the {@link Station#getLines()}, the relation is stored by the stations.
+     */
+    @ManyToMany(mappedBy = "lines")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<Station> stations = new ArrayList<Station>();
 
     /** Default constructor for hibernate. */
@@ -30,39 +30,81 @@
  */
 package org.moresbycoffee.jettyspring.fourth.domain;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
+import javax.persistence.OrderBy;
+import javax.persistence.SequenceGenerator;
+
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.FetchProfile;
+import org.hibernate.annotations.FetchProfile.FetchOverride;
 
 /**
- * Database entity to represent a railway station.
+ * Database entity to represent a railway station.<br>
+ * Neither the zone nor the lines are loaded with the station by default, the
+ * Data Access Objects have to declare what they load (see {@link #FETCH_PROFILE_DETAIL}).
  *
  * @author Barnabas Sudy (barnabas.sudy@gmail.com)
  * @since 2012
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@FetchProfile(name = Station.FETCH_PROFILE_DETAIL, fetchOverrides = {
+    @FetchOverride(entity = Station.class, association = "zone", mode = FetchMode.JOIN),
+    @FetchOverride(entity = Station.class, association = "lines", mode = FetchMode.JOIN)
+})
 public class Station {
 
-    /** Unique identifier. <tt>null</tt> until it's persisted. */
+    /** Name of the fetch profile which loads the station together with its zone and lines in one statement. */
+    public static final String FETCH_PROFILE_DETAIL = "station-detail";
+
+    /** The number of the stations the lines of which are initialized together. */
+    static final int LINES_BATCH_SIZE = 100;
+
+    /**
+     * Unique identifier. <tt>null</tt> until it's persisted.
+     * The identifiers are allocated in blocks from a sequence, so the inserts can be batched.
+     */
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "station_seq")
+    @SequenceGenerator(name = "station_seq", sequenceName = "station_seq", allocationSize = 50)
     private Long id;
 
     /** The name of the station. (NonNull) */
     private String name;
 
     /** The zone where the station lays. (NonNull) */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Zone zone;
 
-    /** The lines the station is on. */
+    /**
+     * The lines the station is on in the order of their names. Initialized for {@value #LINES_BATCH_SIZE} stations at once
+     * if it is not fetched. It is a set, so adding or removing a line changes only its own row of the join table.
+     */
     @ManyToMany
-    private List<Line> lines = new ArrayList<Line>();
+    @OrderBy("name")
+    @BatchSize(size = Station.LINES_BATCH_SIZE)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    private Set<Line> lines = new LinkedHashSet<Line>();
+
+    /**
+     * The hash of the normalised content (zone and lines) of the station as it has been imported.
+     * <tt>null</tt> if it is unknown. The delta imports use it to detect the changed stations.
+     */
+    private Long contentHash;
 
     /** Default constructor for hibernate. */
     Station() { /* NOP */ }
@@ -124,17 +166,31 @@ public class Station {
     /**
      * @return the lines
      */
-    public List<Line> getLines() {
+    public Set<Line> getLines() {
         return lines;
     }
 
     /**
      * @param lines the lines to set
      */
-    void setLines(final List<Line> lines) {
+    void setLines(final Set<Line> lines) {
         this.lines = lines;
     }
 
+    /**
+     * @return The hash of the imported content of the station. (Nullable)
+     */
+    public Long getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * @param contentHash The hash of the imported content of the station to set. (Nullable)
+     */
+    public void setContentHash(final Long contentHash) {
+        this.contentHash = contentHash;
+    }
+
 
 
 }
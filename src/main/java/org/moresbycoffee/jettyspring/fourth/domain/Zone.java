@@ -33,23 +33,37 @@ package org.moresbycoffee.jettyspring.fourth.domain;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
+import javax.persistence.SequenceGenerator;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
- * Database entity to represent a Zone.
+ * Database entity to represent a Zone.<br>
+ * The zones are reference data, therefore they are cached read-only. Only the
+ * list of the stations of a zone can change.
  *
  * @author Barnabas Sudy (barnabas.sudy@gmail.com)
  * @since 2012
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY)
 public class Zone {
 
-    /** Unique identifier. <tt>null</tt> until it's persisted. */
+    /**
+     * Unique identifier. <tt>null</tt> until it's persisted.
+     * The identifiers are allocated in blocks from a sequence, so the inserts can be batched.
+     */
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "zone_seq")
+    @SequenceGenerator(name = "zone_seq", sequenceName = "zone_seq", allocationSize = 50)
     private Long id;
 
     /** The number of the zone. (NonNull) */
@@ -57,6 +71,7 @@ public class Zone {
 
     /** The list of the stations of the zone. (NonNull) */
     @OneToMany(mappedBy = "zone")
+    @Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
     private List<Station> stations = new ArrayList<Station>();
 
     /** Default constructor for hibernate. */
@@ -0,0 +1,326 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.spring;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+import org.moresbycoffee.jettyspring.fourth.beans.dto.CacheStatisticsDTO;
+
+
+/**
+ * Cache of one encoded response body. The body is stored as it is sent on the wire:
+ * the identity encoded bytes and the gzip compressed bytes, so a hit costs only a
+ * write of an existing byte array.<br>
+ * The cached body belongs to a data version, it is rebuilt when the requested
+ * version is newer than the cached one. Bodies larger than the maximum size are
+ * not cached, they are written directly to the response, and the version is remembered
+ * as too large, so the body of that version is not buffered again.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class EncodedResponseCache {
+
+    /**
+     * Callback interface to produce the body of the response.
+     */
+    public interface BodyWriter {
+
+        /**
+         * @param out The stream the response body has to be written to. (NonNull)
+         * @throws IOException If error occurs during writing.
+         */
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * The cached encoded body of the response. Immutable.
+     */
+    public static final class EncodedBody {
+
+        /** The data version of the body. */
+        private final long   version;
+        /** The identity encoded body. <tt>null</tt> if the body is larger than the maximum size. */
+        private final byte[] identity;
+        /** The gzip encoded body. <tt>null</tt> if the body is larger than the maximum size. */
+        private final byte[] gzip;
+
+        /**
+         * @param version The data version of the body.
+         * @param identity The identity encoded body. (Nullable)
+         * @param gzip The gzip encoded body. (Nullable)
+         */
+        EncodedBody(final long version, final byte[] identity, final byte[] gzip) {
+            this.version = version;
+            this.identity = identity;
+            this.gzip = gzip;
+        }
+
+        /**
+         * @return The identity encoded body. (NonNull)
+         */
+        public byte[] getIdentity() {
+            return identity;
+        }
+
+        /**
+         * @return The gzip encoded body. (NonNull)
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        /**
+         * @return <tt>true</tt> if the body could not be cached because of its size.
+         */
+        boolean isTooLarge() {
+            return identity == null;
+        }
+    }
+
+    /**
+     * In memory output stream which buffers at most a maximum number of bytes. When the maximum
+     * would be exceeded the stream reports the overflow, writes out the buffered bytes to the
+     * direct stream and passes all the further bytes to it.
+     */
+    private final class BoundedOutputStream extends OutputStream {
+
+        /** The initial size of the buffer. */
+        private static final int INITIAL_SIZE = 8192;
+
+        /** The data version of the written body. */
+        private final long         version;
+        /** The stream the body is written to after the overflow. (NonNull) */
+        private final OutputStream direct;
+        /** The buffer, <tt>null</tt> after the overflow. (Nullable) */
+        private byte[]             buffer = new byte[INITIAL_SIZE];
+        /** The number of the buffered bytes. */
+        private int                count;
+
+        /**
+         * @param version The data version of the written body.
+         * @param direct The stream the body is written to after the overflow. (NonNull)
+         */
+        BoundedOutputStream(final long version, final OutputStream direct) {
+            super();
+            this.version = version;
+            this.direct = direct;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            if (ensureCapacity(1)) {
+                buffer[count++] = (byte) b;
+            } else {
+                direct.write(b);
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (ensureCapacity(len)) {
+                System.arraycopy(b, off, buffer, count, len);
+                count += len;
+            } else {
+                direct.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (isOverflown()) {
+                direct.flush();
+            }
+        }
+
+        /**
+         * @param len The number of bytes to write.
+         * @return <tt>true</tt> if the bytes have to be buffered, <tt>false</tt> if they have to be written to the direct stream.
+         * @throws IOException If the buffered bytes cannot be written to the direct stream.
+         */
+        private boolean ensureCapacity(final int len) throws IOException {
+            if (isOverflown()) {
+                return false;
+            }
+            final int required = count + len;
+            if (required > maxSize || required < 0) {
+                overflown(version);
+                final byte[] buffered = buffer;
+                buffer = null;
+                direct.write(buffered, 0, count);
+                return false;
+            }
+            if (required > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.min(maxSize, Math.max(required, buffer.length * 2)));
+            }
+            return true;
+        }
+
+        /**
+         * @return <tt>true</tt> if the maximum size has been exceeded.
+         */
+        boolean isOverflown() {
+            return buffer == null;
+        }
+
+        /**
+         * @return The buffered bytes in an array of exact size. (NonNull)
+         */
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, count);
+        }
+    }
+
+    /** The name of the cache. (NonNull) */
+    private final String     name;
+    /** The maximum size of the identity encoded body in bytes. */
+    private final int        maxSize;
+    /** The number of the hits. */
+    private final AtomicLong hits   = new AtomicLong();
+    /** The number of the misses. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Guards the rebuild of the body, so only one thread rebuilds it. */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /** The actually cached body. (Nullable) */
+    private volatile EncodedBody body;
+
+    /**
+     * @param name The name of the cache. (NonNull)
+     * @param maxSize The maximum size of the identity encoded body in bytes.
+     */
+    public EncodedResponseCache(final String name, final int maxSize) {
+        super();
+        this.name = name;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cached body of the given version. If the cached body belongs to
+     * an older version the body is rebuilt by the writer. Only one thread rebuilds
+     * the body, the others wait for it.<br>
+     * If the body is larger than the maximum size, it is written by the writer directly to
+     * the <tt>direct</tt> stream. When it is detected during the rebuild, the already buffered
+     * part is written out and the rest of the body is passed through, so the body is produced
+     * only once, and the waiting threads are released to write the body themselves.
+     * A request of an older version than the cached one (its data version has been read
+     * before the data changed) is written directly as well, it never replaces the cached body.
+     *
+     * @param version The actual data version.
+     * @param writer The writer which produces the body if it is not cached. (NonNull)
+     * @param direct The stream the identity encoded body is written to if it is not cached. (NonNull)
+     * @return The encoded body or <tt>null</tt> if the body has been written to the <tt>direct</tt> stream.
+     * @throws IOException If error occurs during the rebuild or during writing the <tt>direct</tt> stream.
+     */
+    public EncodedBody get(final long version, final BodyWriter writer, final OutputStream direct) throws IOException {
+        EncodedBody actual = body;
+        if (actual == null || actual.version < version) {
+            rebuildLock.lock();
+            try {
+                actual = body;
+                if (actual == null || actual.version < version) {
+                    misses.incrementAndGet();
+                    return encode(version, writer, direct);
+                }
+            } finally {
+                if (rebuildLock.isHeldByCurrentThread()) {
+                    rebuildLock.unlock();
+                }
+            }
+        }
+        if (actual.version != version || actual.isTooLarge()) {
+            misses.incrementAndGet();
+            writer.write(direct);
+            return null;
+        }
+        hits.incrementAndGet();
+        return actual;
+    }
+
+    /**
+     * @return The statistics of the cache. (NonNull)
+     */
+    public CacheStatisticsDTO getStatistics() {
+        final EncodedBody actual = body;
+        final boolean cached = actual != null && !actual.isTooLarge();
+        return new CacheStatisticsDTO(name, hits.get(), misses.get(),
+                                      cached ? 1 : 0,
+                                      cached ? actual.identity.length + actual.gzip.length : 0);
+    }
+
+    /**
+     * Builds and caches the body, or writes it to the direct stream if it is too large.
+     * Called with the rebuild lock held.
+     *
+     * @param version The data version.
+     * @param writer The writer which produces the body. (NonNull)
+     * @param direct The stream the body is written to if it is too large. (NonNull)
+     * @return The new encoded body or <tt>null</tt> if the body has been written to the <tt>direct</tt> stream.
+     * @throws IOException If error occurs during the writing.
+     */
+    private EncodedBody encode(final long version, final BodyWriter writer, final OutputStream direct) throws IOException {
+        final BoundedOutputStream identityStream = new BoundedOutputStream(version, direct);
+        writer.write(identityStream);
+        if (identityStream.isOverflown()) {
+            return null;
+        }
+        final byte[] identity = identityStream.toByteArray();
+
+        final ByteArrayOutputStream gzip = new ByteArrayOutputStream(identity.length / 4 + 64);
+        final GZIPOutputStream gzipStream = new GZIPOutputStream(gzip);
+        gzipStream.write(identity);
+        gzipStream.close();
+
+        final EncodedBody result = new EncodedBody(version, identity, gzip.toByteArray());
+        body = result;
+        return result;
+    }
+
+    /**
+     * Remembers that the body of the version is too large and releases the threads waiting
+     * for the rebuild, so they write the body themselves instead of waiting for the direct
+     * writing of this one.
+     *
+     * @param version The data version of the too large body.
+     */
+    private void overflown(final long version) {
+        body = new EncodedBody(version, null, null);
+        rebuildLock.unlock();
+    }
+
+}
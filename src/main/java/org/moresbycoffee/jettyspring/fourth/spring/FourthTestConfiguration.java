@@ -30,9 +30,12 @@
  */
 package org.moresbycoffee.jettyspring.fourth.spring;
 
+import java.io.File;
+
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 
+import org.moresbycoffee.jettyspring.fourth.util.NetworkGraphSnapshot;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -53,6 +56,15 @@ import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 @EnableTransactionManagement
 public class FourthTestConfiguration {
 
+    /** The maximum size of the cached station list response in bytes. */
+    private static final int STATION_LIST_CACHE_MAX_SIZE = 16 * 1024 * 1024;
+
+    /** The system property of the network graph snapshot file. */
+    private static final String NETWORK_SNAPSHOT_PROPERTY = "jettyspring.networkSnapshot";
+
+    /** The default network graph snapshot file, next to the database file. */
+    private static final String NETWORK_SNAPSHOT_DEFAULT_FILE = "jettyspring.network.snapshot";
+
     /**
      * @return an entityManager factory to reach the persistence context.
      */
@@ -77,5 +89,25 @@ public class FourthTestConfiguration {
         return new org.springframework.orm.jpa.support.PersistenceAnnotationBeanPostProcessor();
     }
 
+    /**
+     * @return the cache of the encoded <tt>/listStations</tt> response.
+     */
+    @Bean
+    public EncodedResponseCache stationListCache() {
+        return new EncodedResponseCache("listStations", STATION_LIST_CACHE_MAX_SIZE);
+    }
+
+    /**
+     * The snapshot file can be set by the <tt>jettyspring.networkSnapshot</tt> system property,
+     * an empty value disables the snapshot.
+     *
+     * @return the snapshot of the network graph from which the journey planner is started.
+     */
+    @Bean
+    public NetworkGraphSnapshot networkGraphSnapshot() {
+        final String file = System.getProperty(NETWORK_SNAPSHOT_PROPERTY, NETWORK_SNAPSHOT_DEFAULT_FILE);
+        return file.length() == 0 ? NetworkGraphSnapshot.DISABLED : new NetworkGraphSnapshot(new File(file));
+    }
+
 
 }
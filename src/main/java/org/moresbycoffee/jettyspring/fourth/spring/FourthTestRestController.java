@@ -30,17 +30,33 @@
  */
 package org.moresbycoffee.jettyspring.fourth.spring;
 
-import java.util.Collection;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.moresbycoffee.jettyspring.fourth.beans.IFourthTestService;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.CacheStatisticsDTO;
 import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDetailDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationPageDTO;
+import org.moresbycoffee.jettyspring.fourth.dal.ResultHandler;
+import org.moresbycoffee.jettyspring.fourth.spring.EncodedResponseCache.BodyWriter;
+import org.moresbycoffee.jettyspring.fourth.spring.EncodedResponseCache.EncodedBody;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 
 
 /**
@@ -52,27 +68,241 @@ import com.google.gson.Gson;
 @Controller
 public class FourthTestRestController {
 
-    private final IFourthTestService service;
-    private final Gson               gson    = new Gson();
+    /** The content type of the JSON responses. */
+    private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+
+    /** The default number of the stations on a page. */
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    /** The maximum number of the stations on a page. */
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final IFourthTestService   service;
+    private final EncodedResponseCache stationListCache;
+    private final Gson                 gson    = new Gson();
+
+    /** Writes the station list JSON array into the cache. */
+    private final BodyWriter           stationListWriter = new BodyWriter() {
+
+        @Override
+        public void write(final OutputStream out) throws IOException {
+            writeStations(out);
+        }
+
+    };
 
     /**
      * @param service The business logic for the second test.
+     * @param stationListCache The cache of the encoded station list response.
      */
     @Autowired
-    public FourthTestRestController(final IFourthTestService service) {
+    public FourthTestRestController(final IFourthTestService service, final EncodedResponseCache stationListCache) {
         super();
         this.service = service;
+        this.stationListCache = stationListCache;
     }
 
     /**
      * RESTful WS service point to retrieve all stations from
-     * the persistence context in a JSON object.
+     * the persistence context in a JSON array.<br>
+     * The encoded (identity and gzip) response is cached until the network data
+     * changes, so the JSON is built only once per data version and a cached response
+     * is sent by writing the byte array directly. If the response is too large to be
+     * cached the stations are written to the response as they are read from the
+     * database cursor.<br>
+     * The response is tagged by the version of the network data, so if the
+     * client sends the received ETag back in the <tt>If-None-Match</tt> header
+     * and the data has not been changed, <tt>304 Not Modified</tt> is answered
+     * without reaching the database.
      *
-     * @return The concatenated entity names. (NonNull)
+     * @param request The HTTP request. (NonNull)
+     * @param response The HTTP response the JSON array is written to. (NonNull)
+     * @throws IOException If error occurs during writing the response.
      */
     @RequestMapping(value = "/listStations", method = RequestMethod.GET)
-    public @ResponseBody String listStations() {
-        final Collection<StationDTO> stations = service.listStations();
-        return gson.toJson(stations);
+    public void listStations(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        final long version = service.getDataVersion();
+        if (checkNotModified(version, request, response)) {
+            return;
+        }
+        response.setContentType(JSON_CONTENT_TYPE);
+        response.setHeader("Vary", "Accept-Encoding");
+
+        final EncodedBody body = stationListCache.get(version, stationListWriter, response.getOutputStream());
+        if (body == null) {
+            /* Too large to be cached, it has been written as it was read from the database cursor. */
+            return;
+        }
+
+        final byte[] content;
+        if (acceptsGzip(request)) {
+            response.setHeader("Content-Encoding", "gzip");
+            content = body.getGzip();
+        } else {
+            content = body.getIdentity();
+        }
+        response.setContentLength(content.length);
+        response.getOutputStream().write(content, 0, content.length);
+    }
+
+    /**
+     * RESTful WS service point to retrieve the statistics of the response caches,
+     * the second-level cache regions and the query cache.
+     *
+     * @return The JSON representation of the statistics of the caches by their names. (NonNull)
+     */
+    @RequestMapping(value = "/cacheStatistics", method = RequestMethod.GET, produces = JSON_CONTENT_TYPE)
+    public @ResponseBody String cacheStatistics() {
+        final Map<String, CacheStatisticsDTO> statistics = new LinkedHashMap<String, CacheStatisticsDTO>();
+
+        final CacheStatisticsDTO stationListStatistics = stationListCache.getStatistics();
+        statistics.put(stationListStatistics.getName(), stationListStatistics);
+        for (final CacheStatisticsDTO regionStatistics : service.getCacheStatistics()) {
+            statistics.put(regionStatistics.getName(), regionStatistics);
+        }
+        return gson.toJson(statistics);
+    }
+
+    /**
+     * RESTful WS service point to retrieve one page of the stations using
+     * keyset pagination. The <tt>nextAfterId</tt> of the response has to be
+     * used as the <tt>afterId</tt> of the next request, it is missing on the last page.
+     *
+     * @param afterId The identifier after which the page starts. (Nullable, <tt>0</tt> by default)
+     * @param limit The maximum number of stations on the page. (Nullable, {@value #DEFAULT_PAGE_SIZE} by default,
+     *              at most {@value #MAX_PAGE_SIZE})
+     * @return The JSON representation of the {@link StationPageDTO}. (NonNull)
+     */
+    @RequestMapping(value = "/listStationPage", method = RequestMethod.GET, produces = JSON_CONTENT_TYPE)
+    public @ResponseBody String listStationPage(@RequestParam(required = false) final Long afterId,
+                                                @RequestParam(required = false) final Integer limit) {
+        final long from     = afterId == null ? 0L : afterId.longValue();
+        final int  pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(MAX_PAGE_SIZE, limit.intValue()));
+
+        final StationPageDTO page = service.listStations(from, pageSize);
+        return gson.toJson(page);
+    }
+
+    /**
+     * RESTful WS service point to retrieve a station together with its zone and lines.
+     *
+     * @param id The identifier of the station.
+     * @param response The HTTP response. (NonNull)
+     * @return The JSON representation of the {@link StationDetailDTO} or an empty string with
+     *         <tt>404 Not Found</tt> status if there is no such station. (NonNull)
+     */
+    @RequestMapping(value = "/stations/{id}", method = RequestMethod.GET, produces = JSON_CONTENT_TYPE)
+    public @ResponseBody String stationDetail(@PathVariable final long id, final HttpServletResponse response) {
+        final StationDetailDTO station = service.getStationDetail(id);
+        if (station == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return "";
+        }
+        return gson.toJson(station);
+    }
+
+    /**
+     * RESTful WS service point to retrieve all the stations together with their zones and lines
+     * in a JSON array. The whole network is loaded from the database by one statement.
+     *
+     * @return The JSON array of the {@link StationDetailDTO}s. (NonNull)
+     */
+    @RequestMapping(value = "/listStationDetails", method = RequestMethod.GET, produces = JSON_CONTENT_TYPE)
+    public @ResponseBody String listStationDetails() {
+        return gson.toJson(service.listStationDetails());
+    }
+
+    /**
+     * RESTful WS service point to retrieve the aggregated statistics of the network:
+     * the number of the stations per zone and per line and the number of the interchange stations.
+     * The statistics are computed by grouped queries and cached until the network data is modified.
+     *
+     * @return The JSON representation of the {@link org.moresbycoffee.jettyspring.fourth.beans.dto.NetworkStatisticsDTO}. (NonNull)
+     */
+    @RequestMapping(value = "/networkStatistics", method = RequestMethod.GET, produces = JSON_CONTENT_TYPE)
+    public @ResponseBody String networkStatistics() {
+        return gson.toJson(service.getNetworkStatistics());
+    }
+
+    /**
+     * Writes all the stations as a JSON array into the output stream as they are read
+     * from the database cursor.
+     *
+     * @param out The output stream. (NonNull)
+     * @throws IOException If error occurs during writing.
+     */
+    private void writeStations(final OutputStream out) throws IOException {
+        final JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, "UTF-8"));
+        writer.beginArray();
+        service.streamStations(new ResultHandler<StationDTO>() {
+
+            @Override
+            public void handle(final StationDTO station) {
+                gson.toJson(station, StationDTO.class, writer);
+            }
+
+        });
+        writer.endArray();
+        writer.flush();
+    }
+
+    /**
+     * Sets the <tt>ETag</tt> header of the response from the version of the network data and
+     * checks whether the <tt>If-None-Match</tt> header of the request contains the same tag.
+     * If it does the status of the response is set to <tt>304 Not Modified</tt>.<br>
+     * The version has to be read before the data, so if the data is modified during the request
+     * the client will get a new version by the next request.
+     *
+     * @param version The actual version of the network data.
+     * @param request The HTTP request. (NonNull)
+     * @param response The HTTP response. (NonNull)
+     * @return <tt>true</tt> if the client's version is up to date and nothing has to be written to the response.
+     */
+    private static boolean checkNotModified(final long version, final HttpServletRequest request, final HttpServletResponse response) {
+        final String etag = "\"" + Long.toString(version, Character.MAX_RADIX) + "\"";
+        response.setHeader("ETag", etag);
+
+        final String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (final String clientTag : ifNoneMatch.split(",")) {
+            final String trimmed = clientTag.trim();
+            if (etag.equals(trimmed) || "*".equals(trimmed)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param request The HTTP request. (NonNull)
+     * @return <tt>true</tt> if the <tt>Accept-Encoding</tt> header of the request allows gzip encoding.
+     */
+    private static boolean acceptsGzip(final HttpServletRequest request) {
+        final String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (final String coding : acceptEncoding.split(",")) {
+            final String[] parts = coding.split(";");
+            final String   name  = parts[0].trim();
+            if ("gzip".equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name)) {
+                /* gzip;q=0 means that gzip is not acceptable. */
+                for (int i = 1; i < parts.length; i++) {
+                    final String param = parts[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            return Double.parseDouble(param.substring(2)) > 0;
+                        } catch (final NumberFormatException ex) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
     }
 }
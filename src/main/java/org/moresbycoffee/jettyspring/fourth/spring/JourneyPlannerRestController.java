@@ -0,0 +1,87 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.spring;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.moresbycoffee.jettyspring.fourth.beans.IJourneyPlannerService;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.RouteDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import com.google.gson.Gson;
+
+
+/**
+ * RESTful WebService controller of the journey planner.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@Controller
+public class JourneyPlannerRestController {
+
+    private final IJourneyPlannerService service;
+    private final Gson                   gson = new Gson();
+
+    /**
+     * @param service The business logic of the journey planner.
+     */
+    @Autowired
+    public JourneyPlannerRestController(final IJourneyPlannerService service) {
+        super();
+        this.service = service;
+    }
+
+    /**
+     * RESTful WS service point to find the route with the fewest changes between two stations.
+     *
+     * @param from The identifier of the departure station. (NonNull)
+     * @param to The identifier of the destination station. (NonNull)
+     * @param response The HTTP response. (NonNull)
+     * @return The JSON representation of the route or an empty string with <tt>404 Not Found</tt>
+     *         status if any of the stations is unknown or there is no route between them. (NonNull)
+     */
+    @RequestMapping(value = "/route", method = RequestMethod.GET, produces = "application/json;charset=UTF-8")
+    public @ResponseBody String route(@RequestParam final long from, @RequestParam final long to, final HttpServletResponse response) {
+        final RouteDTO route = service.findRoute(from, to);
+        if (route == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return "";
+        }
+        return gson.toJson(route);
+    }
+
+}
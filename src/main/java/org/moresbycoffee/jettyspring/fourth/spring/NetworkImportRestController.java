@@ -0,0 +1,253 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.spring;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.util.Locale;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.log4j.Logger;
+import org.moresbycoffee.jettyspring.fourth.beans.INetworkImportService;
+import org.moresbycoffee.jettyspring.fourth.beans.ImportMode;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportJobDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import com.google.gson.Gson;
+
+
+/**
+ * RESTful WebService controller of the asynchronous network imports.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@Controller
+public class NetworkImportRestController {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(NetworkImportRestController.class);
+
+    /** The content type of the JSON responses. */
+    private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+
+    /** The size of the buffer used to spool the request body. */
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final INetworkImportService service;
+    private final Gson                  gson = new Gson();
+
+    /**
+     * @param service The business logic of the imports.
+     */
+    @Autowired
+    public NetworkImportRestController(final INetworkImportService service) {
+        super();
+        this.service = service;
+    }
+
+    /**
+     * RESTful WS service point to import a network CSV with <tt>Station,Lines,Zone</tt> columns sent in the
+     * request body. The body may be gzip compressed (<tt>Content-Encoding: gzip</tt> or
+     * <tt>Content-Type: application/gzip</tt>).<br>
+     * The body is spooled to a temporary file with a fixed size buffer, so it is never held in the memory
+     * as a whole, then the <tt>202 Accepted</tt> response with the job and its <tt>Location</tt> is sent
+     * without waiting for the import. The uncompressed file is imported by memory mapping it. The file
+     * is deleted when the job has finished.<br>
+     * The <tt>mode</tt> query parameter is <tt>full</tt> (default) to insert all the rows, <tt>delta</tt>
+     * to apply only the differences between the CSV and the database, so the stations missing from the
+     * CSV are deleted, or <tt>native</tt> to load the rows into the empty database by JDBC batches.
+     *
+     * @param request The HTTP request. (NonNull)
+     * @param response The HTTP response. (NonNull)
+     * @throws IOException If error occurs during receiving the body or writing the response.
+     */
+    @RequestMapping(value = "/imports", method = RequestMethod.POST)
+    public void submitImport(final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        final String modeName = queryParameter(request, "mode");
+        final ImportMode mode;
+        try {
+            mode = modeName == null ? ImportMode.FULL : ImportMode.valueOf(modeName.toUpperCase(Locale.ENGLISH));
+        } catch (final IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown import mode: " + modeName);
+            return;
+        }
+
+        /*
+         * The body is spooled to a temporary file before the response is sent. Jetty does not deliver the
+         * rest of the body once the response has been committed, so reading it on the import thread would
+         * silently truncate the CSV, which would make a delta import delete the missing stations.
+         */
+        final File spool = File.createTempFile("network-import", gzip(request) ? ".csv.gz" : ".csv");
+        final ImportJobDTO job;
+        try {
+            copy(request.getInputStream(), spool);
+            job = service.submitImport(spool, gzip(request), mode, new Runnable() {
+                @Override
+                public void run() {
+                    delete(spool);
+                }
+            });
+        } catch (final IOException e) {
+            delete(spool);
+            throw e;
+        } catch (final RuntimeException e) {
+            delete(spool);
+            throw e;
+        }
+
+        final byte[] content = gson.toJson(job).getBytes("UTF-8");
+        response.setStatus(HttpServletResponse.SC_ACCEPTED);
+        response.setHeader("Location", request.getContextPath() + "/imports/" + job.getId());
+        response.setContentType(JSON_CONTENT_TYPE);
+        response.setContentLength(content.length);
+        response.getOutputStream().write(content);
+    }
+
+    /**
+     * RESTful WS service point to retrieve the progress of an import job.
+     *
+     * @param id The identifier of the job.
+     * @param response The HTTP response. (NonNull)
+     * @return The JSON representation of the {@link ImportJobDTO} or an empty string with
+     *         <tt>404 Not Found</tt> status if there is no such job. (NonNull)
+     */
+    @RequestMapping(value = "/imports/{id}", method = RequestMethod.GET, produces = JSON_CONTENT_TYPE)
+    public @ResponseBody String importJob(@PathVariable final long id, final HttpServletResponse response) {
+        return toJson(service.getImportJob(id), response);
+    }
+
+    /**
+     * RESTful WS service point to cancel an import job. The already committed chunks of the
+     * import remain in the database.
+     *
+     * @param id The identifier of the job.
+     * @param response The HTTP response. (NonNull)
+     * @return The JSON representation of the {@link ImportJobDTO} or an empty string with
+     *         <tt>404 Not Found</tt> status if there is no such job. (NonNull)
+     */
+    @RequestMapping(value = "/imports/{id}", method = RequestMethod.DELETE, produces = JSON_CONTENT_TYPE)
+    public @ResponseBody String cancelImportJob(@PathVariable final long id, final HttpServletResponse response) {
+        return toJson(service.cancelImportJob(id), response);
+    }
+
+    private String toJson(final ImportJobDTO job, final HttpServletResponse response) {
+        if (job == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return "";
+        }
+        return gson.toJson(job);
+    }
+
+    /**
+     * Reads a parameter from the query string only. {@link HttpServletRequest#getParameter(String)} must not
+     * be used, because it would consume the body of a request sent as a form.
+     *
+     * @param request The HTTP request. (NonNull)
+     * @param name The name of the parameter. (NonNull)
+     * @return The first value of the parameter or <tt>null</tt> if it is missing. (Nullable)
+     * @throws IOException If the query string cannot be decoded.
+     */
+    private static String queryParameter(final HttpServletRequest request, final String name) throws IOException {
+        final String queryString = request.getQueryString();
+        if (queryString == null) {
+            return null;
+        }
+        for (final String parameter : queryString.split("&")) {
+            final int separator = parameter.indexOf('=');
+            final String parameterName = separator < 0 ? parameter : parameter.substring(0, separator);
+            if (name.equals(URLDecoder.decode(parameterName, "UTF-8"))) {
+                return separator < 0 ? "" : URLDecoder.decode(parameter.substring(separator + 1), "UTF-8");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Copies the stream into the file and closes the stream.
+     *
+     * @param in The stream to copy. (NonNull)
+     * @param file The target file. (NonNull)
+     * @throws IOException If the stream cannot be read or the file cannot be written.
+     */
+    private static void copy(final InputStream in, final File file) throws IOException {
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            try {
+                out.close();
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    private static void delete(final File file) {
+        if (!file.delete()) {
+            LOG.warn("The temporary import file " + file + " cannot be deleted");
+        }
+    }
+
+    /**
+     * @param request The HTTP request. (NonNull)
+     * @return <tt>true</tt> if the body of the request is gzip compressed.
+     */
+    private static boolean gzip(final HttpServletRequest request) {
+        final String contentEncoding = request.getHeader("Content-Encoding");
+        if (contentEncoding != null) {
+            final String coding = contentEncoding.trim();
+            return "gzip".equalsIgnoreCase(coding) || "x-gzip".equalsIgnoreCase(coding);
+        }
+        final String contentType = request.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        final String mimeType = contentType.split(";")[0].trim();
+        return "application/gzip".equalsIgnoreCase(mimeType) || "application/x-gzip".equalsIgnoreCase(mimeType);
+    }
+
+}
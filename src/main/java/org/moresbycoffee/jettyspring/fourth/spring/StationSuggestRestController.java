@@ -0,0 +1,89 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.spring;
+
+import java.util.List;
+
+import org.moresbycoffee.jettyspring.fourth.beans.IStationSuggestService;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import com.google.gson.Gson;
+
+
+/**
+ * RESTful WebService controller of the station name autocompletion.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@Controller
+public class StationSuggestRestController {
+
+    /** The default number of the suggested stations. */
+    private static final int DEFAULT_LIMIT = 10;
+
+    /** The maximum number of the suggested stations. */
+    private static final int MAX_LIMIT = 100;
+
+    private final IStationSuggestService service;
+    private final Gson                   gson = new Gson();
+
+    /**
+     * @param service The business logic of the autocompletion.
+     */
+    @Autowired
+    public StationSuggestRestController(final IStationSuggestService service) {
+        super();
+        this.service = service;
+    }
+
+    /**
+     * RESTful WS service point to retrieve the stations the name of which starts with the prefix.
+     *
+     * @param prefix The prefix of the station name. (NonNull)
+     * @param limit The maximum number of the stations. (Nullable, {@value #DEFAULT_LIMIT} by default,
+     *              at most {@value #MAX_LIMIT})
+     * @return The JSON array of the matching stations in alphabetical order. (NonNull)
+     */
+    @RequestMapping(value = "/stations/suggest", method = RequestMethod.GET, produces = "application/json;charset=UTF-8")
+    public @ResponseBody String suggest(@RequestParam final String prefix, @RequestParam(required = false) final Integer limit) {
+        final int maxResults = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(MAX_LIMIT, limit.intValue()));
+        final List<StationDTO> stations = service.suggest(prefix, maxResults);
+        return gson.toJson(stations);
+    }
+
+}
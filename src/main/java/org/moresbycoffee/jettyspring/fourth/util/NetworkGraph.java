@@ -0,0 +1,375 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.util;
+
+import java.util.Arrays;
+
+import org.moresbycoffee.jettyspring.fourth.dal.NetworkHandler;
+
+
+/**
+ * Immutable, primitive indexed representation of the railway network.<br>
+ * The stations and the lines are identified by their positions (indices) in the graph.
+ * The station - line relation is stored in both directions in compressed sparse row (CSR)
+ * format: the lines of the station <tt>s</tt> are
+ * <tt>stationLines[stationLineOffsets[s] .. stationLineOffsets[s + 1])</tt> and the stations
+ * of the line <tt>l</tt> are <tt>lineStations[lineStationOffsets[l] .. lineStationOffsets[l + 1])</tt>.
+ * The graph is built by the {@link Builder} or read from a {@link NetworkGraphSnapshot} and it
+ * is never modified, so it can be shared between threads without synchronization.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class NetworkGraph {
+
+    /** Zone number of the stations without zone. */
+    public static final int NO_ZONE = -1;
+
+    /** The empty graph. */
+    public static final NetworkGraph EMPTY = new Builder().build();
+
+    /* The arrays are package private, so the NetworkGraphSnapshot can write them as they are. */
+
+    /** The identifiers of the stations in ascending order. (NonNull) */
+    final long[]   stationIds;
+    /** The names of the stations in the order of the {@link #stationIds}. (NonNull) */
+    final String[] stationNames;
+    /** The zone numbers of the stations or {@link #NO_ZONE} in the order of the {@link #stationIds}. (NonNull) */
+    final int[]    stationZones;
+    /** The names of the lines in ascending order of the line identifiers. (NonNull) */
+    final String[] lineNames;
+    /** The start of the row of every station in the {@link #stationLines}, followed by the end of the last row. (NonNull) */
+    final int[]    stationLineOffsets;
+    /** The line indices of the stations, row by row. (NonNull) */
+    final int[]    stationLines;
+    /** The start of the row of every line in the {@link #lineStations}, followed by the end of the last row. (NonNull) */
+    final int[]    lineStationOffsets;
+    /** The station indices of the lines, row by row. (NonNull) */
+    final int[]    lineStations;
+
+    /**
+     * @param stationIds The identifiers of the stations in ascending order. (NonNull)
+     * @param stationNames The names of the stations. (NonNull)
+     * @param stationZones The zone numbers of the stations or {@link #NO_ZONE}. (NonNull)
+     * @param lineNames The names of the lines. (NonNull)
+     * @param stationLineOffsets The row offsets of the station - line relation. (NonNull)
+     * @param stationLines The line indices of the station - line relation. (NonNull)
+     * @param lineStationOffsets The row offsets of the line - station relation. (NonNull)
+     * @param lineStations The station indices of the line - station relation. (NonNull)
+     */
+    NetworkGraph(final long[] stationIds, final String[] stationNames, final int[] stationZones, final String[] lineNames,
+                 final int[] stationLineOffsets, final int[] stationLines, final int[] lineStationOffsets, final int[] lineStations) {
+        this.stationIds = stationIds;
+        this.stationNames = stationNames;
+        this.stationZones = stationZones;
+        this.lineNames = lineNames;
+        this.stationLineOffsets = stationLineOffsets;
+        this.stationLines = stationLines;
+        this.lineStationOffsets = lineStationOffsets;
+        this.lineStations = lineStations;
+    }
+
+    /**
+     * @return The number of the stations in the graph.
+     */
+    public int stationCount() {
+        return stationIds.length;
+    }
+
+    /**
+     * @return The number of the lines in the graph.
+     */
+    public int lineCount() {
+        return lineNames.length;
+    }
+
+    /**
+     * @param stationId The identifier of the station.
+     * @return The index of the station or a negative number if there is no such station.
+     */
+    public int indexOfStation(final long stationId) {
+        final int index = Arrays.binarySearch(stationIds, stationId);
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * @param station The index of the station.
+     * @return The identifier of the station.
+     */
+    public long stationId(final int station) {
+        return stationIds[station];
+    }
+
+    /**
+     * @param station The index of the station.
+     * @return The name of the station. (NonNull)
+     */
+    public String stationName(final int station) {
+        return stationNames[station];
+    }
+
+    /**
+     * @param station The index of the station.
+     * @return The zone number of the station or {@link #NO_ZONE}.
+     */
+    public int stationZone(final int station) {
+        return stationZones[station];
+    }
+
+    /**
+     * @param line The index of the line.
+     * @return The name of the line. (NonNull)
+     */
+    public String lineName(final int line) {
+        return lineNames[line];
+    }
+
+    /**
+     * Finds the route between the two stations with the fewest changes using a breadth first
+     * search on the station - line graph. A route is a sequence of legs where each leg is a
+     * journey on one line.
+     *
+     * @param from The index of the departure station.
+     * @param to The index of the destination station.
+     * @return The legs of the route as <tt>{line, boarding station, alighting station}</tt> index triples
+     *         in the order of travel (empty if the two stations are the same) or <tt>null</tt> if the
+     *         destination cannot be reached. (Nullable)
+     */
+    public int[][] findRoute(final int from, final int to) {
+        if (from == to) {
+            return new int[0][];
+        }
+
+        /* The line through which the station has been reached first, -1 if not reached yet. */
+        final int[] reachedOn = new int[stationIds.length];
+        Arrays.fill(reachedOn, -1);
+        /* The station at which the line has been boarded first, -1 if not boarded yet. */
+        final int[] boardedAt = new int[lineNames.length];
+        Arrays.fill(boardedAt, -1);
+        final boolean[] visited = new boolean[stationIds.length];
+
+        /* Every station is enqueued at most once, so a plain array is enough for the queue. */
+        final int[] queue = new int[stationIds.length];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = from;
+        visited[from] = true;
+
+        search:
+        while (head < tail) {
+            final int station = queue[head++];
+            for (int i = stationLineOffsets[station]; i < stationLineOffsets[station + 1]; i++) {
+                final int line = stationLines[i];
+                if (boardedAt[line] >= 0) {
+                    continue;
+                }
+                boardedAt[line] = station;
+                for (int j = lineStationOffsets[line]; j < lineStationOffsets[line + 1]; j++) {
+                    final int next = lineStations[j];
+                    if (!visited[next]) {
+                        visited[next] = true;
+                        reachedOn[next] = line;
+                        if (next == to) {
+                            break search;
+                        }
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+
+        if (!visited[to]) {
+            return null;
+        }
+
+        int legCount = 0;
+        for (int station = to; station != from; station = boardedAt[reachedOn[station]]) {
+            legCount++;
+        }
+        final int[][] legs = new int[legCount][];
+        int station = to;
+        for (int i = legCount - 1; i >= 0; i--) {
+            final int line = reachedOn[station];
+            legs[i] = new int[] {line, boardedAt[line], station};
+            station = boardedAt[line];
+        }
+        return legs;
+    }
+
+    /**
+     * {@link NetworkHandler} which collects the network and builds the {@link NetworkGraph}.
+     * The memberships referring to unknown stations or lines are ignored and the duplicated
+     * memberships are merged. The builder is not thread safe.
+     */
+    public static final class Builder implements NetworkHandler {
+
+        /** The identifiers of the collected stations in the order of their arrival. (NonNull) */
+        private long[]   stationIds   = new long[16];
+        /** The names of the collected stations. (NonNull) */
+        private String[] stationNames = new String[16];
+        /** The zone numbers of the collected stations or {@link NetworkGraph#NO_ZONE}. (NonNull) */
+        private int[]    stationZones = new int[16];
+        /** The number of the collected stations. */
+        private int      stationCount;
+
+        /** The identifiers of the collected lines in the order of their arrival. (NonNull) */
+        private long[]   lineIds   = new long[16];
+        /** The names of the collected lines. (NonNull) */
+        private String[] lineNames = new String[16];
+        /** The number of the collected lines. */
+        private int      lineCount;
+
+        /** The memberships as <tt>stationId, lineId</tt> pairs. (NonNull) */
+        private long[]   memberships = new long[32];
+        /** The number of the used elements of the {@link #memberships}, twice the number of the memberships. */
+        private int      membershipCount;
+
+        /** {@inheritDoc} */
+        @Override
+        public void station(final long id, final String name, final Integer zoneNumber) {
+            if (stationCount == stationIds.length) {
+                stationIds = Arrays.copyOf(stationIds, stationCount * 2);
+                stationNames = Arrays.copyOf(stationNames, stationCount * 2);
+                stationZones = Arrays.copyOf(stationZones, stationCount * 2);
+            }
+            stationIds[stationCount] = id;
+            stationNames[stationCount] = name;
+            stationZones[stationCount] = zoneNumber == null ? NO_ZONE : zoneNumber.intValue();
+            stationCount++;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void line(final long id, final String name) {
+            if (lineCount == lineIds.length) {
+                lineIds = Arrays.copyOf(lineIds, lineCount * 2);
+                lineNames = Arrays.copyOf(lineNames, lineCount * 2);
+            }
+            lineIds[lineCount] = id;
+            lineNames[lineCount] = name;
+            lineCount++;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void membership(final long stationId, final long lineId) {
+            if (membershipCount + 2 > memberships.length) {
+                memberships = Arrays.copyOf(memberships, memberships.length * 2);
+            }
+            memberships[membershipCount++] = stationId;
+            memberships[membershipCount++] = lineId;
+        }
+
+        /**
+         * @return The graph of the collected network. (NonNull)
+         */
+        public NetworkGraph build() {
+            /* Order the stations and the lines by their identifiers, so they can be found by binary search. */
+            final int[] stationOrder = sortedOrder(stationIds, stationCount);
+            final long[] sortedStationIds = new long[stationCount];
+            final String[] sortedStationNames = new String[stationCount];
+            final int[] sortedStationZones = new int[stationCount];
+            for (int i = 0; i < stationCount; i++) {
+                sortedStationIds[i] = stationIds[stationOrder[i]];
+                sortedStationNames[i] = stationNames[stationOrder[i]];
+                sortedStationZones[i] = stationZones[stationOrder[i]];
+            }
+
+            final int[] lineOrder = sortedOrder(lineIds, lineCount);
+            final long[] sortedLineIds = new long[lineCount];
+            final String[] sortedLineNames = new String[lineCount];
+            for (int i = 0; i < lineCount; i++) {
+                sortedLineIds[i] = lineIds[lineOrder[i]];
+                sortedLineNames[i] = lineNames[lineOrder[i]];
+            }
+
+            /* Resolve the memberships to (station index, line index) pairs, dropping the unknown and duplicated ones. */
+            final int pairCount = membershipCount / 2;
+            final long[] pairs = new long[pairCount];
+            int resolvedCount = 0;
+            for (int i = 0; i < pairCount; i++) {
+                final int station = Arrays.binarySearch(sortedStationIds, memberships[2 * i]);
+                final int line = Arrays.binarySearch(sortedLineIds, memberships[2 * i + 1]);
+                if (station >= 0 && line >= 0) {
+                    pairs[resolvedCount++] = ((long) station << 32) | line;
+                }
+            }
+            Arrays.sort(pairs, 0, resolvedCount);
+            int uniqueCount = 0;
+            for (int i = 0; i < resolvedCount; i++) {
+                if (uniqueCount == 0 || pairs[uniqueCount - 1] != pairs[i]) {
+                    pairs[uniqueCount++] = pairs[i];
+                }
+            }
+
+            /* The pairs are ordered by station, so the station -> line rows can be filled in order. */
+            final int[] stationLineOffsets = new int[stationCount + 1];
+            final int[] stationLines = new int[uniqueCount];
+            final int[] lineStationOffsets = new int[lineCount + 1];
+            for (int i = 0; i < uniqueCount; i++) {
+                stationLineOffsets[(int) (pairs[i] >>> 32) + 1]++;
+                lineStationOffsets[(int) pairs[i] + 1]++;
+                stationLines[i] = (int) pairs[i];
+            }
+            for (int i = 0; i < stationCount; i++) {
+                stationLineOffsets[i + 1] += stationLineOffsets[i];
+            }
+            for (int i = 0; i < lineCount; i++) {
+                lineStationOffsets[i + 1] += lineStationOffsets[i];
+            }
+            final int[] lineStations = new int[uniqueCount];
+            final int[] lineFill = Arrays.copyOf(lineStationOffsets, lineCount);
+            for (int i = 0; i < uniqueCount; i++) {
+                lineStations[lineFill[(int) pairs[i]]++] = (int) (pairs[i] >>> 32);
+            }
+
+            return new NetworkGraph(sortedStationIds, sortedStationNames, sortedStationZones, sortedLineNames,
+                                    stationLineOffsets, stationLines, lineStationOffsets, lineStations);
+        }
+
+        /**
+         * @param ids The unique identifiers. (NonNull)
+         * @param count The number of the used elements of the <tt>ids</tt>.
+         * @return The positions of the identifiers in ascending order of the identifiers. (NonNull)
+         */
+        private static int[] sortedOrder(final long[] ids, final int count) {
+            final long[] sorted = Arrays.copyOf(ids, count);
+            Arrays.sort(sorted);
+            final int[] order = new int[count];
+            for (int i = 0; i < count; i++) {
+                order[Arrays.binarySearch(sorted, ids[i])] = i;
+            }
+            return order;
+        }
+
+    }
+
+}
@@ -0,0 +1,340 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+
+/**
+ * Binary snapshot file of a {@link NetworkGraph}, so the graph can be restored at startup
+ * without reaching the database.<br>
+ * The file is memory mapped and its arrays are copied directly into the graph, only the names
+ * are decoded. All the numbers are big endian. The layout of the version {@value #FORMAT_VERSION}
+ * is the following:
+ * <pre>
+ * int    magic ({@value #MAGIC}), format version, station count (S), line count (L),
+ *        membership count (M), string table size in bytes (B)
+ * long[] station identifiers           [S]
+ * int[]  station zones                 [S]
+ * int[]  string table offsets          [S + L + 1] (the station names, then the line names)
+ * int[]  station -&gt; line offsets      [S + 1]
+ * int[]  station -&gt; line indices      [M]
+ * int[]  line -&gt; station offsets      [L + 1]
+ * int[]  line -&gt; station indices      [M]
+ * byte[] string table, UTF-8           [B]
+ * long   CRC32 checksum of all the preceding bytes
+ * </pre>
+ * A snapshot is written into a temporary file which is renamed when it is complete, so a
+ * crash during the write never leaves a partial snapshot behind.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class NetworkGraphSnapshot {
+
+    /** The snapshot which is never read and written. */
+    public static final NetworkGraphSnapshot DISABLED = new NetworkGraphSnapshot(null);
+
+    /** The first four bytes of the file (<tt>NWGS</tt>). */
+    static final int MAGIC = 0x4E574753;
+
+    /** The version of the file format. The files of the other versions are not read. */
+    static final int FORMAT_VERSION = 1;
+
+    /** The encoding of the names. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int HEADER_SIZE   = 6 * 4;
+    private static final int CHECKSUM_SIZE = 8;
+
+    /** The size of the buffers of the file writing and the checksum calculation. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+
+    /**
+     * @param file The snapshot file. It does not have to exist. (NonNull)
+     */
+    public NetworkGraphSnapshot(final File file) {
+        super();
+        this.file = file;
+    }
+
+    /**
+     * @return The snapshot file or <tt>null</tt> if the snapshot is {@link #DISABLED}. (Nullable)
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the graph from the snapshot file.
+     *
+     * @return The graph or <tt>null</tt> if the snapshot is disabled or the file does not exist. (Nullable)
+     * @throws IOException If the file cannot be read, it is not a snapshot of the supported version or
+     *                     it is corrupt (its size, checksum or content is invalid).
+     */
+    public NetworkGraph read() throws IOException {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = input.getChannel();
+            final long size = channel.size();
+            if (size < HEADER_SIZE + CHECKSUM_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid network snapshot size: " + size + " bytes");
+            }
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Writes the graph into the snapshot file, replacing the previous snapshot.
+     * Does nothing if the snapshot is disabled.
+     *
+     * @param graph The graph to write. (NonNull)
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized void write(final NetworkGraph graph) throws IOException {
+        if (file == null) {
+            return;
+        }
+        final File directory = file.getAbsoluteFile().getParentFile();
+        final File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            final CRC32 crc = new CRC32();
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(new FileOutputStream(temporary), crc), BUFFER_SIZE));
+            try {
+                encode(graph, out, crc);
+            } finally {
+                out.close();
+            }
+            /* renameTo() does not replace the existing file on every platform. */
+            if (!temporary.renameTo(file) && !(file.delete() && temporary.renameTo(file))) {
+                throw new IOException("The network snapshot cannot be moved to " + file);
+            }
+        } finally {
+            if (temporary.exists() && !temporary.delete()) {
+                temporary.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * @param graph The graph to encode. (NonNull)
+     * @param out The stream to write into. (NonNull)
+     * @param crc The checksum which is calculated by the underlying stream of the <tt>out</tt>. (NonNull)
+     * @throws IOException If the stream cannot be written.
+     */
+    private static void encode(final NetworkGraph graph, final DataOutputStream out, final CRC32 crc) throws IOException {
+        final int stationCount = graph.stationIds.length;
+        final int lineCount = graph.lineNames.length;
+
+        final byte[][] names = new byte[stationCount + lineCount][];
+        int stringBytes = 0;
+        for (int i = 0; i < names.length; i++) {
+            names[i] = (i < stationCount ? graph.stationNames[i] : graph.lineNames[i - stationCount]).getBytes(UTF8);
+            stringBytes += names[i].length;
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(stationCount);
+        out.writeInt(lineCount);
+        out.writeInt(graph.stationLines.length);
+        out.writeInt(stringBytes);
+
+        for (final long stationId : graph.stationIds) {
+            out.writeLong(stationId);
+        }
+        writeInts(out, graph.stationZones);
+        int offset = 0;
+        for (final byte[] name : names) {
+            out.writeInt(offset);
+            offset += name.length;
+        }
+        out.writeInt(offset);
+        writeInts(out, graph.stationLineOffsets);
+        writeInts(out, graph.stationLines);
+        writeInts(out, graph.lineStationOffsets);
+        writeInts(out, graph.lineStations);
+        for (final byte[] name : names) {
+            out.write(name);
+        }
+
+        /* All the content has passed through the checksum when it is flushed. */
+        out.flush();
+        out.writeLong(crc.getValue());
+    }
+
+    /**
+     * @param buffer The content of the snapshot file. (NonNull)
+     * @return The decoded graph. (NonNull)
+     * @throws IOException If the content is not a valid snapshot.
+     */
+    private static NetworkGraph decode(final ByteBuffer buffer) throws IOException {
+        final int size = buffer.limit();
+        final long storedChecksum = buffer.getLong(size - CHECKSUM_SIZE);
+        if (storedChecksum != checksum(buffer, size - CHECKSUM_SIZE)) {
+            throw new IOException("Invalid network snapshot checksum");
+        }
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a network snapshot");
+        }
+        final int formatVersion = buffer.getInt();
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported network snapshot version: " + formatVersion);
+        }
+        final int stationCount = buffer.getInt();
+        final int lineCount = buffer.getInt();
+        final int membershipCount = buffer.getInt();
+        final int stringBytes = buffer.getInt();
+        if (stationCount < 0 || lineCount < 0 || membershipCount < 0 || stringBytes < 0) {
+            throw new IOException("Invalid network snapshot header");
+        }
+        final long expectedSize = HEADER_SIZE + 8L * stationCount
+                + 4L * (stationCount + (stationCount + lineCount + 1) + (stationCount + 1) + membershipCount + (lineCount + 1) + membershipCount)
+                + stringBytes + CHECKSUM_SIZE;
+        if (expectedSize != size) {
+            throw new IOException("Invalid network snapshot size: " + size + " bytes instead of " + expectedSize);
+        }
+
+        final long[] stationIds = new long[stationCount];
+        buffer.asLongBuffer().get(stationIds);
+        buffer.position(buffer.position() + 8 * stationCount);
+        final int[] stationZones = readInts(buffer, stationCount);
+        final int[] stringOffsets = readInts(buffer, stationCount + lineCount + 1);
+        final int[] stationLineOffsets = readInts(buffer, stationCount + 1);
+        final int[] stationLines = readInts(buffer, membershipCount);
+        final int[] lineStationOffsets = readInts(buffer, lineCount + 1);
+        final int[] lineStations = readInts(buffer, membershipCount);
+        final byte[] strings = new byte[stringBytes];
+        buffer.get(strings);
+
+        for (int i = 1; i < stationCount; i++) {
+            if (stationIds[i - 1] >= stationIds[i]) {
+                throw new IOException("The stations of the network snapshot are not ordered by their identifiers");
+            }
+        }
+        checkOffsets(stringOffsets, stringBytes);
+        checkOffsets(stationLineOffsets, membershipCount);
+        checkOffsets(lineStationOffsets, membershipCount);
+        checkIndices(stationLines, lineCount);
+        checkIndices(lineStations, stationCount);
+
+        final String[] stationNames = new String[stationCount];
+        for (int i = 0; i < stationCount; i++) {
+            stationNames[i] = new String(strings, stringOffsets[i], stringOffsets[i + 1] - stringOffsets[i], UTF8);
+        }
+        final String[] lineNames = new String[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            final int index = stationCount + i;
+            lineNames[i] = new String(strings, stringOffsets[index], stringOffsets[index + 1] - stringOffsets[index], UTF8);
+        }
+
+        return new NetworkGraph(stationIds, stationNames, stationZones, lineNames, stationLineOffsets, stationLines, lineStationOffsets, lineStations);
+    }
+
+    private static void writeInts(final DataOutputStream out, final int[] values) throws IOException {
+        for (final int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Reads the integers from the actual position of the buffer and moves the position after them.
+     */
+    private static int[] readInts(final ByteBuffer buffer, final int count) {
+        final int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * count);
+        return values;
+    }
+
+    /**
+     * Checks that the offsets start from zero, never decrease and end at the given size.
+     */
+    private static void checkOffsets(final int[] offsets, final int size) throws IOException {
+        if (offsets[0] != 0 || offsets[offsets.length - 1] != size) {
+            throw new IOException("Invalid network snapshot offsets");
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i - 1] > offsets[i]) {
+                throw new IOException("Invalid network snapshot offsets");
+            }
+        }
+    }
+
+    /**
+     * Checks that all the indices are in the <tt>[0, count)</tt> range.
+     */
+    private static void checkIndices(final int[] indices, final int count) throws IOException {
+        for (final int index : indices) {
+            if (index < 0 || index >= count) {
+                throw new IOException("Invalid network snapshot index: " + index);
+            }
+        }
+    }
+
+    /**
+     * @param buffer The buffer. Its position is not changed. (NonNull)
+     * @param length The number of the bytes from the beginning of the buffer to check.
+     * @return The CRC32 checksum of the bytes.
+     */
+    private static long checksum(final ByteBuffer buffer, final int length) {
+        final CRC32 crc = new CRC32();
+        final ByteBuffer content = buffer.duplicate();
+        final byte[] chunk = new byte[BUFFER_SIZE];
+        int remaining = length;
+        while (remaining > 0) {
+            final int chunkSize = Math.min(remaining, chunk.length);
+            content.get(chunk, 0, chunkSize);
+            crc.update(chunk, 0, chunkSize);
+            remaining -= chunkSize;
+        }
+        return crc.getValue();
+    }
+
+}
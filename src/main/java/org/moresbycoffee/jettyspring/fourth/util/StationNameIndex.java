@@ -0,0 +1,255 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.util;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDTO;
+
+
+/**
+ * Immutable in-memory prefix index of the station names.<br>
+ * The normalised names are stored in a sorted array, so the stations starting with a prefix
+ * are found by a binary search and the matches are read sequentially from the found position.
+ * The index is never modified, the changes are applied by creating a new index with
+ * {@link #withChanges(Map)}, which merges the changes into the existing sorted arrays without
+ * sorting them again.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class StationNameIndex {
+
+    /** The empty index. */
+    public static final StationNameIndex EMPTY = new StationNameIndex(new String[0], new long[0], new String[0]);
+
+    /** The combining diacritical marks removed by the normalisation. */
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
+    /** The characters removed by the normalisation. */
+    private static final Pattern PUNCTUATION = Pattern.compile("[^\\p{L}\\p{N} ]+");
+
+    /** The whitespaces collapsed by the normalisation. */
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+
+    /** Orders the entries by the normalised name and then by the identifier. */
+    private static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>() {
+
+        @Override
+        public int compare(final Entry o1, final Entry o2) {
+            final int keyOrder = o1.key.compareTo(o2.key);
+            if (keyOrder != 0) {
+                return keyOrder;
+            }
+            return o1.id < o2.id ? -1 : (o1.id == o2.id ? 0 : 1);
+        }
+
+    };
+
+    /** Temporary entry used during the build of an index. */
+    private static final class Entry {
+
+        /** The normalised name. */
+        private final String key;
+        /** The identifier of the station. */
+        private final long   id;
+        /** The original name of the station. */
+        private final String name;
+
+        /**
+         * @param key The normalised name. (NonNull)
+         * @param id The identifier of the station.
+         * @param name The original name of the station. (NonNull)
+         */
+        Entry(final String key, final long id, final String name) {
+            this.key = key;
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+    /** The normalised names in ascending order. */
+    private final String[] keys;
+    /** The identifiers of the stations in the order of the {@link #keys}. */
+    private final long[]   ids;
+    /** The original names of the stations in the order of the {@link #keys}. */
+    private final String[] names;
+
+    /**
+     * @param keys The normalised names in ascending order. (NonNull)
+     * @param ids The identifiers of the stations in the order of the keys. (NonNull)
+     * @param names The original names of the stations in the order of the keys. (NonNull)
+     */
+    private StationNameIndex(final String[] keys, final long[] ids, final String[] names) {
+        this.keys = keys;
+        this.ids = ids;
+        this.names = names;
+    }
+
+    /**
+     * Builds a new index.
+     *
+     * @param stations The stations to index. (NonNull)
+     * @return The new index. (NonNull)
+     */
+    public static StationNameIndex build(final Collection<StationDTO> stations) {
+        final List<Entry> entries = new ArrayList<Entry>(stations.size());
+        for (final StationDTO station : stations) {
+            entries.add(new Entry(normalize(station.getName()), station.getId().longValue(), station.getName()));
+        }
+        Collections.sort(entries, ENTRY_ORDER);
+        return fromSortedEntries(entries);
+    }
+
+    /**
+     * Creates a new index by applying the changes to this index.
+     * The cost is linear in the size of the index plus <tt>k log k</tt> for <tt>k</tt> changes.
+     *
+     * @param changes The changed stations by their identifiers. The value is the new state of
+     *                the station or <tt>null</tt> if the station has been deleted. (NonNull)
+     * @return The new index. (NonNull)
+     */
+    public StationNameIndex withChanges(final Map<Long, StationDTO> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+
+        final List<Entry> added = new ArrayList<Entry>(changes.size());
+        for (final StationDTO station : changes.values()) {
+            if (station != null) {
+                added.add(new Entry(normalize(station.getName()), station.getId().longValue(), station.getName()));
+            }
+        }
+        Collections.sort(added, ENTRY_ORDER);
+
+        /* Merge the kept entries of this index with the added ones. */
+        final List<Entry> merged = new ArrayList<Entry>(keys.length + added.size());
+        int addedIndex = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (changes.containsKey(Long.valueOf(ids[i]))) {
+                continue;
+            }
+            final Entry kept = new Entry(keys[i], ids[i], names[i]);
+            while (addedIndex < added.size() && ENTRY_ORDER.compare(added.get(addedIndex), kept) < 0) {
+                merged.add(added.get(addedIndex++));
+            }
+            merged.add(kept);
+        }
+        while (addedIndex < added.size()) {
+            merged.add(added.get(addedIndex++));
+        }
+
+        return fromSortedEntries(merged);
+    }
+
+    /**
+     * Returns the stations the normalised name of which starts with the normalised prefix.
+     *
+     * @param prefix The prefix of the station name. (NonNull)
+     * @param limit The maximum number of the returned stations.
+     * @return The matching stations in the order of their normalised names. (NonNull)
+     */
+    public List<StationDTO> suggest(final String prefix, final int limit) {
+        final String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        int position = Arrays.binarySearch(keys, key);
+        if (position < 0) {
+            position = -position - 1;
+        } else {
+            /* Step back to the first of the equal keys. */
+            while (position > 0 && keys[position - 1].equals(key)) {
+                position--;
+            }
+        }
+
+        final List<StationDTO> result = new ArrayList<StationDTO>(Math.min(limit, 16));
+        for (int i = position; i < keys.length && result.size() < limit && keys[i].startsWith(key); i++) {
+            result.add(new StationDTO(Long.valueOf(ids[i]), names[i]));
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of the indexed stations.
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Normalises a station name or prefix: removes the accents and the punctuation,
+     * collapses the whitespaces and converts it to lower case.
+     *
+     * @param name The name to normalise. (Nullable)
+     * @return The normalised name. (NonNull)
+     */
+    public static String normalize(final String name) {
+        if (name == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(name, Normalizer.Form.NFD);
+        normalized = DIACRITICS.matcher(normalized).replaceAll("");
+        normalized = PUNCTUATION.matcher(normalized).replaceAll("");
+        normalized = WHITESPACES.matcher(normalized).replaceAll(" ");
+        return normalized.trim().toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * @param entries The sorted entries. (NonNull)
+     * @return The index of the entries. (NonNull)
+     */
+    private static StationNameIndex fromSortedEntries(final List<Entry> entries) {
+        final int size = entries.size();
+        final String[] keys  = new String[size];
+        final long[]   ids   = new long[size];
+        final String[] names = new String[size];
+        for (int i = 0; i < size; i++) {
+            final Entry entry = entries.get(i);
+            keys[i]  = entry.key;
+            ids[i]   = entry.id;
+            names[i] = entry.name;
+        }
+        return new StationNameIndex(keys, ids, names);
+    }
+
+}
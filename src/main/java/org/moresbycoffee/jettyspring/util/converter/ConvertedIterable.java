@@ -0,0 +1,107 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import java.util.Iterator;
+
+
+/**
+ * Read-only view of an {@link Iterable} which converts the elements by a {@link Converter}
+ * while they are iterated. The converted elements are not stored: every iteration converts
+ * them again, so the view is suitable for iterating once (e.g. serializing) without holding
+ * the converted copy of the whole source.<br>
+ * The view reflects the changes of the source.
+ *
+ * @param <F> The type of the source elements.
+ * @param <T> The type of the converted elements.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ConvertedIterable<F, T> implements Iterable<T> {
+
+    private final Iterable<F>     from;
+    private final Converter<F, T> converter;
+
+    /**
+     * @param from The source. (NonNull)
+     * @param converter The converter of the elements. (NonNull)
+     */
+    public ConvertedIterable(final Iterable<F> from, final Converter<F, T> converter) {
+        super();
+        this.from = from;
+        this.converter = converter;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Iterator<T> iterator() {
+        return new ConvertedIterator<F, T>(from.iterator(), converter);
+    }
+
+    /**
+     * Read-only iterator which converts the elements of the source iterator in {@link #next()}.
+     *
+     * @param <F> The type of the source elements.
+     * @param <T> The type of the converted elements.
+     */
+    static final class ConvertedIterator<F, T> implements Iterator<T> {
+
+        private final Iterator<F>     from;
+        private final Converter<F, T> converter;
+
+        /**
+         * @param from The source iterator. (NonNull)
+         * @param converter The converter of the elements. (NonNull)
+         */
+        ConvertedIterator(final Iterator<F> from, final Converter<F, T> converter) {
+            this.from = from;
+            this.converter = converter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return from.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return converter.convert(from.next());
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+
+
+/**
+ * Read-only view of a {@link List} which converts the elements by a {@link Converter} when
+ * they are accessed, so only the accessed elements are converted and the converted copy of the
+ * whole list is never held.<br>
+ * By default an element is converted at every access. In memoising mode the converted elements
+ * are stored at their first access, so every element is converted at most once and the same
+ * instance is returned at every access; then the view must not be used after the source has
+ * been structurally modified. The memoising view is not thread safe.
+ *
+ * @param <F> The type of the source elements.
+ * @param <T> The type of the converted elements.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ConvertedList<F, T> extends AbstractList<T> {
+
+    private final List<F>         from;
+    private final Converter<F, T> converter;
+
+    /** The converted elements by their indices in memoising mode, <tt>null</tt> otherwise. */
+    private final Object[]        converted;
+    /** Whether the element of the index has been converted in memoising mode, <tt>null</tt> otherwise. */
+    private final boolean[]       convertedFlags;
+
+    /**
+     * @param from The source list. (NonNull)
+     * @param converter The converter of the elements. (NonNull)
+     * @param memoising <tt>true</tt> if the converted elements have to be stored at their first access.
+     */
+    public ConvertedList(final List<F> from, final Converter<F, T> converter, final boolean memoising) {
+        super();
+        this.from = from;
+        this.converter = converter;
+        this.converted = memoising ? new Object[from.size()] : null;
+        this.convertedFlags = memoising ? new boolean[from.size()] : null;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public T get(final int index) {
+        if (converted == null) {
+            return converter.convert(from.get(index));
+        }
+        return memoised(index, from.get(index));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return from.size();
+    }
+
+    /**
+     * Iterates over the source by its own iterator, so the iteration of a not random access
+     * source (e.g. {@link java.util.LinkedList}) remains linear.
+     *
+     * @return The iterator of the converted elements. (NonNull)
+     */
+    @Override
+    public Iterator<T> iterator() {
+        if (converted == null) {
+            return new ConvertedIterable.ConvertedIterator<F, T>(from.iterator(), converter);
+        }
+        final Iterator<F> source = from.iterator();
+        return new Iterator<T>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return memoised(index++, source.next());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+    }
+
+    /**
+     * @param index The index of the element.
+     * @param element The source element of the index.
+     * @return The stored converted element or the converted and stored element.
+     */
+    private T memoised(final int index, final F element) {
+        if (!convertedFlags[index]) {
+            converted[index] = converter.convert(element);
+            convertedFlags[index] = true;
+        }
+        @SuppressWarnings("unchecked")
+        final T result = (T) converted[index];
+        return result;
+    }
+
+}
@@ -0,0 +1,328 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+
+/**
+ * Immutable chain of {@link Converter}s and {@link Filter}s which processes a stream of elements
+ * one by one, so neither the source nor the converted elements are collected in the memory.<br>
+ * The pipeline can push the elements of a source into a {@link Sink}, or it can convert an
+ * {@link Iterator} or a {@link Spliterator} lazily. E.g. the rows of a database cursor can be
+ * written straight into the response:
+ * <pre>
+ * ConverterPipeline.of(StationToDtoConverter.getInstance())
+ *                  .filter(namePrefix)
+ *                  .push(new ScrollableResultsIterator&lt;Station&gt;(results), jsonWriterSink);
+ * </pre>
+ * A pipeline is thread safe if its converters and filters are, but the iterators, spliterators
+ * and sinks created by it are not.
+ *
+ * @param <F> The type of the source elements.
+ * @param <T> The type of the converted elements.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public abstract class ConverterPipeline<F, T> {
+
+    /** Whether the pipeline may drop elements, so it can produce less elements than its source. */
+    private final boolean filtering;
+
+    /**
+     * @param filtering Whether the pipeline may drop elements.
+     */
+    private ConverterPipeline(final boolean filtering) {
+        super();
+        this.filtering = filtering;
+    }
+
+    /**
+     * @param <T> The type of the elements.
+     * @return The pipeline which passes the elements unchanged. (NonNull)
+     */
+    public static <T> ConverterPipeline<T, T> identity() {
+        return new ConverterPipeline<T, T>(false) {
+
+            @Override
+            public Sink<T> into(final Sink<? super T> sink) {
+                @SuppressWarnings("unchecked")
+                final Sink<T> result = (Sink<T>) sink;
+                return result;
+            }
+
+        };
+    }
+
+    /**
+     * @param <F> The type of the source elements.
+     * @param <T> The type of the converted elements.
+     * @param converter The converter of the elements. (NonNull)
+     * @return The pipeline which converts the elements by the converter. (NonNull)
+     */
+    public static <F, T> ConverterPipeline<F, T> of(final Converter<F, T> converter) {
+        return ConverterPipeline.<F>identity().andThen(converter);
+    }
+
+    /**
+     * @param <R> The type of the elements converted by the new converter.
+     * @param converter The converter which converts the elements converted by this pipeline. (NonNull)
+     * @return The new pipeline which converts the elements by this pipeline and then by the converter. (NonNull)
+     */
+    public <R> ConverterPipeline<F, R> andThen(final Converter<? super T, ? extends R> converter) {
+        final ConverterPipeline<F, T> upstream = this;
+        return new ConverterPipeline<F, R>(filtering) {
+
+            @Override
+            public Sink<F> into(final Sink<? super R> sink) {
+                return upstream.into(new Sink<T>() {
+
+                    @Override
+                    public void handle(final T element) {
+                        sink.handle(converter.convert(element));
+                    }
+
+                });
+            }
+
+        };
+    }
+
+    /**
+     * @param filter The filter of the elements converted by this pipeline. (NonNull)
+     * @return The new pipeline which drops the converted elements not accepted by the filter. (NonNull)
+     */
+    public ConverterPipeline<F, T> filter(final Filter<? super T> filter) {
+        final ConverterPipeline<F, T> upstream = this;
+        return new ConverterPipeline<F, T>(true) {
+
+            @Override
+            public Sink<F> into(final Sink<? super T> sink) {
+                return upstream.into(new Sink<T>() {
+
+                    @Override
+                    public void handle(final T element) {
+                        if (filter.accept(element)) {
+                            sink.handle(element);
+                        }
+                    }
+
+                });
+            }
+
+        };
+    }
+
+    /**
+     * Creates the push style entry point of the pipeline.
+     *
+     * @param sink The sink which receives the converted and accepted elements. (NonNull)
+     * @return The sink which converts and filters the source elements and passes the remaining ones to the <tt>sink</tt>. (NonNull)
+     */
+    public abstract Sink<F> into(Sink<? super T> sink);
+
+    /**
+     * Converts all the remaining elements of the source and passes the accepted ones to the sink
+     * in the order of the source.
+     *
+     * @param source The source elements. (NonNull)
+     * @param sink The sink which receives the converted and accepted elements. (NonNull)
+     * @throws ConverterException If any of the converters fails, the further elements are not read.
+     */
+    public void push(final Iterator<? extends F> source, final Sink<? super T> sink) {
+        final Sink<F> input = into(sink);
+        while (source.hasNext()) {
+            input.handle(source.next());
+        }
+    }
+
+    /**
+     * @param source The source elements. (NonNull)
+     * @return The read-only iterator which converts and filters the source elements when they are read. (NonNull)
+     */
+    public Iterator<T> iterator(final Iterator<? extends F> source) {
+        return new PipelineIterator<F, T>(this, source);
+    }
+
+    /**
+     * The converted spliterator can be split as the source can. It is never {@link Spliterator#SORTED},
+     * {@link Spliterator#DISTINCT} or {@link Spliterator#NONNULL}, and it is not
+     * {@link Spliterator#SIZED} if the pipeline contains a filter.
+     *
+     * @param source The source elements. (NonNull)
+     * @return The spliterator which converts and filters the source elements when they are read. (NonNull)
+     */
+    public Spliterator<T> spliterator(final Spliterator<F> source) {
+        return new PipelineSpliterator<F, T>(this, source);
+    }
+
+    /**
+     * Holds the one element produced by a source element, because a source element can
+     * produce at most one converted element.
+     *
+     * @param <T> The type of the converted elements.
+     */
+    private static class Slot<T> implements Sink<T> {
+
+        /** The converted element if {@link #full}. */
+        T       element;
+        /** Whether the slot contains a converted element which has not been read yet. */
+        boolean full;
+
+        @Override
+        public void handle(final T converted) {
+            element = converted;
+            full = true;
+        }
+
+        /**
+         * @return The converted element, the slot becomes empty.
+         */
+        T take() {
+            final T result = element;
+            element = null;
+            full = false;
+            return result;
+        }
+
+    }
+
+    /**
+     * Iterator which pushes the source elements into the pipeline until a converted element arrives.
+     *
+     * @param <F> The type of the source elements.
+     * @param <T> The type of the converted elements.
+     */
+    private static final class PipelineIterator<F, T> implements Iterator<T> {
+
+        private final Iterator<? extends F> source;
+        private final Slot<T>               slot  = new Slot<T>();
+        private final Sink<F>               input;
+
+        /**
+         * @param pipeline The pipeline of the conversion. (NonNull)
+         * @param source The source elements. (NonNull)
+         */
+        PipelineIterator(final ConverterPipeline<F, T> pipeline, final Iterator<? extends F> source) {
+            this.source = source;
+            this.input = pipeline.into(slot);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!slot.full && source.hasNext()) {
+                input.handle(source.next());
+            }
+            return slot.full;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return slot.take();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+    /**
+     * Spliterator which pushes the source elements into the pipeline until a converted element arrives.
+     *
+     * @param <F> The type of the source elements.
+     * @param <T> The type of the converted elements.
+     */
+    private static final class PipelineSpliterator<F, T> implements Spliterator<T>, Consumer<F> {
+
+        /** The characteristics which are never kept by the conversion. */
+        private static final int CONVERTED_CHARACTERISTICS = ~(SORTED | DISTINCT | NONNULL);
+        /** The characteristics which are not kept by the filters. */
+        private static final int FILTERED_CHARACTERISTICS  = CONVERTED_CHARACTERISTICS & ~(SIZED | SUBSIZED);
+
+        private final ConverterPipeline<F, T> pipeline;
+        private final Spliterator<F>          source;
+        private final Slot<T>                 slot = new Slot<T>();
+        private final Sink<F>                 input;
+
+        /**
+         * @param pipeline The pipeline of the conversion. (NonNull)
+         * @param source The source elements. (NonNull)
+         */
+        PipelineSpliterator(final ConverterPipeline<F, T> pipeline, final Spliterator<F> source) {
+            this.pipeline = pipeline;
+            this.source = source;
+            this.input = pipeline.into(slot);
+        }
+
+        @Override
+        public void accept(final F element) {
+            input.handle(element);
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super T> action) {
+            while (!slot.full) {
+                if (!source.tryAdvance(this)) {
+                    return false;
+                }
+            }
+            action.accept(slot.take());
+            return true;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            final Spliterator<F> prefix = source.trySplit();
+            return prefix == null ? null : new PipelineSpliterator<F, T>(pipeline, prefix);
+        }
+
+        @Override
+        public long estimateSize() {
+            return source.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return source.characteristics() & (pipeline.filtering ? FILTERED_CHARACTERISTICS : CONVERTED_CHARACTERISTICS);
+        }
+
+    }
+
+}
@@ -32,8 +32,11 @@ package org.moresbycoffee.jettyspring.util.converter;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This utility class contains a couple of predefined {@link Converter}s and
@@ -44,6 +47,12 @@ import java.util.List;
  */
 public final class Converters {
 
+    /**
+     * The default number of the elements above which the parallel conversions split the work.
+     * Below that the cost of the distribution exceeds the gain of the parallel conversion
+     * (see the <tt>ConvertersBenchmark</tt>).
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 10000;
 
     /**
      * Trims a string using {@link String#trim()} method.
@@ -60,6 +69,32 @@ public final class Converters {
 
     };
 
+    /**
+     * Parses the decimal <tt>int</tt> value of a string ignoring its leading and trailing whitespaces.
+     * Unlike <tt>Integer.valueOf(s.trim())</tt> neither the trimmed string nor the result is allocated.
+     */
+    public static final ToIntConverter<String> PARSE_INT = new ToIntConverter<String>() {
+
+        @Override
+        public int convert(final String from) throws ConverterException {
+            return (int) parseLong(from, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+    };
+
+    /**
+     * Parses the decimal <tt>long</tt> value of a string ignoring its leading and trailing whitespaces.
+     * Unlike <tt>Long.valueOf(s.trim())</tt> neither the trimmed string nor the result is allocated.
+     */
+    public static final ToLongConverter<String> PARSE_LONG = new ToLongConverter<String>() {
+
+        @Override
+        public long convert(final String from) throws ConverterException {
+            return parseLong(from, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+    };
+
     /**
      * Converts an array of object by the converter.
      *
@@ -87,9 +122,89 @@ public final class Converters {
 
 
     /**
-     * Converts a list of objects. The result will be in an ArrayList.
+     * Converts the objects to a primitive array, so the converted values are not boxed.
+     *
+     * @param <F> The type of the object which will be converted.
+     * @param from The collection of the convertable object.
+     * @param converter The converter which converts the elements of the collection.
+     * @return The array of the converted values in the iteration order of the <tt>from</tt>
+     *         or <tt>null</tt> if the <tt>from</tt> is <tt>null</tt>.
+     */
+    public static <F> int[] convertToIntArray(final Collection<F> from, final ToIntConverter<? super F> converter) {
+        if (from == null) {
+            return null;
+        }
+        final int[] result = new int[from.size()];
+        int i = 0;
+        for (final F element : from) {
+            result[i++] = converter.convert(element);
+        }
+        return result;
+    }
+
+    /**
+     * Converts the objects to a primitive array, so the converted values are not boxed.
+     *
+     * @param <F> The type of the object which will be converted.
+     * @param from The array of object to convert.
+     * @param converter The converter which converts all the array elements.
+     * @return The array of the converted values or <tt>null</tt> if the <tt>from</tt> is <tt>null</tt>.
+     */
+    public static <F> int[] convertToIntArray(final F[] from, final ToIntConverter<? super F> converter) {
+        if (from == null) {
+            return null;
+        }
+        final int[] result = new int[from.length];
+        for (int i = 0; i < from.length; i++) {
+            result[i] = converter.convert(from[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Converts the objects to a primitive array, so the converted values are not boxed.
      *
-     * TODO create ConvertList object and use that!
+     * @param <F> The type of the object which will be converted.
+     * @param from The collection of the convertable object.
+     * @param converter The converter which converts the elements of the collection.
+     * @return The array of the converted values in the iteration order of the <tt>from</tt>
+     *         or <tt>null</tt> if the <tt>from</tt> is <tt>null</tt>.
+     */
+    public static <F> long[] convertToLongArray(final Collection<F> from, final ToLongConverter<? super F> converter) {
+        if (from == null) {
+            return null;
+        }
+        final long[] result = new long[from.size()];
+        int i = 0;
+        for (final F element : from) {
+            result[i++] = converter.convert(element);
+        }
+        return result;
+    }
+
+    /**
+     * Converts the objects to a primitive array, so the converted values are not boxed.
+     *
+     * @param <F> The type of the object which will be converted.
+     * @param from The array of object to convert.
+     * @param converter The converter which converts all the array elements.
+     * @return The array of the converted values or <tt>null</tt> if the <tt>from</tt> is <tt>null</tt>.
+     */
+    public static <F> long[] convertToLongArray(final F[] from, final ToLongConverter<? super F> converter) {
+        if (from == null) {
+            return null;
+        }
+        final long[] result = new long[from.length];
+        for (int i = 0; i < from.length; i++) {
+            result[i] = converter.convert(from[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Converts a list of objects. The result will be in an ArrayList.
+     * If the result is iterated only once or partly, use the lazy {@link #convertedList(List, Converter)}
+     * view instead.
      *
      * @param <F> The type of the object which will be converted.
      * @param <T> The type of the object which will be converted to.
@@ -111,6 +226,197 @@ public final class Converters {
 
     }
 
+    /**
+     * Converts an array of object by the converter in parallel on the common fork/join pool,
+     * if the array is longer than the {@link #DEFAULT_PARALLEL_THRESHOLD}.
+     *
+     * @param <F> The type of the object which will be converted.
+     * @param <T> The type of the object which will be converted to.
+     * @param from The array of object to convert.
+     * @param converter The thread safe converter which converts all the array elements.
+     * @param clazz The type of the elements of the new array.
+     * @return The new array in the order of the <tt>from</tt> array.
+     * @see #convertArrayInParallel(Object[], Converter, Class, int, Executor)
+     */
+    public static <F, T> T[] convertArrayInParallel(final F[] from, final Converter<F, T> converter, final Class<T> clazz) {
+        return convertArrayInParallel(from, converter, clazz, DEFAULT_PARALLEL_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Converts an array of object by the converter in parallel on the executor, if the array is
+     * longer than the threshold. The calling thread takes part in the conversion and returns only
+     * when all the elements have been converted.
+     *
+     * @param <F> The type of the object which will be converted.
+     * @param <T> The type of the object which will be converted to.
+     * @param from The array of object to convert.
+     * @param converter The thread safe converter which converts all the array elements.
+     * @param clazz The type of the elements of the new array.
+     * @param threshold The length of the array above which the conversion is parallel.
+     * @param executor The executor which runs the parallel conversion tasks. (NonNull)
+     * @return The new array in the order of the <tt>from</tt> array.
+     * @throws ConverterException The first exception thrown by the converter, unchanged.
+     */
+    public static <F, T> T[] convertArrayInParallel(final F[] from, final Converter<F, T> converter, final Class<T> clazz,
+                                                    final int threshold, final Executor executor) {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        if (from == null || from.length <= threshold || threads < 2) {
+            return convertArray(from, converter, clazz);
+        }
+
+        @SuppressWarnings("unchecked")
+        final T[] result = (T[]) Array.newInstance(clazz, from.length);
+        ParallelConversion.convert(from, result, converter, executor, threads);
+        return result;
+    }
+
+    /**
+     * Converts a collection of objects in parallel on the common fork/join pool, if the collection
+     * is larger than the {@link #DEFAULT_PARALLEL_THRESHOLD}. The result will be in an ArrayList.
+     *
+     * @param <F> The type of the object which will be converted.
+     * @param <T> The type of the object which will be converted to.
+     * @param from The collection of the convertable object.
+     * @param converter The thread safe converter which converts the elements of the collection.
+     * @return The ArrayList of the converted objects in the iteration order of the <tt>from</tt>.
+     * @see #convertListInParallel(Collection, Converter, int, Executor)
+     */
+    public static <F, T> ArrayList<T> convertListInParallel(final Collection<F> from, final Converter<F, T> converter) {
+        return convertListInParallel(from, converter, DEFAULT_PARALLEL_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Converts a collection of objects in parallel on the executor, if the collection is larger than
+     * the threshold. The result will be in an ArrayList. The calling thread takes part in the
+     * conversion and returns only when all the elements have been converted.
+     *
+     * @param <F> The type of the object which will be converted.
+     * @param <T> The type of the object which will be converted to.
+     * @param from The collection of the convertable object.
+     * @param converter The thread safe converter which converts the elements of the collection.
+     * @param threshold The size of the collection above which the conversion is parallel.
+     * @param executor The executor which runs the parallel conversion tasks. (NonNull)
+     * @return The ArrayList of the converted objects in the iteration order of the <tt>from</tt>.
+     * @throws ConverterException The first exception thrown by the converter, unchanged.
+     */
+    public static <F, T> ArrayList<T> convertListInParallel(final Collection<F> from, final Converter<F, T> converter,
+                                                            final int threshold, final Executor executor) {
+        final int threads = Runtime.getRuntime().availableProcessors();
+        if (from == null || from.size() <= threshold || threads < 2) {
+            return convertList(from, converter);
+        }
+
+        @SuppressWarnings("unchecked")
+        final F[] source = (F[]) from.toArray();
+        final Object[] result = new Object[source.length];
+        ParallelConversion.convert(source, result, converter, executor, threads);
+
+        @SuppressWarnings("unchecked")
+        final List<T> resultList = (List<T>) Arrays.asList(result);
+        return new ArrayList<T>(resultList);
+    }
+
+    /**
+     * Creates a lazy view of the list which converts the elements when they are accessed.
+     * The elements are converted again at every access.
+     *
+     * @param <F> The type of the object which will be converted.
+     * @param <T> The type of the object which will be converted to.
+     * @param from The list of the convertable object.
+     * @param converter The converter which converts the elements of the list.
+     * @return The view of the converted objects or <tt>null</tt> if the <tt>from</tt> is <tt>null</tt>.
+     * @see ConvertedList
+     */
+    public static <F, T> List<T> convertedList(final List<F> from, final Converter<F, T> converter) {
+        return convertedList(from, converter, false);
+    }
+
+    /**
+     * Creates a lazy view of the list which converts the elements when they are accessed.
+     *
+     * @param <F> The type of the object which will be converted.
+     * @param <T> The type of the object which will be converted to.
+     * @param from The list of the convertable object.
+     * @param converter The converter which converts the elements of the list.
+     * @param memoising <tt>true</tt> if every element has to be converted only at its first access.
+     * @return The view of the converted objects or <tt>null</tt> if the <tt>from</tt> is <tt>null</tt>.
+     * @see ConvertedList
+     */
+    public static <F, T> List<T> convertedList(final List<F> from, final Converter<F, T> converter, final boolean memoising) {
+        if (from == null) {
+            return null;
+        }
+        return new ConvertedList<F, T>(from, converter, memoising);
+    }
+
+    /**
+     * Creates a lazy view of the iterable which converts the elements while they are iterated.
+     *
+     * @param <F> The type of the object which will be converted.
+     * @param <T> The type of the object which will be converted to.
+     * @param from The iterable of the convertable object.
+     * @param converter The converter which converts the elements.
+     * @return The view of the converted objects or <tt>null</tt> if the <tt>from</tt> is <tt>null</tt>.
+     * @see ConvertedIterable
+     */
+    public static <F, T> Iterable<T> convertedIterable(final Iterable<F> from, final Converter<F, T> converter) {
+        if (from == null) {
+            return null;
+        }
+        return new ConvertedIterable<F, T>(from, converter);
+    }
+
+    /**
+     * Parses a decimal number between the whitespaces of the text.
+     *
+     * @param text The text to parse.
+     * @param min The minimum valid value.
+     * @param max The maximum valid value.
+     * @return The parsed value.
+     * @throws ConverterException If the text is <tt>null</tt>, it is not a decimal number or the number is out of the range.
+     */
+    private static long parseLong(final String text, final long min, final long max) {
+        if (text == null) {
+            throw new ConverterException("Missing number");
+        }
+        int start = 0;
+        int end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        int pos = start;
+        final boolean negative = pos < end && text.charAt(pos) == '-';
+        if (negative || pos < end && text.charAt(pos) == '+') {
+            pos++;
+        }
+        if (pos == end) {
+            throw new ConverterException("Invalid number: " + text);
+        }
+        /* Accumulated negatively, so Long.MIN_VALUE can be parsed as well. */
+        long result = 0;
+        for (; pos < end; pos++) {
+            final int digit = text.charAt(pos) - '0';
+            if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) {
+                throw new ConverterException("Invalid number: " + text);
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative) {
+            if (result == Long.MIN_VALUE) {
+                throw new ConverterException("Number out of range: " + text);
+            }
+            result = -result;
+        }
+        if (result < min || result > max) {
+            throw new ConverterException("Number out of range: " + text);
+        }
+        return result;
+    }
+
     /** Hidden constructor of utility class. */
     private Converters() { /* NOP */ }
 
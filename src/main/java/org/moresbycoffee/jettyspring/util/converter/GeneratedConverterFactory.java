@@ -0,0 +1,363 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import java.beans.ConstructorProperties;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.sf.cglib.core.AbstractClassGenerator;
+import net.sf.cglib.core.ClassEmitter;
+import net.sf.cglib.core.CodeEmitter;
+import net.sf.cglib.core.Constants;
+import net.sf.cglib.core.EmitUtils;
+import net.sf.cglib.core.Local;
+import net.sf.cglib.core.ReflectUtils;
+import net.sf.cglib.core.Signature;
+import net.sf.cglib.core.TypeUtils;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Type;
+
+
+/**
+ * Factory of the {@link Converter}s which are generated by cglib from the matching of the fields
+ * of a DTO and the getters of the source object (e.g. an entity). The generated converter
+ * calls the getters and the constructor directly, exactly as a hand-written one would do:
+ * <pre>
+ * return from == null ? null : new StationDTO(from.getId(), from.getName());
+ * </pre>
+ * The parameter names of the constructors are not available at runtime, so the properties are
+ * matched to the parameters in one of two ways:
+ * <ul>
+ * <li>If a public constructor of the DTO is annotated with {@link ConstructorProperties}, its
+ *     parameters are the properties named by the annotation.</li>
+ * <li>Otherwise the DTO has to have a public constructor the parameters of which have the types
+ *     of the instance fields of the DTO in their declaration order. The order returned by the
+ *     reflection is not specified, so the fields have to have distinct types, otherwise two
+ *     fields of the same type could be silently swapped.</li>
+ * </ul>
+ * The source has to have a public getter for every property with the same name and an
+ * assignable or boxable type. The mismatches are reported by a
+ * {@link ConverterException} when the converter is created, so the converters should be
+ * created at startup (e.g. into a static final field).<br>
+ * The converters are generated once for every source and DTO class pair and cached.<br>
+ * The generated converters suit the flat mappings only, they do not replace the hand-written
+ * converters which flatten associations (e.g. the zone number and the line names of the
+ * {@link org.moresbycoffee.jettyspring.fourth.util.StationToDetailDtoConverter}). The station
+ * listings read the flat DTOs by constructor projections, so no production code converts by
+ * a generated converter yet.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class GeneratedConverterFactory {
+
+    /** The singleton instance. */
+    private static final GeneratedConverterFactory INSTANCE = new GeneratedConverterFactory();
+
+    /** The generated converters by their source and DTO classes. */
+    private final ConcurrentMap<List<Class<?>>, Converter<?, ?>> converters = new ConcurrentHashMap<List<Class<?>>, Converter<?, ?>>();
+
+    /** Hidden constructor of a Singleton object. */
+    private GeneratedConverterFactory() { /* NOP */ }
+
+    /**
+     * @return The singleton instance.
+     */
+    public static GeneratedConverterFactory getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the cached converter of the classes or generates it if it does not exist yet.
+     *
+     * @param <F> The type of the object which will be converted.
+     * @param <T> The type of the DTO which will be converted to.
+     * @param from The class of the source objects. (NonNull)
+     * @param to The class of the DTOs. (NonNull)
+     * @return The thread safe converter which converts the <tt>null</tt> to <tt>null</tt>. (NonNull)
+     * @throws ConverterException If the fields of the DTO do not match its constructors or the getters of the source.
+     */
+    public <F, T> Converter<F, T> getConverter(final Class<F> from, final Class<T> to) {
+        final List<Class<?>> key = Arrays.<Class<?>>asList(from, to);
+
+        Converter<?, ?> converter = converters.get(key);
+        if (converter == null) {
+            final Converter<?, ?> generated = new Generator(from, to).create();
+            converter = converters.putIfAbsent(key, generated);
+            if (converter == null) {
+                converter = generated;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        final Converter<F, T> result = (Converter<F, T>) converter;
+        return result;
+    }
+
+    /**
+     * Generates the class of a converter.
+     */
+    private static final class Generator extends AbstractClassGenerator {
+
+        private static final Source    SOURCE    = new Source(GeneratedConverterFactory.class.getName());
+
+        private static final Type      CONVERTER = Type.getType(Converter.class);
+
+        /** The erased signature of the {@link Converter#convert(Object)}. */
+        private static final Signature CONVERT   = new Signature("convert", Constants.TYPE_OBJECT, new Type[] {Constants.TYPE_OBJECT });
+
+        private final Class<?>         from;
+        private final Class<?>         to;
+        /** The matched constructor of the DTO. */
+        private final Constructor<?>   constructor;
+        /** The getters of the source by the parameters of the {@link #constructor}. */
+        private final Method[]         getters;
+
+        /**
+         * Matches the properties of the DTO to its constructors and to the getters of the source.
+         *
+         * @param from The class of the source objects. (NonNull)
+         * @param to The class of the DTOs. (NonNull)
+         * @throws ConverterException If the properties do not match.
+         */
+        Generator(final Class<?> from, final Class<?> to) {
+            super(SOURCE);
+            this.from = from;
+            this.to = to;
+            if (!Modifier.isPublic(from.getModifiers()) || !Modifier.isPublic(to.getModifiers())) {
+                throw new ConverterException("Both " + from.getName() + " and " + to.getName() + " have to be public.");
+            }
+
+            final Constructor<?> annotated = findAnnotatedConstructor(to);
+            final String[] properties;
+            if (annotated != null) {
+                this.constructor = annotated;
+                properties = annotated.getAnnotation(ConstructorProperties.class).value();
+                if (properties.length != annotated.getParameterTypes().length) {
+                    throw new ConverterException("The @ConstructorProperties of " + annotated + " names " + properties.length
+                                                 + " properties instead of " + annotated.getParameterTypes().length + ".");
+                }
+            } else {
+                final List<Field> fields = new ArrayList<Field>();
+                for (final Field field : to.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.isSynthetic()) {
+                        fields.add(field);
+                    }
+                }
+                this.constructor = findConstructor(to, fields);
+                properties = new String[fields.size()];
+                for (int i = 0; i < properties.length; i++) {
+                    properties[i] = fields.get(i).getName();
+                }
+            }
+
+            final Class<?>[] parameters = constructor.getParameterTypes();
+            this.getters = new Method[parameters.length];
+            for (int i = 0; i < getters.length; i++) {
+                getters[i] = findGetter(from, properties[i], parameters[i]);
+            }
+
+            setNamePrefix(to.getName());
+        }
+
+        /**
+         * @param to The class of the DTOs. (NonNull)
+         * @return The public constructor annotated with {@link ConstructorProperties}. (Nullable)
+         * @throws ConverterException If more than one public constructor is annotated.
+         */
+        private static Constructor<?> findAnnotatedConstructor(final Class<?> to) {
+            Constructor<?> annotated = null;
+            for (final Constructor<?> constructor : to.getConstructors()) {
+                if (constructor.isAnnotationPresent(ConstructorProperties.class)) {
+                    if (annotated != null) {
+                        throw new ConverterException(to.getName() + " has more than one public constructor annotated with @ConstructorProperties.");
+                    }
+                    annotated = constructor;
+                }
+            }
+            return annotated;
+        }
+
+        /**
+         * @param to The class of the DTOs. (NonNull)
+         * @param fields The instance fields of the DTO in their declaration order. (NonNull)
+         * @return The public constructor the parameter types of which are the types of the fields. (NonNull)
+         * @throws ConverterException If there is no such constructor or more than one field has the same type.
+         */
+        private static Constructor<?> findConstructor(final Class<?> to, final List<Field> fields) {
+            final Class<?>[] types = new Class<?>[fields.size()];
+            final Set<Class<?>> distinctTypes = new HashSet<Class<?>>();
+            for (int i = 0; i < types.length; i++) {
+                types[i] = fields.get(i).getType();
+                if (!distinctTypes.add(types[i])) {
+                    throw new ConverterException(to.getName() + " has more than one field of " + types[i].getName()
+                                                 + ", so its constructor has to be annotated with @ConstructorProperties.");
+                }
+            }
+            try {
+                final Constructor<?> constructor = to.getConstructor(types);
+                return constructor;
+            } catch (final NoSuchMethodException e) {
+                throw new ConverterException(to.getName() + " does not have a public constructor with the types of its fields "
+                                             + Arrays.toString(types) + ".", e);
+            }
+        }
+
+        /**
+         * @param from The class of the source objects. (NonNull)
+         * @param property The name of the property. (NonNull)
+         * @param type The type of the constructor parameter of the property. (NonNull)
+         * @return The public getter of the source the value of which can be passed as the parameter. (NonNull)
+         * @throws ConverterException If there is no such getter.
+         */
+        private static Method findGetter(final Class<?> from, final String property, final Class<?> type) {
+            final String capitalized = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+            for (final String prefix : new String[] {"get", "is" }) {
+                try {
+                    final Method getter = from.getMethod(prefix + capitalized);
+                    if (isPassable(getter.getReturnType(), type)) {
+                        return getter;
+                    }
+                } catch (final NoSuchMethodException e) {
+                    /* Try the next prefix. */
+                }
+            }
+            throw new ConverterException(from.getName() + " does not have a public getter of " + type.getName()
+                                         + " " + property + ".");
+        }
+
+        /**
+         * @param value The type of the value. (NonNull)
+         * @param parameter The type of the parameter. (NonNull)
+         * @return <tt>true</tt> if the value can be passed as the parameter directly or by (un)boxing.
+         */
+        private static boolean isPassable(final Class<?> value, final Class<?> parameter) {
+            if (parameter.isAssignableFrom(value)) {
+                return true;
+            }
+            if (value.isPrimitive() && !parameter.isPrimitive()) {
+                return TypeUtils.getBoxedType(Type.getType(value)).equals(Type.getType(parameter));
+            }
+            if (!value.isPrimitive() && parameter.isPrimitive()) {
+                return TypeUtils.getBoxedType(Type.getType(parameter)).equals(Type.getType(value));
+            }
+            return false;
+        }
+
+        /**
+         * @return The new instance of the generated converter class. (NonNull)
+         */
+        Converter<?, ?> create() {
+            return (Converter<?, ?>) super.create(from.getName() + "->" + to.getName());
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected ClassLoader getDefaultClassLoader() {
+            return to.getClassLoader();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void generateClass(final ClassVisitor visitor) {
+            final Type fromType = Type.getType(from);
+            final Type toType = Type.getType(to);
+
+            final ClassEmitter ce = new ClassEmitter(visitor);
+            ce.begin_class(Constants.V1_2, Constants.ACC_PUBLIC, getClassName(), Constants.TYPE_OBJECT, new Type[] {CONVERTER },
+                           Constants.SOURCE_FILE);
+            EmitUtils.null_constructor(ce);
+
+            final CodeEmitter e = ce.begin_method(Constants.ACC_PUBLIC, CONVERT, null);
+
+            /* if (from == null) return null; */
+            final Label notNull = e.make_label();
+            e.load_arg(0);
+            e.ifnonnull(notNull);
+            e.aconst_null();
+            e.return_value();
+            e.mark(notNull);
+
+            final Local source = e.make_local(fromType);
+            e.load_arg(0);
+            e.checkcast(fromType);
+            e.store_local(source);
+
+            /* return new DTO(source.getX(), ...); */
+            final Class<?>[] parameters = constructor.getParameterTypes();
+            e.new_instance(toType);
+            e.dup();
+            for (int i = 0; i < getters.length; i++) {
+                e.load_local(source);
+                e.invoke(ReflectUtils.getMethodInfo(getters[i]), fromType);
+
+                final Class<?> value = getters[i].getReturnType();
+                if (value.isPrimitive() && !parameters[i].isPrimitive()) {
+                    e.box(Type.getType(value));
+                } else if (!value.isPrimitive() && parameters[i].isPrimitive()) {
+                    e.unbox(Type.getType(parameters[i]));
+                }
+            }
+            e.invoke_constructor(toType, TypeUtils.parseConstructor(TypeUtils.getTypes(parameters)));
+            e.return_value();
+            e.end_method();
+
+            ce.end_class();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        @SuppressWarnings("rawtypes")
+        protected Object firstInstance(final Class type) {
+            return ReflectUtils.newInstance(type);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected Object nextInstance(final Object instance) {
+            return instance;
+        }
+
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Converts the elements of an array in parallel chunks on an {@link Executor}.<br>
+ * The chunks are claimed one by one by the submitted tasks and by the calling thread as
+ * well, so the conversion is finished even if the executor is saturated or does not run the
+ * tasks at all (e.g. the caller runs on the only thread of the executor). Every converted
+ * element is stored at the index of its source element, so the order is preserved.<br>
+ * The first failure stops the claiming of the further chunks and it is rethrown to the caller
+ * after the already running chunks have finished.
+ *
+ * @param <F> The type of the source elements.
+ * @param <T> The type of the converted elements.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+final class ParallelConversion<F, T> implements Runnable {
+
+    /** The minimum number of the elements of a chunk, smaller chunks cost more to claim than to convert. */
+    static final int MIN_CHUNK_SIZE = 256;
+
+    /** The number of the chunks per thread, so the faster threads can take over the work of the slower ones. */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /** The source elements. (NonNull) */
+    private final F[]                          from;
+    /** The array of the converted elements, written at the indices of their source elements. (NonNull) */
+    private final Object[]                     to;
+    /** The converter of the elements, called concurrently by the converting threads. (NonNull) */
+    private final Converter<F, T>              converter;
+    /** The number of the elements of a chunk, the last chunk may be shorter. */
+    private final int                          chunkSize;
+    /** The number of the chunks the source elements are split into. */
+    private final int                          chunkCount;
+
+    /** The index of the next unclaimed chunk. */
+    private final AtomicInteger                nextChunk = new AtomicInteger();
+    /** Counted down at the end of every chunk, including the chunks skipped because of a failure. */
+    private final CountDownLatch               finished;
+    /** The first failure of the conversion. */
+    private final AtomicReference<Throwable>   failure   = new AtomicReference<Throwable>();
+
+    /**
+     * @param from The source elements. (NonNull)
+     * @param to The array of the converted elements, at least as long as the <tt>from</tt>. (NonNull)
+     * @param converter The converter of the elements. (NonNull)
+     * @param threads The number of the threads which convert the chunks, including the caller.
+     */
+    private ParallelConversion(final F[] from, final Object[] to, final Converter<F, T> converter, final int threads) {
+        this.from = from;
+        this.to = to;
+        this.converter = converter;
+        this.chunkSize = Math.max(MIN_CHUNK_SIZE, (from.length + threads * CHUNKS_PER_THREAD - 1) / (threads * CHUNKS_PER_THREAD));
+        this.chunkCount = (from.length + chunkSize - 1) / chunkSize;
+        this.finished = new CountDownLatch(chunkCount);
+    }
+
+    /**
+     * Converts the elements of the <tt>from</tt> into the <tt>to</tt> array at the same indices.
+     * The calling thread converts chunks too, and it returns only when all the chunks have finished.
+     *
+     * @param <F> The type of the source elements.
+     * @param <T> The type of the converted elements.
+     * @param from The source elements. (NonNull)
+     * @param to The array of the converted elements, at least as long as the <tt>from</tt>. (NonNull)
+     * @param converter The converter of the elements. (NonNull)
+     * @param executor The executor which runs the helper tasks. (NonNull)
+     * @param threads The number of the threads which are expected to convert, including the caller.
+     * @throws ConverterException If the converter has failed on any of the elements.
+     */
+    static <F, T> void convert(final F[] from, final Object[] to, final Converter<F, T> converter,
+                               final Executor executor, final int threads) {
+        final ParallelConversion<F, T> conversion = new ParallelConversion<F, T>(from, to, converter, threads);
+
+        final int helpers = Math.min(threads, conversion.chunkCount) - 1;
+        try {
+            for (int i = 0; i < helpers; i++) {
+                executor.execute(conversion);
+            }
+        } catch (final RejectedExecutionException e) {
+            /* The caller converts the chunks which would have been converted by the rejected tasks. */
+        }
+
+        conversion.run();
+        conversion.awaitFinished();
+        conversion.rethrowFailure();
+    }
+
+    /**
+     * Claims and converts chunks while there is any unclaimed one.
+     */
+    @Override
+    public void run() {
+        int chunk;
+        while ((chunk = nextChunk.getAndIncrement()) < chunkCount) {
+            try {
+                if (failure.get() == null) {
+                    final int end = Math.min(from.length, (chunk + 1) * chunkSize);
+                    for (int i = chunk * chunkSize; i < end; i++) {
+                        to[i] = converter.convert(from[i]);
+                    }
+                }
+            } catch (final Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                finished.countDown();
+            }
+        }
+    }
+
+    /**
+     * Waits for the chunks converted by the other threads. The chunks are short, so the
+     * interruption is only recorded and restored after the waiting.
+     */
+    private void awaitFinished() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                finished.await();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Rethrows the first failure of the conversion unchanged, if there is any.
+     */
+    private void rethrowFailure() {
+        final Throwable e = failure.get();
+        if (e == null) {
+            return;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new ConverterException(e);
+    }
+
+}
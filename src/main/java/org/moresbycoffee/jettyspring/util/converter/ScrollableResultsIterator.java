@@ -0,0 +1,95 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.hibernate.ScrollableResults;
+
+
+/**
+ * Read-only {@link Iterator} over the first column of the rows of a {@link ScrollableResults},
+ * so a database cursor can be the source of a {@link ConverterPipeline}.<br>
+ * The iterator does not close the results, that remains the responsibility of the caller
+ * which has opened them.
+ *
+ * @param <T> The type of the first column of the rows.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ScrollableResultsIterator<T> implements Iterator<T> {
+
+    private final ScrollableResults results;
+
+    /** Whether the results have been moved to the row which is returned by the next {@link #next()}. */
+    private boolean                 advanced;
+    /** Whether the results have a row after the last returned one, valid only if {@link #advanced}. */
+    private boolean                 hasRow;
+
+    /**
+     * @param results The results positioned before their first unread row. (NonNull)
+     */
+    public ScrollableResultsIterator(final ScrollableResults results) {
+        super();
+        this.results = results;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean hasNext() {
+        if (!advanced) {
+            hasRow = results.next();
+            advanced = true;
+        }
+        return hasRow;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        advanced = false;
+        @SuppressWarnings("unchecked")
+        final T row = (T) results.get(0);
+        return row;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+}
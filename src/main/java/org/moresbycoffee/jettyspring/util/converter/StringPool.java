@@ -0,0 +1,106 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+/**
+ * Bounded, canonicalising pool of strings as a {@link Converter}: returns the pooled instance
+ * if an equal string is already in the pool, otherwise pools and returns the given string.
+ * So the frequently repeated values (e.g. the line names of an import) share one instance
+ * instead of being kept as many equal copies.<br>
+ * Unlike {@link String#intern()}, the pool has a fixed number of slots and it can be dropped
+ * with its owner. A string is pooled in the slot selected by its hash code, replacing the previous
+ * string of the slot, so the pool never grows and the rare values are evicted by the frequent ones.
+ * The pool is thread safe without locking: the slots hold immutable strings, so a lost update
+ * costs only a duplicated instance.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class StringPool implements Converter<String, String> {
+
+    /** The default number of the slots. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /** The maximum number of the slots. */
+    private static final int MAXIMUM_CAPACITY = 1 << 20;
+
+    private final String[] slots;
+
+    /**
+     * Creates a pool with {@value #DEFAULT_CAPACITY} slots.
+     */
+    public StringPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The number of the slots. It is rounded up to a power of two.
+     */
+    public StringPool(final int capacity) {
+        super();
+        if (capacity < 1 || capacity > MAXIMUM_CAPACITY) {
+            throw new IllegalArgumentException("The capacity has to be between 1 and " + MAXIMUM_CAPACITY + ": " + capacity);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        slots = new String[size];
+    }
+
+    /**
+     * @param from The string to canonicalise. (Nullable)
+     * @return The pooled string equal to the <tt>from</tt> or <tt>null</tt> if the <tt>from</tt> is <tt>null</tt>. (Nullable)
+     */
+    @Override
+    public String convert(final String from) {
+        if (from == null) {
+            return null;
+        }
+        final int hash = from.hashCode();
+        /* The high bits are mixed in, because only the low bits select the slot. */
+        final int slot = (hash ^ (hash >>> 16)) & (slots.length - 1);
+        final String pooled = slots[slot];
+        if (from.equals(pooled)) {
+            return pooled;
+        }
+        slots[slot] = from;
+        return from;
+    }
+
+    /**
+     * @return The number of the slots.
+     */
+    public int capacity() {
+        return slots.length;
+    }
+
+}
@@ -0,0 +1,428 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.csv;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+
+/**
+ * Allocation-light CSV reader which reads a memory mapped file.<br>
+ * The reader does not create objects per record or per field: the fields of the actual
+ * record are exposed as slices (start and end positions in the mapped file) and the
+ * integers can be parsed directly from the bytes. A {@link String} is created only if
+ * it is requested by {@link #getString(int)} or {@link #decode(int, int, boolean)}.<br>
+ * The format follows RFC 4180: the fields are separated by commas, the records by
+ * <tt>LF</tt> or <tt>CRLF</tt>. A field which starts with a double quote is quoted, it may
+ * contain commas, line breaks and escaped (doubled) double quotes. The slice of a quoted
+ * field does not contain the enclosing quotes but it does contain the escaped quotes
+ * in their escaped form. The content is expected to be UTF-8 encoded, the byte order
+ * mark is skipped.<br>
+ * The file has to be smaller than 2GB. The reader is not thread safe.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class MappedCsvReader implements Closeable {
+
+    /** The encoding of the content. */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final byte QUOTE     = '"';
+    private static final byte SEPARATOR = ',';
+    private static final byte CR        = '\r';
+    private static final byte LF        = '\n';
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int              limit;
+
+    /** The position of the next record. */
+    private int position;
+
+    /** The number of the fields of the actual record. */
+    private int       fieldCount;
+    /** The start positions of the fields of the actual record. */
+    private int[]     fieldStarts = new int[8];
+    /** The end positions (exclusive) of the fields of the actual record. */
+    private int[]     fieldEnds   = new int[8];
+    /** Whether the fields of the actual record are quoted. */
+    private boolean[] quoted      = new boolean[8];
+
+    /** The number of the records read so far. */
+    private long recordNumber;
+
+    /** Reused buffer of the string decoding. */
+    private byte[] decodeBuffer = new byte[64];
+
+    /**
+     * Maps the file into the memory.
+     *
+     * @param csvFile The CSV file. (NonNull)
+     * @throws IOException If the file cannot be opened or mapped, or it is larger than 2GB.
+     */
+    public MappedCsvReader(final File csvFile) throws IOException {
+        super();
+        file = new RandomAccessFile(csvFile, "r");
+        try {
+            final FileChannel channel = file.getChannel();
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("The file is too large to be mapped: " + csvFile + " (" + size + " bytes)");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (final IOException e) {
+            file.close();
+            throw e;
+        }
+        limit = buffer.limit();
+
+        /* Skip the UTF-8 byte order mark. */
+        if (limit >= 3 && buffer.get(0) == (byte) 0xEF && buffer.get(1) == (byte) 0xBB && buffer.get(2) == (byte) 0xBF) {
+            position = 3;
+        }
+    }
+
+    /**
+     * Reads the next record. The slices of the previous record become invalid.
+     *
+     * @return <tt>true</tt> if there was a next record, <tt>false</tt> at the end of the file.
+     * @throws IOException If a quoted field is not closed.
+     */
+    public boolean nextRecord() throws IOException {
+        if (position >= limit) {
+            fieldCount = 0;
+            return false;
+        }
+        recordNumber++;
+        fieldCount = 0;
+
+        int pos = position;
+        while (true) {
+            ensureFieldCapacity();
+            if (pos < limit && buffer.get(pos) == QUOTE) {
+                final int start = pos + 1;
+                pos = start;
+                while (true) {
+                    if (pos >= limit) {
+                        throw new IOException("Unclosed quoted field in record " + recordNumber);
+                    }
+                    if (buffer.get(pos) == QUOTE) {
+                        if (pos + 1 < limit && buffer.get(pos + 1) == QUOTE) {
+                            pos += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    pos++;
+                }
+                addField(start, pos, true);
+                /* Skip the closing quote and anything up to the next separator. */
+                pos++;
+                while (pos < limit && buffer.get(pos) != SEPARATOR && buffer.get(pos) != LF) {
+                    pos++;
+                }
+            } else {
+                final int start = pos;
+                while (pos < limit && buffer.get(pos) != SEPARATOR && buffer.get(pos) != LF) {
+                    pos++;
+                }
+                addField(start, pos, false);
+            }
+
+            if (pos >= limit || buffer.get(pos) == LF) {
+                /* Drop the CR of the CRLF record separator. */
+                final int last = fieldCount - 1;
+                if (!quoted[last] && fieldEnds[last] > fieldStarts[last] && buffer.get(fieldEnds[last] - 1) == CR) {
+                    fieldEnds[last]--;
+                }
+                position = pos + 1;
+                return true;
+            }
+            /* Skip the separator. */
+            pos++;
+        }
+    }
+
+    /**
+     * @return The position of the next record, which is the number of the bytes read so far.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @return The number of the records read so far (the number of the actual record).
+     */
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+
+    /**
+     * @return The number of the fields of the actual record.
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @param field The index of the field.
+     * @return The position of the first byte of the field.
+     */
+    public int getFieldStart(final int field) {
+        checkField(field);
+        return fieldStarts[field];
+    }
+
+    /**
+     * @param field The index of the field.
+     * @return The position after the last byte of the field.
+     */
+    public int getFieldEnd(final int field) {
+        checkField(field);
+        return fieldEnds[field];
+    }
+
+    /**
+     * @param field The index of the field.
+     * @return <tt>true</tt> if the field is quoted, so it may contain escaped quotes.
+     */
+    public boolean isQuoted(final int field) {
+        checkField(field);
+        return quoted[field];
+    }
+
+    /**
+     * @param position The position in the file.
+     * @return The byte at the position.
+     */
+    public byte byteAt(final int position) {
+        return buffer.get(position);
+    }
+
+    /**
+     * Parses the field as a decimal integer directly from the bytes. The leading and
+     * trailing whitespaces are ignored.
+     *
+     * @param field The index of the field.
+     * @return The value of the field.
+     * @throws NumberFormatException If the field is not a valid integer.
+     */
+    public int getInt(final int field) {
+        checkField(field);
+        final int start = trimStart(fieldStarts[field], fieldEnds[field]);
+        final int end = trimEnd(start, fieldEnds[field]);
+        if (start == end) {
+            throw new NumberFormatException("Empty field " + field + " in record " + recordNumber);
+        }
+
+        int pos = start;
+        final boolean negative = buffer.get(pos) == '-';
+        if (negative || buffer.get(pos) == '+') {
+            pos++;
+        }
+        if (pos == end) {
+            throw new NumberFormatException("Invalid integer in field " + field + " of record " + recordNumber);
+        }
+        /* Accumulated negatively, so Integer.MIN_VALUE can be parsed as well. */
+        int result = 0;
+        for (; pos < end; pos++) {
+            final int digit = buffer.get(pos) - '0';
+            if (digit < 0 || digit > 9 || result < (Integer.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("Invalid integer in field " + field + " of record " + recordNumber);
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative) {
+            if (result == Integer.MIN_VALUE) {
+                throw new NumberFormatException("Invalid integer in field " + field + " of record " + recordNumber);
+            }
+            return -result;
+        }
+        return result;
+    }
+
+    /**
+     * @param field The index of the field.
+     * @return The content of the field with unescaped quotes. (NonNull)
+     */
+    public String getString(final int field) {
+        checkField(field);
+        return decode(fieldStarts[field], fieldEnds[field], quoted[field]);
+    }
+
+    /**
+     * @param field The index of the field.
+     * @return The content of the field with unescaped quotes and without the leading and trailing whitespaces. (NonNull)
+     */
+    public String getTrimmedString(final int field) {
+        checkField(field);
+        final int start = trimStart(fieldStarts[field], fieldEnds[field]);
+        return decode(start, trimEnd(start, fieldEnds[field]), quoted[field]);
+    }
+
+    /**
+     * Decodes a slice of the file.
+     *
+     * @param start The position of the first byte.
+     * @param end The position after the last byte.
+     * @param unescapeQuotes <tt>true</tt> if the doubled quotes have to be unescaped (the slice is in a quoted field).
+     * @return The decoded string. (NonNull)
+     */
+    public String decode(final int start, final int end, final boolean unescapeQuotes) {
+        if (decodeBuffer.length < end - start) {
+            decodeBuffer = new byte[Math.max(end - start, decodeBuffer.length * 2)];
+        }
+        int length = 0;
+        for (int pos = start; pos < end; pos++) {
+            final byte b = buffer.get(pos);
+            decodeBuffer[length++] = b;
+            if (unescapeQuotes && b == QUOTE && pos + 1 < end && buffer.get(pos + 1) == QUOTE) {
+                pos++;
+            }
+        }
+        return new String(decodeBuffer, 0, length, UTF8);
+    }
+
+    /**
+     * Splits the field to values by the separator and stores the slices of the values
+     * without the leading and trailing whitespaces. The empty values are skipped.
+     * If there are more values than the size of the arrays, only the first ones are stored.
+     *
+     * @param field The index of the field.
+     * @param separator The separator of the values (ASCII character).
+     * @param starts The array the start positions of the values are stored into. (NonNull)
+     * @param ends The array the end positions of the values are stored into. (NonNull)
+     * @return The number of the values in the field (it may be more than the size of the arrays).
+     */
+    public int splitField(final int field, final char separator, final int[] starts, final int[] ends) {
+        checkField(field);
+        final int fieldEnd = fieldEnds[field];
+        int count = 0;
+        int valueStart = fieldStarts[field];
+        while (valueStart <= fieldEnd) {
+            int valueEnd = valueStart;
+            while (valueEnd < fieldEnd && buffer.get(valueEnd) != separator) {
+                valueEnd++;
+            }
+            final int start = trimStart(valueStart, valueEnd);
+            final int end = trimEnd(start, valueEnd);
+            if (start < end) {
+                if (count < starts.length && count < ends.length) {
+                    starts[count] = start;
+                    ends[count] = end;
+                }
+                count++;
+            }
+            valueStart = valueEnd + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether two slices of the file contain the same bytes.
+     *
+     * @param start1 The start of the first slice.
+     * @param end1 The end of the first slice.
+     * @param start2 The start of the second slice.
+     * @param end2 The end of the second slice.
+     * @return <tt>true</tt> if the slices are equal.
+     */
+    public boolean sliceEquals(final int start1, final int end1, final int start2, final int end2) {
+        if (end1 - start1 != end2 - start2) {
+            return false;
+        }
+        for (int i = 0; i < end1 - start1; i++) {
+            if (buffer.get(start1 + i) != buffer.get(start2 + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Unmapping is not supported by the JDK, the mapping is released when the buffer is garbage collected.
+     *
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private int trimStart(final int start, final int end) {
+        int pos = start;
+        while (pos < end && isWhitespace(buffer.get(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private int trimEnd(final int start, final int end) {
+        int pos = end;
+        while (pos > start && isWhitespace(buffer.get(pos - 1))) {
+            pos--;
+        }
+        return pos;
+    }
+
+    private static boolean isWhitespace(final byte b) {
+        return b == ' ' || b == '\t' || b == CR || b == LF;
+    }
+
+    private void addField(final int start, final int end, final boolean isQuoted) {
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        quoted[fieldCount] = isQuoted;
+        fieldCount++;
+    }
+
+    private void ensureFieldCapacity() {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            quoted = Arrays.copyOf(quoted, fieldCount * 2);
+        }
+    }
+
+    private void checkField(final int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + field + " of record " + recordNumber + " with " + fieldCount + " fields");
+        }
+    }
+
+}
@@ -63,6 +63,14 @@ public final class EntityManagerFactoryUtil {
         jpaProperties.put("hibernate.connection.password",               "admin");
         jpaProperties.put("hibernate.connection.username",               "admin");
         jpaProperties.put("hibernate.show_sql",                          "false");
+        jpaProperties.put("hibernate.jdbc.batch_size",                   "50");
+        jpaProperties.put("hibernate.order_inserts",                     "true");
+        jpaProperties.put("javax.persistence.sharedCache.mode",          "ENABLE_SELECTIVE");
+        jpaProperties.put("hibernate.cache.use_second_level_cache",      "true");
+        jpaProperties.put("hibernate.cache.use_query_cache",             "true");
+        jpaProperties.put("hibernate.cache.region.factory_class",        org.hibernate.cache.ehcache.EhCacheRegionFactory.class.getName());
+        jpaProperties.put("net.sf.ehcache.configurationResourceName",    "/ehcache-network.xml");
+        jpaProperties.put("hibernate.generate_statistics",               "true");
 
         final LocalContainerEntityManagerFactoryBean entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
         entityManagerFactoryBean.setPersistenceProviderClass(org.hibernate.ejb.HibernatePersistence.class);
@@ -33,10 +33,11 @@ package org.moresbycoffee.jettyspring;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.Map;
 
 import org.junit.Assert;
 
@@ -85,6 +86,24 @@ public final class RestTestUtil {
         return doRequest(JettyRunner.DEFAULT_PORT_NUMBER, JettyRunner.DEFAULT_PATH, requestPath, "GET", null, expectedResponseCode);
     }
 
+    /**
+     * Sends a <tt>GET</tt> request with the given headers to service accessed on <tt>requestPath</tt>
+     * and collects the headers of the response.<br>
+     * The context path is set from the {@link JettyRunner#DEFAULT_PATH}.<br>
+     * The port number is also picked up from {@link JettyRunner#DEFAULT_PORT_NUMBER}.<br>
+     *
+     * @param requestPath The service path. (NonNull)
+     * @param requestHeaders The headers of the request. (Nullable)
+     * @param responseHeaders The map the headers of the response are put into. (Nullable)
+     * @param expectedResponseCode The expected response code. (NonNull)
+     * @return The response body. (NonNull)
+     * @throws IOException If communication error occurs.
+     * @throws AssertionError If the response code is not match to the expcetedResponseCode.
+     */
+    public static String doGet(final String requestPath, final Map<String, String> requestHeaders, final Map<String, String> responseHeaders, final int expectedResponseCode) throws IOException  {
+        return doRequest(JettyRunner.DEFAULT_PORT_NUMBER, JettyRunner.DEFAULT_PATH, requestPath, "GET", requestHeaders, responseHeaders, (byte[]) null, expectedResponseCode);
+    }
+
     /**
      * Sends a <tt>POST</tt> request to service accessed on <tt>requestPath</tt> using the output
      * as the body content.<br>
@@ -119,6 +138,41 @@ public final class RestTestUtil {
     }
 
 
+    /**
+     * Sends a <tt>POST</tt> request with the given headers and binary body to service accessed on <tt>requestPath</tt>
+     * and collects the headers of the response.<br>
+     * The context path is set from the {@link JettyRunner#DEFAULT_PATH}.<br>
+     * The port number is also picked up from {@link JettyRunner#DEFAULT_PORT_NUMBER}.<br>
+     *
+     * @param requestPath The service path. (NonNull)
+     * @param requestHeaders The headers of the request. (Nullable)
+     * @param responseHeaders The map the headers of the response are put into. (Nullable)
+     * @param output The request body content. (NonNull)
+     * @param expectedResponseCode The expected response code. (NonNull)
+     * @return The response body. (NonNull)
+     * @throws IOException If communication error occurs.
+     * @throws AssertionError If the response code is not match to the expcetedResponseCode.
+     */
+    public static String doPost(final String requestPath, final Map<String, String> requestHeaders, final Map<String, String> responseHeaders,
+                                final byte[] output, final int expectedResponseCode) throws IOException {
+        return doRequest(JettyRunner.DEFAULT_PORT_NUMBER, JettyRunner.DEFAULT_PATH, requestPath, "POST", requestHeaders, responseHeaders, output, expectedResponseCode);
+    }
+
+    /**
+     * Sends a <tt>DELETE</tt> request to service accessed on <tt>requestPath</tt>.<br>
+     * The context path is set from the {@link JettyRunner#DEFAULT_PATH}.<br>
+     * The port number is also picked up from {@link JettyRunner#DEFAULT_PORT_NUMBER}.<br>
+     *
+     * @param requestPath The service path. (NonNull)
+     * @param expectedResponseCode The expected response code. (NonNull)
+     * @return The response body. (NonNull)
+     * @throws IOException If communication error occurs.
+     * @throws AssertionError If the response code is not match to the expcetedResponseCode.
+     */
+    public static String doDelete(final String requestPath, final int expectedResponseCode) throws IOException {
+        return doRequest(JettyRunner.DEFAULT_PORT_NUMBER, JettyRunner.DEFAULT_PATH, requestPath, "DELETE", null, expectedResponseCode);
+    }
+
     /**
      * Sends a request to service accessed on <tt>requestPath</tt> using the output
      * as the body content.<br>
@@ -134,22 +188,72 @@ public final class RestTestUtil {
      * @throws AssertionError If the response code is not match to the expcetedResponseCode.
      */
     public static String doRequest(final int port, final String contextPath, final String requestPath, final String method, final String output, final int expectedResponseCode) throws IOException {
+        return doRequest(port, contextPath, requestPath, method, null, null, output, expectedResponseCode);
+    }
+
+    /**
+     * Sends a request with the given headers to service accessed on <tt>requestPath</tt> using the output
+     * as the body content and collects the headers of the response.<br>
+     *
+     * @param port The port number. (NonNull)
+     * @param contextPath The context path. (NonNull)
+     * @param requestPath The service path. (NonNull)
+     * @param method The method. (NonNull)
+     * @param requestHeaders The headers of the request. (Nullable)
+     * @param responseHeaders The map the headers of the response are put into. (Nullable)
+     * @param output The request body content. (Nullable)
+     * @param expectedResponseCode The expected response code. (NonNull)
+     * @return The response body. (NonNull)
+     * @throws IOException If communication error occurs.
+     * @throws AssertionError If the response code is not match to the expcetedResponseCode.
+     */
+    public static String doRequest(final int port, final String contextPath, final String requestPath, final String method,
+                                   final Map<String, String> requestHeaders, final Map<String, String> responseHeaders,
+                                   final String output, final int expectedResponseCode) throws IOException {
+        return doRequest(port, contextPath, requestPath, method, requestHeaders, responseHeaders,
+                         output == null ? null : output.getBytes("UTF-8"), expectedResponseCode);
+    }
+
+    /**
+     * Sends a request with the given headers to service accessed on <tt>requestPath</tt> using the binary output
+     * as the body content and collects the headers of the response.<br>
+     *
+     * @param port The port number. (NonNull)
+     * @param contextPath The context path. (NonNull)
+     * @param requestPath The service path. (NonNull)
+     * @param method The method. (NonNull)
+     * @param requestHeaders The headers of the request. (Nullable)
+     * @param responseHeaders The map the headers of the response are put into. (Nullable)
+     * @param output The request body content. (Nullable)
+     * @param expectedResponseCode The expected response code. (NonNull)
+     * @return The response body. (NonNull)
+     * @throws IOException If communication error occurs.
+     * @throws AssertionError If the response code is not match to the expcetedResponseCode.
+     */
+    public static String doRequest(final int port, final String contextPath, final String requestPath, final String method,
+                                   final Map<String, String> requestHeaders, final Map<String, String> responseHeaders,
+                                   final byte[] output, final int expectedResponseCode) throws IOException {
 
         final URL serverAddress = new URL("http://localhost:" + port + contextPath + requestPath);
 
         final HttpURLConnection connection = (HttpURLConnection) serverAddress.openConnection();
         connection.setRequestMethod(method);
         connection.setDoInput(true);
-        connection.setDoOutput(true);
+        connection.setDoOutput(output != null);
         connection.setReadTimeout(TIMEOUT);
+        if (requestHeaders != null) {
+            for (final Map.Entry<String, String> header : requestHeaders.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
 
         connection.connect();
 
         try {
             if (output != null) {
-                final Writer writer = new OutputStreamWriter(connection.getOutputStream());
-                writer.write("");
-                writer.flush();
+                final OutputStream out = connection.getOutputStream();
+                out.write(output);
+                out.flush();
             }
 
             final int responseCode = connection.getResponseCode();
@@ -157,8 +261,20 @@ public final class RestTestUtil {
             /* Response code assertion */
             Assert.assertEquals(expectedResponseCode, responseCode);
 
+            if (responseHeaders != null) {
+                for (final String headerName : connection.getHeaderFields().keySet()) {
+                    if (headerName != null) {
+                        responseHeaders.put(headerName, connection.getHeaderField(headerName));
+                    }
+                }
+            }
 
-            final BufferedInputStream   bis = new BufferedInputStream(connection.getInputStream());
+            /* The body of the error responses can be read from the error stream only. */
+            final InputStream body = responseCode >= HttpURLConnection.HTTP_BAD_REQUEST ? connection.getErrorStream() : connection.getInputStream();
+            if (body == null) {
+                return "";
+            }
+            final BufferedInputStream   bis = new BufferedInputStream(body);
             final ByteArrayOutputStream baf = new ByteArrayOutputStream();
             int read = 0;
             final int bufSize = 1024;
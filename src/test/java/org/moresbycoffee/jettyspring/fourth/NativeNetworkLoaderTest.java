@@ -0,0 +1,219 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth;
+
+import java.io.StringReader;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.eclipse.jetty.server.Server;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.moresbycoffee.jettyspring.EntityManagerFactoryUtil;
+import org.moresbycoffee.jettyspring.JettyRunner;
+import org.moresbycoffee.jettyspring.RestTestUtil;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+import org.moresbycoffee.jettyspring.fourth.dal.CsvNetworkImporter;
+import org.moresbycoffee.jettyspring.fourth.dal.ImportMonitor;
+import org.moresbycoffee.jettyspring.fourth.dal.NativeNetworkLoader;
+import org.moresbycoffee.jettyspring.fourth.spring.FourthTestConfiguration;
+import org.moresbycoffee.jettyspring.fourth.spring.FourthTestRestController;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+
+/**
+ * Tests that the {@link NativeNetworkLoader} creates the same network as the JPA based
+ * {@link CsvNetworkImporter} by comparing the responses of the application deployed on
+ * the databases loaded in the two ways.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class NativeNetworkLoaderTest {
+
+    /** The number of the generated stations. More than one identifier block is used. */
+    private static final int STATION_COUNT = 1234;
+
+    /** The generated network. */
+    private static final NetworkGenerator NETWORK = NetworkGenerator.builder().stations(STATION_COUNT).lines(17).stationsPerLine(150)
+                                                                    .interchangeDensity(0.3).build();
+
+    /**
+     * Test configuration which uses the actual memory based persistence unit.
+     *
+     * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+     * @since 2012
+     */
+    @Configuration
+    @EnableWebMvc
+    @ComponentScan(basePackageClasses = FourthTestRestController.class, basePackages = {"org.moresbycoffee.jettyspring.fourth.beans", "org.moresbycoffee.jettyspring.fourth.dal" })
+    @EnableTransactionManagement
+    public static class TestConfiguration extends FourthTestConfiguration {
+
+        /** {@inheritDoc} */
+        @Override
+        public EntityManagerFactory entityManagerFactory() {
+            return emf;
+        }
+
+    }
+
+    /** The entity manager factory of the actual database. */
+    private static EntityManagerFactory emf;
+
+    /** The Jetty server of the actual deployment. */
+    private Server jettyServer = null;
+
+    /**
+     * Stops the Jetty server and closes the {@link EntityManagerFactory} if it is still open.
+     */
+    @After
+    public void stopJetty() {
+        JettyRunner.stopJetty(jettyServer);
+        jettyServer = null;
+        if (emf != null && emf.isOpen()) {
+            emf.close();
+        }
+    }
+
+    /**
+     * Tests that the stations, their zones and lines and the statistics are the same after the
+     * JPA import and the native load, and that JPA continues the identifiers after the loaded ones.
+     *
+     * @throws Exception If error occurs during the loads, the deployment or the communication.
+     */
+    @Test
+    public final void equivalenceTest() throws Exception {
+        emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("jpaLoadTest", "org.moresbycoffee.jettyspring.fourth.domain");
+        final ImportStatisticsDTO jpaStatistics = new CsvNetworkImporter(emf).importCsv(NETWORK.csvReader());
+        final String[] jpaResponses = collectResponses();
+        stopJetty();
+
+        emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("nativeLoadTest", "org.moresbycoffee.jettyspring.fourth.domain");
+        final ImportStatisticsDTO nativeStatistics = new NativeNetworkLoader(emf, 100).load(NETWORK.csvReader());
+        final String[] nativeResponses = collectResponses();
+
+        Assert.assertEquals(jpaStatistics.getRows(), nativeStatistics.getRows());
+        Assert.assertEquals(jpaStatistics.getZones(), nativeStatistics.getZones());
+        Assert.assertEquals(jpaStatistics.getLines(), nativeStatistics.getLines());
+        Assert.assertArrayEquals(jpaResponses, nativeResponses);
+
+        /* The sequences have been moved after the loaded identifiers, so JPA does not reuse them. */
+        final ImportStatisticsDTO appended = new CsvNetworkImporter(emf).importCsv(new StringReader("Station,Lines,Zone\nNew Station,New Line,99\n"));
+        Assert.assertEquals(1, appended.getRows());
+    }
+
+    /**
+     * Tests that the native load refuses to run on the tables which already contain rows,
+     * and leaves them untouched.
+     *
+     * @throws Exception If error occurs during the loads.
+     */
+    @Test
+    public final void nonEmptyDatabaseTest() throws Exception {
+        emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("nonEmptyLoadTest", "org.moresbycoffee.jettyspring.fourth.domain");
+        new CsvNetworkImporter(emf).importCsv(new StringReader("Station,Lines,Zone\nOld Station,Old Line,1\n"));
+        try {
+            new NativeNetworkLoader(emf, 100).load(new StringReader("Station,Lines,Zone\nNew Station,New Line,2\n"));
+            Assert.fail("The native load must not run on a non-empty database");
+        } catch (final IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Zone"));
+        }
+        final EntityManager em = emf.createEntityManager();
+        try {
+            Assert.assertEquals(Long.valueOf(1), em.createQuery("select count(s) from Station s", Long.class).getSingleResult());
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Tests that the monitor is notified about the loaded rows and the cancelled load is rolled back.
+     *
+     * @throws Exception If error occurs during the load.
+     */
+    @Test
+    public final void cancelTest() throws Exception {
+        emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("cancelledLoadTest", "org.moresbycoffee.jettyspring.fourth.domain");
+        final AtomicLong loadedRows = new AtomicLong();
+        final ImportMonitor monitor = new ImportMonitor() {
+
+            @Override
+            public void rowsWritten(final long rows) {
+                loadedRows.set(rows);
+            }
+
+            @Override
+            public void bytesRead(final long bytes) {
+                /* The loader reads a stream. */
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return loadedRows.get() >= 250;
+            }
+
+        };
+        try {
+            new NativeNetworkLoader(emf, 100).load(NETWORK.csvReader(), monitor);
+            Assert.fail("The load has not been cancelled");
+        } catch (final CancellationException e) {
+            Assert.assertEquals(250, loadedRows.get());
+        }
+
+        final EntityManager em = emf.createEntityManager();
+        try {
+            Assert.assertEquals(Long.valueOf(0), em.createQuery("select count(s) from Station s", Long.class).getSingleResult());
+            Assert.assertEquals(Long.valueOf(0), em.createQuery("select count(z) from Zone z", Long.class).getSingleResult());
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Deploys the application on the actual database and collects its responses.
+     *
+     * @return The responses of the <tt>/listStations</tt>, <tt>/listStationDetails</tt> and <tt>/networkStatistics</tt>. (NonNull)
+     * @throws Exception If error occurs during the deployment or the communication.
+     */
+    private String[] collectResponses() throws Exception {
+        jettyServer = JettyRunner.startJetty(TestConfiguration.class);
+        return new String[] {RestTestUtil.doGet("/listStations"), RestTestUtil.doGet("/listStationDetails"), RestTestUtil.doGet("/networkStatistics") };
+    }
+
+}
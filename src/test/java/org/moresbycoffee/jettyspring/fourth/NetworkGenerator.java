@@ -0,0 +1,523 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.apache.log4j.Logger;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+import org.moresbycoffee.jettyspring.fourth.dal.NativeNetworkLoader;
+
+
+/**
+ * Deterministic generator of synthetic railway networks for load tests and benchmarks.<br>
+ * The network is generated in the <tt>Station,Lines,Zone</tt> CSV format of the imports, row by row,
+ * so even networks of millions of stations are never held in the memory. The same parameters and
+ * seed always generate the same network.<br>
+ * Every station has a primary line: the stations are split into contiguous blocks, one block per line.
+ * The interchange stations (selected randomly with the probability of the interchange density) are
+ * on additional, randomly selected lines too. The number of the additional lines is chosen so the
+ * lines have about <tt>stationsPerLine</tt> stations on average, but every interchange is on at least
+ * two lines. The zones grow from the middle of the blocks towards their ends, like the zones of a city.
+ * The station and the line names are unique, pronounceable syllable sequences.<br>
+ * The generator can be run from the IDE or with
+ * <tt>mvn exec:java -Dexec.classpathScope=test -Dexec.mainClass=...</tt> to write a CSV file, see {@link #main(String[])}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public final class NetworkGenerator {
+
+    /** Logger. */
+    private static final Logger LOG = Logger.getLogger(NetworkGenerator.class);
+
+    /** The header of the generated CSV. */
+    private static final String HEADER = "Station,Lines,Zone\n";
+
+    private static final String CONSONANTS = "bdfghklmnprstvwz";
+    private static final String VOWELS     = "aeiou";
+
+    /** The optional suffixes of the station names. The empty suffix is the most frequent. */
+    private static final String[] STATION_SUFFIXES = {"", "", "", "", " Park", " Road", " Cross", " Green", " Street", " Junction", " Central", " Heath" };
+
+    /** The increment of the SplitMix64 generator (the golden ratio). */
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long   seed;
+    private final int    stationCount;
+    private final int    lineCount;
+    private final int    stationsPerLine;
+    private final double interchangeDensity;
+    private final int    zoneCount;
+
+    /** The average number of the additional lines of an interchange station. */
+    private final double extraLinesPerInterchange;
+
+    /** The two-letter syllables of the names in a seed dependent order. */
+    private final String[] syllables;
+
+    /** The names of the lines by their indices. */
+    private final String[] lineNames;
+
+    private NetworkGenerator(final Builder builder) {
+        this.seed = builder.seed;
+        this.stationCount = builder.stationCount;
+        this.lineCount = builder.lineCount;
+        this.stationsPerLine = builder.stationsPerLine;
+        this.interchangeDensity = builder.interchangeDensity;
+        this.zoneCount = builder.zoneCount;
+
+        final double interchangeCount = interchangeDensity * stationCount;
+        final long extraMemberships = (long) lineCount * stationsPerLine - stationCount;
+        this.extraLinesPerInterchange = interchangeCount == 0 ? 0 : Math.min(lineCount - 1, Math.max(1, extraMemberships / interchangeCount));
+
+        syllables = new String[CONSONANTS.length() * VOWELS.length()];
+        for (int i = 0; i < syllables.length; i++) {
+            syllables[i] = "" + CONSONANTS.charAt(i / VOWELS.length()) + VOWELS.charAt(i % VOWELS.length());
+        }
+        /* Fisher-Yates shuffle, so the names depend on the seed but they remain unique. */
+        final SplitMix random = new SplitMix(seed);
+        for (int i = syllables.length - 1; i > 0; i--) {
+            final int j = random.nextInt(i + 1);
+            final String syllable = syllables[i];
+            syllables[i] = syllables[j];
+            syllables[j] = syllable;
+        }
+
+        lineNames = new String[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            final StringBuilder name = new StringBuilder(16);
+            appendName(name, i);
+            lineNames[i] = name.append(" Line").toString();
+        }
+    }
+
+    /**
+     * @return A new builder with the default parameters: seed <tt>0</tt>, 1000 stations, 10 lines,
+     *         120 stations per line, 0.1 interchange density and 6 zones. (NonNull)
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return The number of the generated stations.
+     */
+    public int getStationCount() {
+        return stationCount;
+    }
+
+    /**
+     * @return The number of the generated lines.
+     */
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return A reader of the CSV content which generates the rows while they are read. (NonNull)
+     */
+    public Reader csvReader() {
+        return new CsvReader();
+    }
+
+    /**
+     * Writes the CSV content.
+     *
+     * @param out The writer. It is not closed. (NonNull)
+     * @throws IOException If the writer fails.
+     */
+    public void writeCsv(final Writer out) throws IOException {
+        out.write(HEADER);
+        final StringBuilder row = new StringBuilder(128);
+        final Row rowGenerator = new Row();
+        for (int station = 0; station < stationCount; station++) {
+            row.setLength(0);
+            rowGenerator.append(row, station);
+            out.append(row);
+        }
+    }
+
+    /**
+     * Writes the CSV content into a UTF-8 encoded file.
+     *
+     * @param file The file to write. (NonNull)
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeCsv(final File file) throws IOException {
+        final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 64 * 1024);
+        try {
+            writeCsv(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Loads the network directly into the database by the {@link NativeNetworkLoader}.
+     * The database should not contain stations yet.
+     *
+     * @param emf The entity manager factory of the database. (NonNull)
+     * @return The statistics of the load. (NonNull)
+     * @throws IOException If the generated content cannot be read (never happens).
+     */
+    public ImportStatisticsDTO load(final EntityManagerFactory emf) throws IOException {
+        return new NativeNetworkLoader(emf).load(csvReader());
+    }
+
+    /**
+     * @param station The index of the station.
+     * @return The unique name of the station. (NonNull)
+     */
+    public String stationName(final int station) {
+        final StringBuilder name = new StringBuilder(24);
+        appendName(name, station);
+        name.append(STATION_SUFFIXES[(int) ((mix(seed ^ station) >>> 1) % STATION_SUFFIXES.length)]);
+        return name.toString();
+    }
+
+    /**
+     * @param line The index of the line.
+     * @return The unique name of the line. (NonNull)
+     */
+    public String lineName(final int line) {
+        return lineNames[line];
+    }
+
+    /**
+     * Appends the number as a capitalized sequence of at least two syllables. Every syllable has
+     * two letters and the first syllable of a longer sequence is never the zero digit,
+     * so different numbers always get different names.
+     */
+    private void appendName(final StringBuilder name, final int number) {
+        final int start = name.length();
+        int remaining = number;
+        do {
+            name.insert(start, syllables[remaining % syllables.length]);
+            remaining /= syllables.length;
+        } while (remaining > 0);
+        if (name.length() - start < 4) {
+            name.insert(start, syllables[0]);
+        }
+        name.setCharAt(start, Character.toUpperCase(name.charAt(start)));
+    }
+
+    /**
+     * SplitMix64 finalizer: a bijective mixing function with good avalanche.
+     */
+    private static long mix(final long value) {
+        long z = value + GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Generates the CSV rows. It reuses its buffers, so it is not thread safe.
+     */
+    private final class Row {
+
+        private final SplitMix random = new SplitMix(0);
+        private final int[]    lines  = new int[lineCount];
+
+        /**
+         * Appends the CSV row of the station including the line break.
+         */
+        private void append(final StringBuilder row, final int station) {
+            /* Every station has its own random stream, so the rows can be generated in any order. */
+            random.reset(seed * GOLDEN_GAMMA + station);
+
+            /* The primary line is the block of the station. */
+            final long blockStart = (long) station * lineCount;
+            final int primary = (int) (blockStart / stationCount);
+            int count = 0;
+            lines[count++] = primary;
+
+            if (random.nextDouble() < interchangeDensity) {
+                final int wholeExtras = (int) extraLinesPerInterchange;
+                final int extras = wholeExtras + (random.nextDouble() < extraLinesPerInterchange - wholeExtras ? 1 : 0);
+                while (count < 1 + extras) {
+                    final int line = random.nextInt(lineCount);
+                    if (!contains(lines, count, line)) {
+                        lines[count++] = line;
+                    }
+                }
+            }
+
+            row.append(stationName(station)).append(',');
+            if (count > 1) {
+                row.append('"');
+            }
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    row.append(',');
+                }
+                row.append(lineName(lines[i]));
+            }
+            if (count > 1) {
+                row.append('"');
+            }
+            row.append(',').append(zone(station, primary)).append('\n');
+        }
+
+        /**
+         * @return The zone of the station by its distance from the middle of its block.
+         */
+        private int zone(final int station, final int block) {
+            final double blockFirst = (double) block * stationCount / lineCount;
+            final double blockSize = (double) stationCount / lineCount;
+            final double distance = Math.abs(station - blockFirst - blockSize / 2) / (blockSize / 2);
+            return 1 + Math.min(zoneCount - 1, (int) (distance * zoneCount));
+        }
+
+    }
+
+    private static boolean contains(final int[] values, final int count, final int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The CSV content as a {@link Reader}, the rows are generated on demand.
+     */
+    private final class CsvReader extends Reader {
+
+        private final Row           rowGenerator = new Row();
+        private final StringBuilder row          = new StringBuilder(HEADER);
+        private int                 rowPosition;
+        private int                 nextStation;
+
+        @Override
+        public int read(final char[] buffer, final int offset, final int length) {
+            int read = 0;
+            while (read < length) {
+                if (rowPosition == row.length()) {
+                    if (nextStation == stationCount) {
+                        break;
+                    }
+                    row.setLength(0);
+                    rowPosition = 0;
+                    rowGenerator.append(row, nextStation++);
+                }
+                final int chunk = Math.min(length - read, row.length() - rowPosition);
+                row.getChars(rowPosition, rowPosition + chunk, buffer, offset + read);
+                rowPosition += chunk;
+                read += chunk;
+            }
+            return read == 0 && length > 0 ? -1 : read;
+        }
+
+        @Override
+        public void close() {
+            /* NOP */
+        }
+
+    }
+
+    /**
+     * The SplitMix64 pseudo random generator. It is used instead of {@link java.util.Random},
+     * because it can be reseeded cheaply for every row.
+     */
+    private static final class SplitMix {
+
+        private long state;
+
+        private SplitMix(final long seed) {
+            this.state = seed;
+        }
+
+        private void reset(final long seed) {
+            this.state = seed;
+        }
+
+        private long nextLong() {
+            state += GOLDEN_GAMMA;
+            return mix(state);
+        }
+
+        private int nextInt(final int bound) {
+            return (int) ((nextLong() >>> 33) % bound);
+        }
+
+        private double nextDouble() {
+            return (nextLong() >>> 11) * 0x1.0p-53;
+        }
+
+    }
+
+    /**
+     * Builder of the {@link NetworkGenerator}.
+     */
+    public static final class Builder {
+
+        private long   seed;
+        private int    stationCount       = 1000;
+        private int    lineCount          = 10;
+        private int    stationsPerLine    = 120;
+        private double interchangeDensity = 0.1;
+        private int    zoneCount          = 6;
+
+        private Builder() {
+            super();
+        }
+
+        /**
+         * @param value The seed of the random generator.
+         * @return This builder. (NonNull)
+         */
+        public Builder seed(final long value) {
+            this.seed = value;
+            return this;
+        }
+
+        /**
+         * @param value The number of the stations. Positive.
+         * @return This builder. (NonNull)
+         */
+        public Builder stations(final int value) {
+            this.stationCount = value;
+            return this;
+        }
+
+        /**
+         * @param value The number of the lines. Positive.
+         * @return This builder. (NonNull)
+         */
+        public Builder lines(final int value) {
+            this.lineCount = value;
+            return this;
+        }
+
+        /**
+         * @param value The average number of the stations of a line. The lines together have to
+         *              have at least as many stations as the network.
+         * @return This builder. (NonNull)
+         */
+        public Builder stationsPerLine(final int value) {
+            this.stationsPerLine = value;
+            return this;
+        }
+
+        /**
+         * @param value The ratio of the stations which are on more than one line, between 0 and 1.
+         * @return This builder. (NonNull)
+         */
+        public Builder interchangeDensity(final double value) {
+            this.interchangeDensity = value;
+            return this;
+        }
+
+        /**
+         * @param value The number of the zones. Positive.
+         * @return This builder. (NonNull)
+         */
+        public Builder zones(final int value) {
+            this.zoneCount = value;
+            return this;
+        }
+
+        /**
+         * @return The generator. (NonNull)
+         * @throws IllegalArgumentException If the parameters are inconsistent.
+         */
+        public NetworkGenerator build() {
+            if (stationCount < 1 || lineCount < 1 || stationsPerLine < 1 || zoneCount < 1) {
+                throw new IllegalArgumentException("The number of the stations, lines, stations per line and zones have to be positive");
+            }
+            if (interchangeDensity < 0 || interchangeDensity > 1) {
+                throw new IllegalArgumentException("The interchange density has to be between 0 and 1: " + interchangeDensity);
+            }
+            if ((long) lineCount * stationsPerLine < stationCount) {
+                throw new IllegalArgumentException(lineCount + " lines of " + stationsPerLine + " stations cannot cover " + stationCount + " stations");
+            }
+            if (interchangeDensity == 0 && (long) lineCount * stationsPerLine > stationCount) {
+                throw new IllegalArgumentException("More than " + stationCount / lineCount + " stations per line requires interchanges");
+            }
+            if (interchangeDensity > 0 && lineCount == 1) {
+                throw new IllegalArgumentException("Interchanges require at least two lines");
+            }
+            return new NetworkGenerator(this);
+        }
+
+    }
+
+    /**
+     * Writes a generated network into a CSV file.
+     *
+     * @param args The file, then optionally the number of the stations, the number of the lines, the stations per line,
+     *             the interchange density, the number of the zones and the seed.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 1) {
+            throw new IllegalArgumentException("Usage: NetworkGenerator file [stations [lines [stationsPerLine [interchangeDensity [zones [seed]]]]]]");
+        }
+        final Builder builder = builder();
+        if (args.length > 1) {
+            builder.stations(Integer.parseInt(args[1]));
+        }
+        if (args.length > 2) {
+            builder.lines(Integer.parseInt(args[2]));
+        }
+        if (args.length > 3) {
+            builder.stationsPerLine(Integer.parseInt(args[3]));
+        }
+        if (args.length > 4) {
+            builder.interchangeDensity(Double.parseDouble(args[4]));
+        }
+        if (args.length > 5) {
+            builder.zones(Integer.parseInt(args[5]));
+        }
+        if (args.length > 6) {
+            builder.seed(Long.parseLong(args[6]));
+        }
+
+        final long start = System.currentTimeMillis();
+        final NetworkGenerator generator = builder.build();
+        final File file = new File(args[0]);
+        generator.writeCsv(file);
+        LOG.info("Network of " + generator.getStationCount() + " stations and " + generator.getLineCount() + " lines has been written to "
+                + file + " (" + file.length() + " bytes) in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+}
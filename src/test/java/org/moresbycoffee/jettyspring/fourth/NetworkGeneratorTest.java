@@ -0,0 +1,125 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.moresbycoffee.jettyspring.EntityManagerFactoryUtil;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+
+
+/**
+ * Tests the {@link NetworkGenerator}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class NetworkGeneratorTest {
+
+    /**
+     * Tests that the same seed generates the same network and the reader and the writer generate the same content.
+     *
+     * @throws IOException If the content cannot be generated.
+     */
+    @Test
+    public final void deterministicTest() throws IOException {
+        final String csv = toCsv(NetworkGenerator.builder().seed(42).build());
+
+        Assert.assertEquals(csv, toCsv(NetworkGenerator.builder().seed(42).build()));
+        Assert.assertFalse(csv.equals(toCsv(NetworkGenerator.builder().seed(43).build())));
+        Assert.assertEquals(csv, read(NetworkGenerator.builder().seed(42).build().csvReader()));
+        Assert.assertTrue(csv, csv.startsWith("Station,Lines,Zone\n"));
+    }
+
+    /**
+     * Tests that the loaded network has the requested shape.
+     *
+     * @throws IOException If the network cannot be loaded.
+     */
+    @Test
+    public final void loadTest() throws IOException {
+        final EntityManagerFactory emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("networkGeneratorTest", "org.moresbycoffee.jettyspring.fourth.domain");
+        try {
+            final ImportStatisticsDTO statistics = NetworkGenerator.builder().seed(7).stations(20000).lines(50).stationsPerLine(500)
+                                                                  .interchangeDensity(0.2).zones(6).build().load(emf);
+            Assert.assertEquals(20000, statistics.getRows());
+            Assert.assertEquals(50, statistics.getLines());
+            Assert.assertEquals(6, statistics.getZones());
+
+            final EntityManager entityManager = emf.createEntityManager();
+            try {
+                Assert.assertEquals(Long.valueOf(20000), entityManager.createQuery("select count(distinct s.name) from Station s").getSingleResult());
+
+                final long memberships = ((Long) entityManager.createQuery("select count(l) from Station s join s.lines l").getSingleResult()).longValue();
+                Assert.assertEquals(50 * 500, memberships, 50 * 500 * 0.03);
+
+                final long interchanges = ((Long) entityManager.createQuery("select count(s) from Station s where size(s.lines) > 1").getSingleResult()).longValue();
+                Assert.assertEquals(20000 * 0.2, interchanges, 20000 * 0.2 * 0.1);
+            } finally {
+                entityManager.close();
+            }
+        } finally {
+            emf.close();
+        }
+    }
+
+    /**
+     * Tests that the inconsistent parameters are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public final void invalidParametersTest() {
+        NetworkGenerator.builder().stations(1000).lines(10).stationsPerLine(50).build();
+    }
+
+    private static String toCsv(final NetworkGenerator generator) throws IOException {
+        final StringWriter out = new StringWriter();
+        generator.writeCsv(out);
+        return out.toString();
+    }
+
+    private static String read(final Reader reader) throws IOException {
+        final StringBuilder content = new StringBuilder();
+        final char[] buffer = new char[333];
+        int read;
+        while ((read = reader.read(buffer)) >= 0) {
+            content.append(buffer, 0, read);
+        }
+        return content.toString();
+    }
+
+}
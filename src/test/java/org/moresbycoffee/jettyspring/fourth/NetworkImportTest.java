@@ -0,0 +1,293 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth;
+
+import static org.hamcrest.Matchers.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.eclipse.jetty.server.Server;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.moresbycoffee.jettyspring.EntityManagerFactoryUtil;
+import org.moresbycoffee.jettyspring.JettyRunner;
+import org.moresbycoffee.jettyspring.RestTestUtil;
+import org.moresbycoffee.jettyspring.fourth.spring.FourthTestConfiguration;
+import org.moresbycoffee.jettyspring.fourth.spring.FourthTestRestController;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import com.jayway.jsonassert.JsonAssert;
+import com.jayway.jsonpath.JsonPath;
+
+
+/**
+ * Tests the asynchronous network import through the
+ * {@link org.moresbycoffee.jettyspring.fourth.spring.NetworkImportRestController NetworkImportRestController}
+ * on an initially empty database.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class NetworkImportTest {
+
+    /** The number of the generated stations. */
+    private static final int STATION_COUNT = 3000;
+
+    /** The generated network of {@value #STATION_COUNT} stations on 10 lines in 4 zones. */
+    private static final NetworkGenerator NETWORK = NetworkGenerator.builder().stations(STATION_COUNT).lines(10).stationsPerLine(STATION_COUNT / 10 * 2)
+                                                                    .interchangeDensity(0.5).zones(4).build();
+
+    /** The maximum time to wait for an import job in milliseconds. */
+    private static final long JOB_TIMEOUT = 60000;
+
+    /**
+     * Test configuration which uses the empty memory based persistence unit.
+     *
+     * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+     * @since 2012
+     */
+    @Configuration
+    @EnableWebMvc
+    @ComponentScan(basePackageClasses = FourthTestRestController.class, basePackages = {"org.moresbycoffee.jettyspring.fourth.beans", "org.moresbycoffee.jettyspring.fourth.dal" })
+    @EnableTransactionManagement
+    public static class TestConfiguration extends FourthTestConfiguration {
+
+        /** {@inheritDoc} */
+        @Override
+        public EntityManagerFactory entityManagerFactory() {
+            return emf;
+        }
+
+    }
+
+    /** The entity manager factory of the test database. */
+    private static EntityManagerFactory emf;
+
+    /** The static variable for the Jetty server. */
+    private static Server jettyServer = null;
+
+    /**
+     * Starts the Jetty and deploys the application on an empty database.
+     *
+     * @throws Exception If error occurs during the jetty start or application deployment.
+     */
+    @BeforeClass
+    public static void startJetty() throws Exception {
+        emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("networkImportTest", "org.moresbycoffee.jettyspring.fourth.domain");
+        jettyServer = JettyRunner.startJetty(TestConfiguration.class);
+    }
+
+    /**
+     * Stops the Jetty server and closes the {@link EntityManagerFactory} if it is still open.
+     */
+    @AfterClass
+    public static void stopJetty() {
+        JettyRunner.stopJetty(jettyServer);
+        if (emf != null && emf.isOpen()) {
+            emf.close();
+        }
+    }
+
+    /**
+     * Tests that a gzip compressed upload is imported in the background, only the lines not
+     * stored by the other tests are created and the finished job cannot be cancelled anymore.
+     *
+     * @throws Exception If error occurs during the communication or the waiting.
+     */
+    @Test
+    public final void gzipImportTest() throws Exception {
+        final Map<String, String> requestHeaders = new HashMap<String, String>();
+        requestHeaders.put("Content-Type", "text/csv");
+        requestHeaders.put("Content-Encoding", "gzip");
+        final Map<String, String> responseHeaders = new HashMap<String, String>();
+        final long storedLines = countLines();
+
+        final String submitted = RestTestUtil.doPost("/imports", requestHeaders, responseHeaders, gzip(generateCsv()), HttpURLConnection.HTTP_ACCEPTED);
+        final int id = JsonPath.<Integer>read(submitted, "$.id").intValue();
+        Assert.assertThat(responseHeaders.get("Location"), endsWith("/imports/" + id));
+
+        final String finished = waitForJob(id);
+        JsonAssert.with(finished).assertThat("$.state", equalTo("FINISHED"))
+                                 .assertThat("$.rows", equalTo(STATION_COUNT))
+                                 .assertThat("$.statistics.lines", equalTo((int) (10 - storedLines)))
+                                 .assertThat("$.etaMillis", equalTo(0));
+
+        JsonAssert.with(RestTestUtil.doGet("/networkStatistics")).assertThat("$.stationsPerZone.*", hasSize(4))
+                                                                 .assertThat("$.stationsPerLine.*", hasSize(10));
+
+        JsonAssert.with(RestTestUtil.doDelete("/imports/" + id, HttpURLConnection.HTTP_OK)).assertThat("$.state", equalTo("FINISHED"));
+    }
+
+    /**
+     * Tests that an uncompressed full import is finished and it reuses the stored zones and lines.
+     *
+     * @throws Exception If error occurs during the communication or the waiting.
+     */
+    @Test
+    public final void plainImportTest() throws Exception {
+        final String submitted = RestTestUtil.doPost("/imports?mode=full", "Station,Lines,Zone\nPlain Station,\"" + NETWORK.lineName(1) + ", " + NETWORK.lineName(2) + "\",1\n", HttpURLConnection.HTTP_ACCEPTED);
+        final int id = JsonPath.<Integer>read(submitted, "$.id").intValue();
+
+        JsonAssert.with(waitForJob(id)).assertThat("$.state", equalTo("FINISHED"))
+                                       .assertThat("$.rows", equalTo(1))
+                                       .assertThat("$.bytesRead", equalTo(JsonPath.<Integer>read(submitted, "$.totalBytes")));
+    }
+
+    /**
+     * Tests that a delta import applies only the differences.
+     *
+     * @throws Exception If error occurs during the communication or the waiting.
+     */
+    @Test
+    public final void deltaImportTest() throws Exception {
+        final Map<String, String> requestHeaders = new HashMap<String, String>();
+        requestHeaders.put("Content-Type", "text/csv;charset=UTF-8");
+
+        final String csv = generateCsv();
+        /* The station 7 is on the first line, so moving it to other lines changes it. */
+        final String[] rows = csv.split("\n");
+        rows[7 + 1] = NETWORK.stationName(7) + ",\"" + NETWORK.lineName(8) + ", " + NETWORK.lineName(9) + "\",4";
+        final StringBuilder changedCsv = new StringBuilder();
+        for (final String row : rows) {
+            changedCsv.append(row).append('\n');
+        }
+        changedCsv.append("New Station,").append(NETWORK.lineName(1)).append(",1\n");
+
+        int id = JsonPath.<Integer>read(RestTestUtil.doPost("/imports?mode=delta", requestHeaders, null, csv.getBytes("UTF-8"), HttpURLConnection.HTTP_ACCEPTED),
+                                        "$.id").intValue();
+        Assert.assertEquals("FINISHED", JsonPath.read(waitForJob(id), "$.state"));
+
+        id = JsonPath.<Integer>read(RestTestUtil.doPost("/imports?mode=delta", requestHeaders, null, changedCsv.toString().getBytes("UTF-8"), HttpURLConnection.HTTP_ACCEPTED),
+                                    "$.id").intValue();
+        JsonAssert.with(waitForJob(id)).assertThat("$.state", equalTo("FINISHED"))
+                                       .assertThat("$.statistics.inserted", equalTo(1))
+                                       .assertThat("$.statistics.updated", equalTo(1))
+                                       .assertThat("$.statistics.deleted", equalTo(0))
+                                       .assertThat("$.statistics.unchanged", equalTo(STATION_COUNT - 1));
+
+        RestTestUtil.doPost("/imports?mode=unknown", "", HttpURLConnection.HTTP_BAD_REQUEST);
+    }
+
+    /**
+     * Tests that an invalid row fails the job with the line number of the row.
+     *
+     * @throws Exception If error occurs during the communication or the waiting.
+     */
+    @Test
+    public final void invalidImportTest() throws Exception {
+        final String submitted = RestTestUtil.doPost("/imports", "Station,Lines,Zone\nBermondsey,Jubilee,two\n", HttpURLConnection.HTTP_ACCEPTED);
+        final int id = JsonPath.<Integer>read(submitted, "$.id").intValue();
+
+        JsonAssert.with(waitForJob(id)).assertThat("$.state", equalTo("FAILED"))
+                                       .assertThat("$.error", containsString("line 2"));
+    }
+
+    /**
+     * Tests that the unknown jobs are answered with <tt>404 Not Found</tt>.
+     *
+     * @throws IOException If communication error occurs.
+     */
+    @Test
+    public final void unknownJobTest() throws IOException {
+        RestTestUtil.doGet("/imports/999999", HttpURLConnection.HTTP_NOT_FOUND);
+        RestTestUtil.doDelete("/imports/999999", HttpURLConnection.HTTP_NOT_FOUND);
+    }
+
+    /**
+     * @return The number of the lines in the database.
+     */
+    private static long countLines() {
+        final EntityManager entityManager = emf.createEntityManager();
+        try {
+            return entityManager.createQuery("select count(l) from Line l", Long.class).getSingleResult().longValue();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Polls the job until it is finished.
+     *
+     * @param id The identifier of the job.
+     * @return The JSON representation of the finished job. (NonNull)
+     * @throws Exception If error occurs during the communication or the waiting.
+     */
+    private static String waitForJob(final int id) throws Exception {
+        final long deadline = System.currentTimeMillis() + JOB_TIMEOUT;
+        while (true) {
+            final String job = RestTestUtil.doGet("/imports/" + id);
+            final String state = JsonPath.read(job, "$.state");
+            if (!"QUEUED".equals(state) && !"RUNNING".equals(state)) {
+                return job;
+            }
+            Assert.assertTrue("The import job has not finished in time: " + job, System.currentTimeMillis() < deadline);
+            Thread.sleep(100);
+        }
+    }
+
+    /**
+     * @return The CSV content of the generated network. (NonNull)
+     * @throws IOException If the content cannot be generated (never happens).
+     */
+    private static String generateCsv() throws IOException {
+        final StringWriter csv = new StringWriter();
+        NETWORK.writeCsv(csv);
+        return csv.toString();
+    }
+
+    /**
+     * @param content The content to compress. (NonNull)
+     * @return The gzip compressed UTF-8 content. (NonNull)
+     * @throws IOException If the compression fails.
+     */
+    private static byte[] gzip(final String content) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+        gzip.write(content.getBytes("UTF-8"));
+        gzip.close();
+        return bytes.toByteArray();
+    }
+
+}
@@ -35,9 +35,7 @@ import static org.hamcrest.Matchers.*;
 import java.io.IOException;
 import java.io.InputStreamReader;
 
-import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
-import javax.persistence.EntityTransaction;
 
 import org.apache.log4j.Logger;
 import org.eclipse.jetty.server.Server;
@@ -118,14 +116,7 @@ public class PrepareDatabaseByCSVTest {
 
         emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("perpMultiTableCSVTest", "org.moresbycoffee.jettyspring.fourth.domain");
 
-        final EntityManager entityManager = emf.createEntityManager();
-
-        final EntityTransaction transaction = entityManager.getTransaction();
-        transaction.begin();
-
-        CsvParser.parseCsv(new InputStreamReader(PrepareDatabaseByCSVTest.class.getClassLoader().getResourceAsStream("london.csv")), entityManager);
-
-        transaction.commit();
+        CsvParser.parseCsv(new InputStreamReader(PrepareDatabaseByCSVTest.class.getClassLoader().getResourceAsStream("london.csv")), emf);
 
 
         jettyServer = JettyRunner.startJetty(TestConfiguration.class);
@@ -158,5 +149,21 @@ public class PrepareDatabaseByCSVTest {
         JsonAssert.with(result).assertThat("$..name", hasItems("London Bridge", "Bermondsey", "Canada Water"));
     }
 
+    /**
+     * Tests that the zones and the lines of the csv file are created only once.
+     *
+     * @throws IOException If communication error occurs
+     */
+    @Test
+    public final void importedNetworkTest() throws IOException {
+        final String result = RestTestUtil.doGet("/networkStatistics");
+
+        LOG.info("Result:   " + result);
+
+        JsonAssert.with(result).assertThat("$.stationsPerZone.*", contains(1, 2))
+                               .assertThat("$.stationsPerLine.Jubilee", equalTo(3))
+                               .assertThat("$.stationsPerLine.*", hasSize(3))
+                               .assertThat("$.interchangeStations", equalTo(2));
+    }
 
 }
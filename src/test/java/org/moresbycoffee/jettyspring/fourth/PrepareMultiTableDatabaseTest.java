@@ -33,6 +33,10 @@ package org.moresbycoffee.jettyspring.fourth;
 import static org.hamcrest.Matchers.*;
 
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -40,7 +44,10 @@ import javax.persistence.EntityTransaction;
 
 import org.apache.log4j.Logger;
 import org.eclipse.jetty.server.Server;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.AfterClass;
+import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.moresbycoffee.jettyspring.EntityManagerFactoryUtil;
@@ -57,6 +64,7 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
 import com.jayway.jsonassert.JsonAssert;
+import com.jayway.jsonpath.JsonPath;
 
 
 /**
@@ -197,4 +205,184 @@ public class PrepareMultiTableDatabaseTest {
         JsonAssert.with(result).assertThat("$..name", hasItems("London Bridge", "Bermondsey", "Canada Water"));
     }
 
+    /**
+     * Tests the {@link org.moresbycoffee.jettyspring.fourth.spring.FourthTestRestController#listStationPage(Long, Integer) FourthTestRestController#listStationPage(Long, Integer)}
+     * RESTful WS Service point by walking through the pages.
+     *
+     * @throws IOException If communication error occurs
+     */
+    @Test
+    public final void listStationPageTest() throws IOException {
+        final String firstPage = RestTestUtil.doGet("/listStationPage?limit=2");
+
+        LOG.info("Result:   " + firstPage);
+
+        JsonAssert.with(firstPage).assertThat("$.stations[*].name", contains("London Bridge", "Bermondsey"));
+        final Number nextAfterId = JsonPath.read(firstPage, "$.nextAfterId");
+
+        final String lastPage = RestTestUtil.doGet("/listStationPage?limit=2&afterId=" + nextAfterId);
+
+        LOG.info("Result:   " + lastPage);
+
+        JsonAssert.with(lastPage).assertThat("$.stations[*].name", contains("Canada Water"))
+                                 .assertNotDefined("$.nextAfterId");
+
+        /* The repeated page is served by the query cache. */
+        final Statistics statistics = ((HibernateEntityManagerFactory) emf).getSessionFactory().getStatistics();
+        statistics.clear();
+        Assert.assertEquals(firstPage, RestTestUtil.doGet("/listStationPage?limit=2"));
+        Assert.assertEquals(0, statistics.getPrepareStatementCount());
+        Assert.assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    /**
+     * Tests the conditional <tt>GET</tt> of the
+     * {@link org.moresbycoffee.jettyspring.fourth.spring.FourthTestRestController#listStations(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse) FourthTestRestController#listStations()}
+     * RESTful WS Service point: the ETag of the first response has to result <tt>304 Not Modified</tt>.
+     *
+     * @throws IOException If communication error occurs
+     */
+    @Test
+    public final void listStationNotModifiedTest() throws IOException {
+        final Map<String, String> responseHeaders = new HashMap<String, String>();
+        RestTestUtil.doGet("/listStations", null, responseHeaders, HttpURLConnection.HTTP_OK);
+
+        final String etag = responseHeaders.get("ETag");
+        Assert.assertNotNull(etag);
+
+        final String result = RestTestUtil.doGet("/listStations", Collections.singletonMap("If-None-Match", etag), null, HttpURLConnection.HTTP_NOT_MODIFIED);
+        Assert.assertEquals("", result);
+
+        RestTestUtil.doGet("/listStations", Collections.singletonMap("If-None-Match", "\"outdated\""), null, HttpURLConnection.HTTP_OK);
+    }
+
+    /**
+     * Tests that the {@link org.moresbycoffee.jettyspring.fourth.spring.FourthTestRestController#listStations(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse) FourthTestRestController#listStations()}
+     * RESTful WS Service point sends the gzip encoded response if the client accepts it and the
+     * repeated requests are served from the cache.
+     *
+     * @throws IOException If communication error occurs
+     */
+    @Test
+    public final void listStationGzipCacheTest() throws IOException {
+        final Map<String, String> responseHeaders = new HashMap<String, String>();
+        RestTestUtil.doGet("/listStations", Collections.singletonMap("Accept-Encoding", "gzip"), responseHeaders, HttpURLConnection.HTTP_OK);
+        Assert.assertEquals("gzip", responseHeaders.get("Content-Encoding"));
+
+        responseHeaders.clear();
+        RestTestUtil.doGet("/listStations", Collections.singletonMap("Accept-Encoding", "gzip;q=0"), responseHeaders, HttpURLConnection.HTTP_OK);
+        Assert.assertFalse(responseHeaders.containsKey("Content-Encoding"));
+
+        final String statistics = RestTestUtil.doGet("/cacheStatistics");
+
+        LOG.info("Result:   " + statistics);
+
+        JsonAssert.with(statistics).assertThat("$.listStations.hits", greaterThanOrEqualTo(1))
+                                   .assertThat("$.listStations.elements", equalTo(1));
+    }
+
+    /**
+     * Tests the {@link org.moresbycoffee.jettyspring.fourth.spring.StationSuggestRestController#suggest(String, Integer) StationSuggestRestController#suggest(String, Integer)}
+     * RESTful WS Service point.
+     *
+     * @throws IOException If communication error occurs
+     */
+    @Test
+    public final void suggestStationTest() throws IOException {
+        final String result = RestTestUtil.doGet("/stations/suggest?prefix=lOn");
+
+        LOG.info("Result:   " + result);
+
+        JsonAssert.with(result).assertThat("$[*].name", contains("London Bridge"));
+        JsonAssert.with(RestTestUtil.doGet("/stations/suggest?prefix=can")).assertThat("$[*].name", contains("Canada Water"));
+        JsonAssert.with(RestTestUtil.doGet("/stations/suggest?prefix=x")).assertThat("$", empty());
+    }
+
+    /**
+     * Tests the {@link org.moresbycoffee.jettyspring.fourth.spring.JourneyPlannerRestController#route(long, long, javax.servlet.http.HttpServletResponse) JourneyPlannerRestController#route()}
+     * RESTful WS Service point.
+     *
+     * @throws IOException If communication error occurs
+     */
+    @Test
+    public final void routeTest() throws IOException {
+        final String stations = RestTestUtil.doGet("/listStationPage?limit=3");
+        final Number londonBridgeId = JsonPath.read(stations, "$.stations[0].id");
+        final Number bermondseyId = JsonPath.read(stations, "$.stations[1].id");
+
+        final String result = RestTestUtil.doGet("/route?from=" + bermondseyId + "&to=" + londonBridgeId);
+
+        LOG.info("Result:   " + result);
+
+        JsonAssert.with(result).assertThat("$.legs[*].line", contains("Jubilee"))
+                               .assertThat("$.legs[0].from.name", equalTo("Bermondsey"))
+                               .assertThat("$.legs[0].to.name", equalTo("London Bridge"))
+                               .assertThat("$.changes", equalTo(0))
+                               .assertThat("$.zones", contains(1, 2));
+
+        RestTestUtil.doGet("/route?from=" + bermondseyId + "&to=-1", HttpURLConnection.HTTP_NOT_FOUND);
+    }
+
+    /**
+     * Tests the {@link org.moresbycoffee.jettyspring.fourth.spring.FourthTestRestController#listStationDetails() FourthTestRestController#listStationDetails()}
+     * and {@link org.moresbycoffee.jettyspring.fourth.spring.FourthTestRestController#stationDetail(long, javax.servlet.http.HttpServletResponse) FourthTestRestController#stationDetail()}
+     * RESTful WS Service points. The whole network has to be loaded by one SQL statement.
+     *
+     * @throws IOException If communication error occurs
+     */
+    @Test
+    public final void stationDetailTest() throws IOException {
+        final Statistics statistics = ((HibernateEntityManagerFactory) emf).getSessionFactory().getStatistics();
+        statistics.clear();
+
+        final String result = RestTestUtil.doGet("/listStationDetails");
+
+        LOG.info("Result:   " + result);
+
+        Assert.assertEquals(1, statistics.getPrepareStatementCount());
+        JsonAssert.with(result).assertThat("$[*].name", contains("London Bridge", "Bermondsey", "Canada Water"))
+                               .assertThat("$[0].zone", equalTo(1))
+                               .assertThat("$[0].lines", containsInAnyOrder("Jubilee", "Northern"))
+                               .assertThat("$[2].lines", containsInAnyOrder("Jubilee", "Overground"));
+
+        final Number canadaWaterId = JsonPath.read(result, "$[2].id");
+        statistics.clear();
+
+        final String station = RestTestUtil.doGet("/stations/" + canadaWaterId);
+
+        LOG.info("Result:   " + station);
+
+        Assert.assertTrue(statistics.getPrepareStatementCount() <= 1);
+        JsonAssert.with(station).assertThat("$.name", equalTo("Canada Water"))
+                                .assertThat("$.zone", equalTo(2))
+                                .assertThat("$.lines", containsInAnyOrder("Jubilee", "Overground"));
+
+        RestTestUtil.doGet("/stations/-1", HttpURLConnection.HTTP_NOT_FOUND);
+    }
+
+    /**
+     * Tests the {@link org.moresbycoffee.jettyspring.fourth.spring.FourthTestRestController#networkStatistics() FourthTestRestController#networkStatistics()}
+     * RESTful WS Service point. The repeated request has to be served without reaching the database.
+     *
+     * @throws IOException If communication error occurs
+     */
+    @Test
+    public final void networkStatisticsTest() throws IOException {
+        final String result = RestTestUtil.doGet("/networkStatistics");
+
+        LOG.info("Result:   " + result);
+
+        JsonAssert.with(result).assertThat("$.stationsPerZone.1", equalTo(1))
+                               .assertThat("$.stationsPerZone.2", equalTo(2))
+                               .assertThat("$.stationsPerLine.Jubilee", equalTo(3))
+                               .assertThat("$.stationsPerLine.Northern", equalTo(1))
+                               .assertThat("$.stationsPerLine.Overground", equalTo(1))
+                               .assertThat("$.interchangeStations", equalTo(2));
+
+        final Statistics statistics = ((HibernateEntityManagerFactory) emf).getSessionFactory().getStatistics();
+        statistics.clear();
+        Assert.assertEquals(result, RestTestUtil.doGet("/networkStatistics"));
+        Assert.assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
 }
@@ -0,0 +1,145 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.moresbycoffee.jettyspring.EntityManagerFactoryUtil;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+
+
+/**
+ * Tests the {@link CsvNetworkImporter}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class CsvNetworkImporterTest {
+
+    /** The network of the first import. */
+    private static final String FIRST_CSV = "Station,Lines,Zone\n"
+                                          + "Canada Water,\"Jubilee, Overground\",2\n"
+                                          + "London Bridge,\"Jubilee, Northern\",1\n";
+
+    /** The network of the second import: only Elizabeth and zone 3 are new. */
+    private static final String SECOND_CSV = "Station,Lines,Zone\n"
+                                           + "Bermondsey,Jubilee,2\n"
+                                           + "Borough,Northern,1\n"
+                                           + "Whitechapel,\"Elizabeth, Overground\",3\n";
+
+    /** The entity manager factory of the test database. */
+    private EntityManagerFactory emf;
+
+    /**
+     * Creates an empty database.
+     */
+    @Before
+    public void createDatabase() {
+        emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("csvImportTest", "org.moresbycoffee.jettyspring.fourth.domain");
+    }
+
+    /**
+     * Drops the database.
+     */
+    @After
+    public void dropDatabase() {
+        if (emf != null && emf.isOpen()) {
+            emf.close();
+        }
+    }
+
+    /**
+     * Tests that a second import by a new importer reuses the stored zones and lines.
+     *
+     * @throws IOException If error occurs during the import.
+     */
+    @Test
+    public final void secondImportTest() throws IOException {
+        new CsvNetworkImporter(emf).importCsv(new StringReader(FIRST_CSV));
+        final ImportStatisticsDTO statistics = new CsvNetworkImporter(emf).importCsv(new StringReader(SECOND_CSV));
+
+        Assert.assertEquals(3, statistics.getRows());
+        Assert.assertEquals(1, statistics.getZones());
+        Assert.assertEquals(1, statistics.getLines());
+        assertCounts(5, 3, 4);
+    }
+
+    /**
+     * Tests that the zones and the lines created by a rolled back chunk are created again by the next import
+     * of the same importer.
+     *
+     * @throws IOException If error occurs during the import.
+     */
+    @Test
+    public final void failedChunkTest() throws IOException {
+        final CsvNetworkImporter importer = new CsvNetworkImporter(emf, 2);
+        importer.importCsv(new StringReader(FIRST_CSV));
+        try {
+            importer.importCsv(new StringReader(SECOND_CSV + "Stepney Green,District,x\n"));
+            Assert.fail("The invalid zone number has not been detected");
+        } catch (final IOException e) {
+            /* The chunk of Whitechapel is rolled back. */
+            assertCounts(4, 2, 3);
+        }
+
+        final ImportStatisticsDTO statistics = importer.importCsv(new StringReader("Station,Lines,Zone\n"
+                                                                                   + "Whitechapel,\"Elizabeth, Overground\",3\n"));
+
+        Assert.assertEquals(1, statistics.getZones());
+        Assert.assertEquals(1, statistics.getLines());
+        assertCounts(5, 3, 4);
+    }
+
+    /**
+     * @param stations The expected number of the stations.
+     * @param zones The expected number of the zones.
+     * @param lines The expected number of the lines.
+     */
+    private void assertCounts(final long stations, final long zones, final long lines) {
+        final EntityManager entityManager = emf.createEntityManager();
+        try {
+            Assert.assertEquals(Long.valueOf(stations), entityManager.createQuery("select count(s) from Station s").getSingleResult());
+            Assert.assertEquals(Long.valueOf(zones), entityManager.createQuery("select count(z) from Zone z").getSingleResult());
+            Assert.assertEquals(Long.valueOf(lines), entityManager.createQuery("select count(l) from Line l").getSingleResult());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+}
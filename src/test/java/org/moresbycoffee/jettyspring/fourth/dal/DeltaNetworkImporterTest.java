@@ -0,0 +1,238 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.moresbycoffee.jettyspring.EntityManagerFactoryUtil;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.DeltaImportStatisticsDTO;
+import org.moresbycoffee.jettyspring.fourth.domain.Line;
+import org.moresbycoffee.jettyspring.fourth.domain.Station;
+import org.moresbycoffee.jettyspring.fourth.domain.Zone;
+
+
+/**
+ * Tests the {@link DeltaNetworkImporter}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class DeltaNetworkImporterTest {
+
+    /** The initial network. */
+    private static final String INITIAL_CSV = "Station,Lines,Zone\n"
+                                            + "Canada Water,\"Jubilee, Overground\",2\n"
+                                            + "Bermondsey,Jubilee,2\n"
+                                            + "London Bridge,\"Jubilee, Northern\",1\n"
+                                            + "Borough,Northern,1\n";
+
+    /**
+     * The changed network: Canada Water is unchanged (only the order of its lines differs),
+     * Bermondsey has changed zone, London Bridge has changed lines, Borough has been removed
+     * and Southwark is new.
+     */
+    private static final String CHANGED_CSV = "Station,Lines,Zone\n"
+                                            + "Canada Water,\"Overground, Jubilee\",2\n"
+                                            + "Bermondsey,Jubilee,3\n"
+                                            + "London Bridge,\"Northern, Thameslink\",1\n"
+                                            + "Southwark,Jubilee,1\n";
+
+    /** The entity manager factory of the test database. */
+    private EntityManagerFactory emf;
+
+    /**
+     * Creates the database with the initial network.
+     *
+     * @throws IOException If the initial import fails.
+     */
+    @Before
+    public void createDatabase() throws IOException {
+        emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("deltaImportTest", "org.moresbycoffee.jettyspring.fourth.domain");
+        new CsvNetworkImporter(emf).importCsv(new StringReader(INITIAL_CSV));
+    }
+
+    /**
+     * Drops the database.
+     */
+    @After
+    public void dropDatabase() {
+        if (emf != null && emf.isOpen()) {
+            emf.close();
+        }
+    }
+
+    /**
+     * Tests that only the differences are applied.
+     *
+     * @throws IOException If error occurs during the import.
+     */
+    @Test
+    public final void deltaTest() throws IOException {
+        final long canadaWaterId = stationId("Canada Water");
+        final long londonBridgeId = stationId("London Bridge");
+
+        final DeltaImportStatisticsDTO statistics = new DeltaNetworkImporter(emf).importCsv(new StringReader(CHANGED_CSV), null);
+
+        Assert.assertEquals(4, statistics.getRows());
+        Assert.assertEquals(1, statistics.getInserted());
+        Assert.assertEquals(2, statistics.getUpdated());
+        Assert.assertEquals(1, statistics.getDeleted());
+        Assert.assertEquals(1, statistics.getUnchanged());
+        Assert.assertEquals(1, statistics.getZones());
+        Assert.assertEquals(1, statistics.getLines());
+
+        final EntityManager entityManager = emf.createEntityManager();
+        try {
+            final List<Station> stations = entityManager.createQuery("select distinct s from Station s join fetch s.zone left join fetch s.lines order by s.name",
+                                                                     Station.class).getResultList();
+            Assert.assertEquals("[Bermondsey 3 [Jubilee], Canada Water 2 [Jubilee, Overground], London Bridge 1 [Northern, Thameslink], Southwark 1 [Jubilee]]",
+                                describe(stations));
+            Assert.assertEquals(canadaWaterId, stationId("Canada Water"));
+            Assert.assertEquals(londonBridgeId, stationId("London Bridge"));
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Tests that the cached inverse collections of the lines and the zones are not stale after the
+     * deletes, the updates and the inserts of the delta import.
+     *
+     * @throws IOException If error occurs during the import.
+     */
+    @Test
+    public final void inverseCollectionCacheTest() throws IOException {
+        Assert.assertEquals("[Borough, London Bridge] [Bermondsey, Canada Water] []",
+                            describeInverseCollections());
+
+        new DeltaNetworkImporter(emf).importCsv(new StringReader(CHANGED_CSV), null);
+
+        Assert.assertEquals("[London Bridge] [Canada Water] [Bermondsey]", describeInverseCollections());
+    }
+
+    /**
+     * Tests that a repeated import of the same file writes nothing.
+     *
+     * @throws IOException If error occurs during the import.
+     */
+    @Test
+    public final void unchangedTest() throws IOException {
+        new DeltaNetworkImporter(emf).importCsv(new StringReader(CHANGED_CSV), null);
+
+        final Statistics hibernateStatistics = ((HibernateEntityManagerFactory) emf).getSessionFactory().getStatistics();
+        hibernateStatistics.clear();
+        final DeltaImportStatisticsDTO statistics = new DeltaNetworkImporter(emf).importCsv(new StringReader(CHANGED_CSV), null);
+
+        Assert.assertEquals(4, statistics.getUnchanged());
+        Assert.assertEquals(0, statistics.getInserted() + statistics.getUpdated() + statistics.getDeleted());
+        Assert.assertEquals(0, hibernateStatistics.getEntityInsertCount() + hibernateStatistics.getEntityUpdateCount()
+                               + hibernateStatistics.getEntityDeleteCount() + hibernateStatistics.getCollectionUpdateCount());
+    }
+
+    /**
+     * Tests that the duplicated station names are rejected.
+     *
+     * @throws IOException If error occurs during the import.
+     */
+    @Test
+    public final void duplicateStationTest() throws IOException {
+        try {
+            new DeltaNetworkImporter(emf).importCsv(new StringReader(CHANGED_CSV + "Bermondsey,Jubilee,2\n"), null);
+            Assert.fail("The duplicated station has not been detected");
+        } catch (final IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("line 6"));
+        }
+    }
+
+    /**
+     * Reads the stations of the Northern line, of the zone 2 and of the zone 3 (if it exists), so the
+     * collections are put into the second-level cache when they are loaded from the database.
+     *
+     * @return The names of the stations in the collections. (NonNull)
+     */
+    private String describeInverseCollections() {
+        final EntityManager entityManager = emf.createEntityManager();
+        try {
+            final Line northern = entityManager.createQuery("select l from Line l where l.name = 'Northern'", Line.class).getSingleResult();
+            final List<Zone> zones = entityManager.createQuery("select z from Zone z where z.number in (2, 3) order by z.number", Zone.class)
+                                                  .getResultList();
+            return names(northern.getStations()) + " " + names(zones.get(0).getStations()) + " "
+                   + (zones.size() > 1 ? names(zones.get(1).getStations()) : "[]");
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static List<String> names(final List<Station> stations) {
+        final List<String> names = new ArrayList<String>();
+        for (final Station station : stations) {
+            names.add(station.getName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private long stationId(final String name) {
+        final EntityManager entityManager = emf.createEntityManager();
+        try {
+            return entityManager.createQuery("select s.id from Station s where s.name = :name", Long.class).setParameter("name", name)
+                                .getSingleResult().longValue();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    private static String describe(final List<Station> stations) {
+        final List<String> descriptions = new ArrayList<String>();
+        for (final Station station : stations) {
+            final List<String> lines = new ArrayList<String>();
+            for (final Line line : station.getLines()) {
+                lines.add(line.getName());
+            }
+            descriptions.add(station.getName() + " " + station.getZone().getNumber() + " " + lines);
+        }
+        return descriptions.toString();
+    }
+
+}
@@ -0,0 +1,153 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.moresbycoffee.jettyspring.EntityManagerFactoryUtil;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+
+
+/**
+ * Tests the {@link MappedCsvNetworkImporter}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class MappedCsvNetworkImporterTest {
+
+    /** The entity manager factory of the test database. */
+    private EntityManagerFactory emf;
+
+    /** The temporary CSV file. */
+    private File csvFile;
+
+    /**
+     * Creates an empty database and the temporary file.
+     *
+     * @throws IOException If the temporary file cannot be created.
+     */
+    @Before
+    public void createDatabase() throws IOException {
+        emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("mappedImportTest", "org.moresbycoffee.jettyspring.fourth.domain");
+        csvFile = File.createTempFile("network", ".csv");
+    }
+
+    /**
+     * Drops the database and deletes the temporary file.
+     */
+    @After
+    public void dropDatabase() {
+        if (emf != null && emf.isOpen()) {
+            emf.close();
+        }
+        if (csvFile != null) {
+            csvFile.delete();
+        }
+    }
+
+    /**
+     * Tests the quoted fields, the CRLF line endings, the byte order mark, the empty lines
+     * and the repeated line names of a station.
+     *
+     * @throws IOException If error occurs during the import.
+     */
+    @Test
+    public final void importTest() throws IOException {
+        writeCsv("\uFEFFStation,Lines,Zone\r\n"
+                 + "Canada Water,\"Jubilee, Overground\",2\r\n"
+                 + "\r\n"
+                 + "\"Bermondsey \"\"Central\"\"\", Jubilee ,  2 \r\n"
+                 + "London Bridge,\"Jubilee,Northern, Jubilee\",1\r\n"
+                 + "Kennington,Northern,2");
+
+        final ImportStatisticsDTO statistics = new MappedCsvNetworkImporter(emf, 2).importCsv(csvFile);
+
+        Assert.assertEquals(4, statistics.getRows());
+        Assert.assertEquals(2, statistics.getZones());
+        Assert.assertEquals(3, statistics.getLines());
+
+        final EntityManager entityManager = emf.createEntityManager();
+        try {
+            Assert.assertEquals(Long.valueOf(1), entityManager.createQuery("select count(s) from Station s where s.name = 'Bermondsey \"Central\"'")
+                                                              .getSingleResult());
+            Assert.assertEquals(Long.valueOf(3), entityManager.createQuery("select count(s) from Station s join s.lines l where l.name = 'Jubilee'")
+                                                              .getSingleResult());
+            Assert.assertEquals(Long.valueOf(2), entityManager.createQuery("select count(s) from Station s join s.lines l where l.name = 'Northern'")
+                                                              .getSingleResult());
+            Assert.assertEquals(Long.valueOf(6), entityManager.createQuery("select count(l) from Station s join s.lines l").getSingleResult());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Tests that the invalid zone number is reported with the line number of the invalid row.
+     *
+     * @throws IOException If error occurs during the import.
+     */
+    @Test
+    public final void invalidRowTest() throws IOException {
+        writeCsv("Station,Lines,Zone\n"
+                 + "Canada Water,\"Jubilee, Overground\",2\n"
+                 + "Bermondsey,Jubilee,two\n");
+        try {
+            new MappedCsvNetworkImporter(emf).importCsv(csvFile);
+            Assert.fail("The invalid zone number has not been detected");
+        } catch (final IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("line 3"));
+        }
+    }
+
+    /**
+     * @param content The content of the CSV file. (NonNull)
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeCsv(final String content) throws IOException {
+        final OutputStream out = new FileOutputStream(csvFile);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.moresbycoffee.jettyspring.EntityManagerFactoryUtil;
+import org.moresbycoffee.jettyspring.fourth.NetworkGenerator;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+
+/**
+ * JMH benchmark of the full network imports of a plain CSV file into an empty in-memory H2 database:
+ * the serial {@link CsvNetworkImporter}, the {@link MappedCsvNetworkImporter} and the
+ * {@link PipelinedCsvNetworkImporter} with <tt>parserThreads</tt> parser threads.
+ * Every invocation imports into a new database.<br>
+ * Run by the <tt>benchmark</tt> Maven profile.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NetworkImportBenchmark {
+
+    /** Numbers the databases, so every invocation has its own. */
+    private static final AtomicInteger DATABASE_COUNTER = new AtomicInteger();
+
+    /** The number of the stations in the CSV file. */
+    @Param({"50000" })
+    public int stations;
+
+    /** The number of the parser threads of the pipelined import. */
+    @Param({"1", "2", "4" })
+    public int parserThreads;
+
+    private File                 csvFile;
+    private EntityManagerFactory emf;
+
+    /**
+     * Writes the CSV file.
+     *
+     * @throws IOException If the file cannot be written.
+     */
+    @Setup
+    public void writeCsv() throws IOException {
+        csvFile = File.createTempFile("networkImportBenchmark", ".csv");
+        NetworkGenerator.builder().stations(stations).lines(20).stationsPerLine(stations / 10).interchangeDensity(0.2).build().writeCsv(csvFile);
+    }
+
+    /**
+     * Deletes the CSV file.
+     */
+    @TearDown
+    public void deleteCsv() {
+        csvFile.delete();
+    }
+
+    /**
+     * Creates an empty database.
+     */
+    @Setup(Level.Invocation)
+    public void createDatabase() {
+        emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("networkImportBenchmark" + DATABASE_COUNTER.incrementAndGet(),
+                                                                   "org.moresbycoffee.jettyspring.fourth.domain");
+    }
+
+    /**
+     * Drops the database.
+     */
+    @TearDown(Level.Invocation)
+    public void dropDatabase() {
+        emf.close();
+    }
+
+    /**
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If the import fails.
+     */
+    @Benchmark
+    public ImportStatisticsDTO serial() throws IOException {
+        final Reader reader = new InputStreamReader(new FileInputStream(csvFile), "UTF-8");
+        try {
+            return new CsvNetworkImporter(emf).importCsv(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If the import fails.
+     */
+    @Benchmark
+    public ImportStatisticsDTO mapped() throws IOException {
+        return new MappedCsvNetworkImporter(emf).importCsv(csvFile);
+    }
+
+    /**
+     * @return The statistics of the import. (NonNull)
+     * @throws IOException If the import fails.
+     */
+    @Benchmark
+    public ImportStatisticsDTO pipelined() throws IOException {
+        final Reader reader = new InputStreamReader(new FileInputStream(csvFile), "UTF-8");
+        try {
+            return new PipelinedCsvNetworkImporter(emf, parserThreads).importCsv(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.IOException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link NetworkRow}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class NetworkRowTest {
+
+    /**
+     * Tests that the rows share the instances of the equal line names.
+     *
+     * @throws IOException If a row is invalid.
+     */
+    @Test
+    public final void lineNameSharingTest() throws IOException {
+        final NetworkRow canadaWater = NetworkRow.parse(new String[] {"Canada Water", "Jubilee, Overground, Jubilee", "2" }, 2);
+        final NetworkRow londonBridge = NetworkRow.parse(new String[] {"London Bridge", " Northern ,Jubilee", "1" }, 3);
+
+        Assert.assertArrayEquals(new String[] {"Jubilee", "Overground" }, canadaWater.lineNames);
+        Assert.assertArrayEquals(new String[] {"Northern", "Jubilee" }, londonBridge.lineNames);
+        Assert.assertSame(canadaWater.lineNames[0], londonBridge.lineNames[1]);
+        Assert.assertSame(canadaWater.zoneNumber, NetworkRow.parse(new String[] {"Bermondsey", "Jubilee", " 2" }, 4).zoneNumber);
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.moresbycoffee.jettyspring.EntityManagerFactoryUtil;
+import org.moresbycoffee.jettyspring.fourth.NetworkGenerator;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.ImportStatisticsDTO;
+
+
+/**
+ * Tests the {@link PipelinedCsvNetworkImporter} on a generated network.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class PipelinedCsvNetworkImporterTest {
+
+    /** The number of the generated stations. */
+    private static final int STATION_COUNT = 5000;
+
+    /** The number of the generated lines. */
+    private static final int LINE_COUNT = 20;
+
+    /** The number of the generated zones. */
+    private static final int ZONE_COUNT = 6;
+
+    /** The generated network. */
+    private static final NetworkGenerator NETWORK = NetworkGenerator.builder().stations(STATION_COUNT).lines(LINE_COUNT)
+                                                                    .stationsPerLine(STATION_COUNT / LINE_COUNT * 2).interchangeDensity(0.5)
+                                                                    .zones(ZONE_COUNT).build();
+
+    /** The entity manager factory of the test database. */
+    private EntityManagerFactory emf;
+
+    /**
+     * Creates an empty database.
+     */
+    @Before
+    public void createDatabase() {
+        emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("pipelinedImportTest", "org.moresbycoffee.jettyspring.fourth.domain");
+    }
+
+    /**
+     * Drops the database.
+     */
+    @After
+    public void dropDatabase() {
+        if (emf != null && emf.isOpen()) {
+            emf.close();
+        }
+    }
+
+    /**
+     * Tests that all the rows are imported, the zones and the lines are created only once, and the stations
+     * are on the same lines as after the serial import.
+     *
+     * @throws IOException If error occurs during the import.
+     */
+    @Test
+    public final void importTest() throws IOException {
+        final ImportStatisticsDTO statistics = new PipelinedCsvNetworkImporter(emf, 3, 100).importCsv(NETWORK.csvReader());
+
+        Assert.assertEquals(STATION_COUNT, statistics.getRows());
+        Assert.assertEquals(ZONE_COUNT, statistics.getZones());
+        Assert.assertEquals(LINE_COUNT, statistics.getLines());
+
+        final EntityManager entityManager = emf.createEntityManager();
+        try {
+            Assert.assertEquals(Long.valueOf(STATION_COUNT), entityManager.createQuery("select count(s) from Station s").getSingleResult());
+            Assert.assertEquals(Long.valueOf(ZONE_COUNT), entityManager.createQuery("select count(z) from Zone z").getSingleResult());
+            Assert.assertEquals(Long.valueOf(LINE_COUNT), entityManager.createQuery("select count(l) from Line l").getSingleResult());
+            Assert.assertEquals(countMemberships(serialImport()), entityManager.createQuery("select count(l) from Station s join s.lines l").getSingleResult());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Tests that the failure of a parser thread is reported with the line number of the invalid row.
+     *
+     * @throws IOException If error occurs during the import.
+     */
+    @Test
+    public final void invalidRowTest() throws IOException {
+        try {
+            new PipelinedCsvNetworkImporter(emf, 3, 100).importCsv(new StringReader(generateCsv(STATION_COUNT - 10)));
+            Assert.fail("The invalid zone number has not been detected");
+        } catch (final IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("line " + (STATION_COUNT - 10 + 2)));
+        }
+    }
+
+    /**
+     * Tests that the monitor is notified about the written rows and the cancelled import keeps only the committed chunks.
+     *
+     * @throws IOException If error occurs during the import.
+     */
+    @Test
+    public final void cancelTest() throws IOException {
+        final AtomicLong writtenRows = new AtomicLong();
+        final ImportMonitor monitor = new ImportMonitor() {
+
+            @Override
+            public void rowsWritten(final long rows) {
+                writtenRows.set(rows);
+            }
+
+            @Override
+            public void bytesRead(final long bytes) {
+                /* The pipelined importer reads a stream. */
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return writtenRows.get() >= 250;
+            }
+
+        };
+        try {
+            new PipelinedCsvNetworkImporter(emf, 3, 100).importCsv(NETWORK.csvReader(), monitor);
+            Assert.fail("The import has not been cancelled");
+        } catch (final CancellationException e) {
+            Assert.assertEquals(250, writtenRows.get());
+        }
+
+        final EntityManager entityManager = emf.createEntityManager();
+        try {
+            Assert.assertEquals(Long.valueOf(200), entityManager.createQuery("select count(s) from Station s").getSingleResult());
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * @return The entity manager factory of a database with the network imported by the serial {@link CsvNetworkImporter}. (NonNull)
+     * @throws IOException If error occurs during the import.
+     */
+    private static EntityManagerFactory serialImport() throws IOException {
+        final EntityManagerFactory serialEmf = EntityManagerFactoryUtil.createH2MemoryEntityManager("serialImportTest", "org.moresbycoffee.jettyspring.fourth.domain");
+        new CsvNetworkImporter(serialEmf).importCsv(NETWORK.csvReader());
+        return serialEmf;
+    }
+
+    /**
+     * @param serialEmf The entity manager factory of the database. It is closed. (NonNull)
+     * @return The number of the station-line memberships in the database. (NonNull)
+     */
+    private static Long countMemberships(final EntityManagerFactory serialEmf) {
+        try {
+            final EntityManager entityManager = serialEmf.createEntityManager();
+            try {
+                return entityManager.createQuery("select count(l) from Station s join s.lines l", Long.class).getSingleResult();
+            } finally {
+                entityManager.close();
+            }
+        } finally {
+            serialEmf.close();
+        }
+    }
+
+    /**
+     * @param invalidRow The index of the row the zone number of which is replaced by an invalid one.
+     * @return The generated CSV content with the invalid row. (NonNull)
+     * @throws IOException If the content cannot be generated (never happens).
+     */
+    private static String generateCsv(final int invalidRow) throws IOException {
+        final StringWriter out = new StringWriter();
+        NETWORK.writeCsv(out);
+        final String[] rows = out.toString().split("\n");
+        /* The first row is the header. */
+        final String row = rows[invalidRow + 1];
+        rows[invalidRow + 1] = row.substring(0, row.lastIndexOf(',') + 1) + "x";
+
+        final StringBuilder csv = new StringBuilder();
+        for (final String each : rows) {
+            csv.append(each).append('\n');
+        }
+        return csv.toString();
+    }
+
+}
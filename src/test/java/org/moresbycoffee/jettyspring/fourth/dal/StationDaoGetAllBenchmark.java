@@ -0,0 +1,184 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.dal;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+
+import org.moresbycoffee.jettyspring.EntityManagerFactoryUtil;
+import org.moresbycoffee.jettyspring.fourth.NetworkGenerator;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDTO;
+import org.moresbycoffee.jettyspring.fourth.domain.Station;
+import org.moresbycoffee.jettyspring.fourth.util.StationToDtoConverter;
+import org.moresbycoffee.jettyspring.util.converter.Converters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+
+/**
+ * JMH benchmark of the {@link StationDao#getAll()} against an in-memory H2 database.
+ * Every invocation uses a new persistence context, like a request does, so the stations
+ * come from the query and the second-level cache, not from the persistence context.<br>
+ * The entity based (<tt>from Station</tt> + {@link StationToDtoConverter}) and the constructor
+ * projection based ({@link StationDao#getAllDtos()}) station listings are compared as well,
+ * the allocated bytes are reported by the <tt>gc</tt> profiler of the <tt>benchmark</tt> profile.<br>
+ * Run by the <tt>benchmark</tt> Maven profile.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StationDaoGetAllBenchmark {
+
+    /** The number of the stations in the database. */
+    @Param({"1000", "10000", "50000" })
+    public int stations;
+
+    private EntityManagerFactory emf;
+
+    /**
+     * Creates and populates the database.
+     *
+     * @throws IOException Never.
+     */
+    @Setup
+    public void createDatabase() throws IOException {
+        emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("stationDaoGetAllBenchmark" + stations, "org.moresbycoffee.jettyspring.fourth.domain");
+        NetworkGenerator.builder().stations(stations).lines(20).stationsPerLine(stations / 10).interchangeDensity(0.2).build().load(emf);
+    }
+
+    /**
+     * Drops the database.
+     */
+    @TearDown
+    public void dropDatabase() {
+        emf.close();
+    }
+
+    /**
+     * @return The stations. (NonNull)
+     */
+    @Benchmark
+    public Collection<Station> getAll() {
+        return list(new Listing<Collection<Station>>() {
+
+            @Override
+            public Collection<Station> list(final StationDao dao) {
+                return dao.getAll();
+            }
+
+        });
+    }
+
+    /**
+     * @return The stations converted by the {@link StationToDtoConverter}. (NonNull)
+     */
+    @Benchmark
+    public Collection<StationDTO> getAllConverted() {
+        return list(new Listing<Collection<StationDTO>>() {
+
+            @Override
+            public Collection<StationDTO> list(final StationDao dao) {
+                return Converters.convertList(dao.getAll(), StationToDtoConverter.getInstance());
+            }
+
+        });
+    }
+
+    /**
+     * @return The stations by constructor projection. (NonNull)
+     */
+    @Benchmark
+    public Collection<StationDTO> getAllDtos() {
+        return list(new Listing<Collection<StationDTO>>() {
+
+            @Override
+            public Collection<StationDTO> list(final StationDao dao) {
+                return dao.getAllDtos();
+            }
+
+        });
+    }
+
+    /**
+     * Runs the listing in a new persistence context and transaction.
+     *
+     * @param <T> The type of the result of the listing.
+     * @param listing The measured listing. (NonNull)
+     * @return The result of the listing.
+     */
+    private <T> T list(final Listing<T> listing) {
+        final EntityManager entityManager = emf.createEntityManager();
+        try {
+            final StationDao dao = new StationDao();
+            dao.entityManager = entityManager;
+
+            final EntityTransaction transaction = entityManager.getTransaction();
+            transaction.begin();
+            try {
+                return listing.list(dao);
+            } finally {
+                transaction.commit();
+            }
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * One of the measured station listings.
+     *
+     * @param <T> The type of the result of the listing.
+     */
+    private interface Listing<T> {
+
+        /**
+         * @param dao The DAO to use. (NonNull)
+         * @return The listed stations. (NonNull)
+         */
+        T list(StationDao dao);
+    }
+
+}
@@ -32,17 +32,10 @@ package org.moresbycoffee.jettyspring.fourth.parser;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.util.HashMap;
-import java.util.Map;
 
-import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 
-import org.moresbycoffee.jettyspring.fourth.domain.Line;
-import org.moresbycoffee.jettyspring.fourth.domain.Station;
-import org.moresbycoffee.jettyspring.fourth.domain.Zone;
-import org.moresbycoffee.jettyspring.util.converter.Converters;
-
-import au.com.bytecode.opencsv.CSVReader;
+import org.moresbycoffee.jettyspring.fourth.dal.CsvNetworkImporter;
 
 
 /**
@@ -57,64 +50,15 @@ public final class CsvParser {
     private CsvParser() { /* NOP */ }
 
     /**
-     * TODO javadoc.
+     * Imports the csv content using the {@link CsvNetworkImporter}. The importer commits the content
+     * in its own transactions.
      *
      * @param reader The csv content reader.
-     * @param entityManager The entitymanager to reach the persistence context.
+     * @param entityManagerFactory The factory of the entity managers of the import.
      * @throws IOException If error occurs during csv reading.
      */
-    public static void parseCsv(final Reader reader, final EntityManager entityManager) throws IOException {
-
-        final CSVReader csvReader = new CSVReader(reader);
-
-        final Map<Integer, Zone> zones = new HashMap<Integer, Zone>();
-        final Map<String, Line>  lines = new HashMap<String, Line>();
-
-        String [] nextLine;
-        if (csvReader.readNext() == null) {
-            throw new IOException("There is not enough data in the csv file");
-        }
-        while ((nextLine = csvReader.readNext()) != null) {
-
-            final String  stationName = nextLine[0];
-            final String  lineNames   = nextLine[1];
-            final Integer zoneNumber  = Integer.valueOf(nextLine[2]);
-
-            final String[] lineNameArray = Converters.<String, String>convertArray(lineNames.split(","), Converters.TRIM, String.class);
-
-            /* Find or create zone */
-            final Zone zone;
-            if (zones.containsKey(zoneNumber)) {
-                zone = zones.get(zoneNumber);
-            } else {
-                zone = new Zone(zoneNumber);
-                entityManager.persist(zone);
-            }
-
-            /* Create station */
-            final Station station = new Station(stationName, zone);
-            entityManager.persist(station);
-            zone.getStations().add(station);
-
-            /* Assign to lines */
-            for (final String lineName : lineNameArray) {
-                final Line line;
-                if (lines.containsKey(lineName)) {
-                    line = lines.get(lineName);
-                } else {
-                    line = new Line(lineName);
-                    entityManager.persist(line);
-                }
-
-                station.getLines().add(line);
-                line.getStations().add(station);
-
-
-            }
-
-
-        }
-
+    public static void parseCsv(final Reader reader, final EntityManagerFactory entityManagerFactory) throws IOException {
+        new CsvNetworkImporter(entityManagerFactory).importCsv(reader);
     }
 
 }
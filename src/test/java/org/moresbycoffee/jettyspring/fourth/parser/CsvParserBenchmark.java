@@ -0,0 +1,166 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.moresbycoffee.jettyspring.EntityManagerFactoryUtil;
+import org.moresbycoffee.jettyspring.fourth.NetworkGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import au.com.bytecode.opencsv.CSVReader;
+
+
+/**
+ * JMH benchmarks of the CSV network parsing: the row parsing alone (by the same {@link CSVReader}
+ * the importer uses) and the whole import by the {@link CsvParser} into an empty in-memory database.<br>
+ * Run by the <tt>benchmark</tt> Maven profile.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class CsvParserBenchmark {
+
+    /**
+     * The generated CSV content.
+     */
+    @State(Scope.Benchmark)
+    public static class Rows {
+
+        /** The number of the rows. */
+        @Param({"1000", "10000", "100000" })
+        public int rows;
+
+        private String csv;
+
+        /**
+         * Generates the content.
+         *
+         * @throws IOException Never.
+         */
+        @Setup
+        public void generate() throws IOException {
+            csv = generateCsv(rows);
+        }
+    }
+
+    /**
+     * The generated CSV content and an empty database for every import.
+     */
+    @State(Scope.Benchmark)
+    public static class Import {
+
+        /** The number of the rows. */
+        @Param({"1000", "10000" })
+        public int rows;
+
+        private String               csv;
+        private int                  databaseCount;
+        private EntityManagerFactory emf;
+
+        /**
+         * Generates the content.
+         *
+         * @throws IOException Never.
+         */
+        @Setup
+        public void generate() throws IOException {
+            csv = generateCsv(rows);
+        }
+
+        /**
+         * Creates an empty database.
+         */
+        @Setup(Level.Iteration)
+        public void createDatabase() {
+            emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("csvParserBenchmark" + databaseCount++, "org.moresbycoffee.jettyspring.fourth.domain");
+        }
+
+        /**
+         * Drops the database.
+         */
+        @TearDown(Level.Iteration)
+        public void dropDatabase() {
+            emf.close();
+        }
+    }
+
+    /**
+     * @param state The content. (NonNull)
+     * @param blackhole Consumes the parsed rows. (NonNull)
+     * @throws IOException Never.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void parseRows(final Rows state, final Blackhole blackhole) throws IOException {
+        final CSVReader csvReader = new CSVReader(new StringReader(state.csv));
+        String[] row;
+        while ((row = csvReader.readNext()) != null) {
+            blackhole.consume(row);
+        }
+    }
+
+    /**
+     * Every iteration imports the content once into an empty database.
+     *
+     * @param state The content and the database. (NonNull)
+     * @throws IOException Never.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void parseCsv(final Import state) throws IOException {
+        CsvParser.parseCsv(new StringReader(state.csv), state.emf);
+    }
+
+    private static String generateCsv(final int rows) throws IOException {
+        final StringWriter csv = new StringWriter();
+        NetworkGenerator.builder().stations(rows).lines(20).stationsPerLine(rows / 10).interchangeDensity(0.2).build().writeCsv(csv);
+        return csv.toString();
+    }
+
+}
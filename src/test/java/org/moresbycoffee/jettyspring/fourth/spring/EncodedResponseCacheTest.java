@@ -0,0 +1,111 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.spring;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.moresbycoffee.jettyspring.fourth.spring.EncodedResponseCache.BodyWriter;
+import org.moresbycoffee.jettyspring.fourth.spring.EncodedResponseCache.EncodedBody;
+
+
+/**
+ * Tests the {@link EncodedResponseCache}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class EncodedResponseCacheTest {
+
+    /** Writer which writes a fixed body and counts its invocations. */
+    private static final class CountingWriter implements BodyWriter {
+
+        private final byte[] content;
+        private int          count;
+
+        CountingWriter(final String content) throws IOException {
+            this.content = content.getBytes("UTF-8");
+        }
+
+        @Override
+        public void write(final OutputStream out) throws IOException {
+            count++;
+            for (final byte b : content) {
+                out.write(b);
+            }
+            out.flush();
+        }
+
+    }
+
+    /**
+     * Tests that the request of an older version does not replace the cached body.
+     *
+     * @throws IOException Never.
+     */
+    @Test
+    public final void olderVersionTest() throws IOException {
+        final EncodedResponseCache cache = new EncodedResponseCache("test", 1024);
+        Assert.assertEquals("[2]", new String(cache.get(2, new CountingWriter("[2]"), new ByteArrayOutputStream()).getIdentity(), "UTF-8"));
+
+        final ByteArrayOutputStream direct = new ByteArrayOutputStream();
+        Assert.assertNull(cache.get(1, new CountingWriter("[1]"), direct));
+        Assert.assertEquals("[1]", direct.toString("UTF-8"));
+
+        final CountingWriter writer = new CountingWriter("[2']");
+        Assert.assertEquals("[2]", new String(cache.get(2, writer, new ByteArrayOutputStream()).getIdentity(), "UTF-8"));
+        Assert.assertEquals(0, writer.count);
+    }
+
+    /**
+     * Tests that a too large body is produced only once per request and written directly.
+     *
+     * @throws IOException Never.
+     */
+    @Test
+    public final void tooLargeTest() throws IOException {
+        final EncodedResponseCache cache = new EncodedResponseCache("test", 8);
+        final CountingWriter writer = new CountingWriter("[\"Bank\",\"Angel\"]");
+
+        for (int i = 1; i <= 2; i++) {
+            final ByteArrayOutputStream direct = new ByteArrayOutputStream();
+            final EncodedBody body = cache.get(1, writer, direct);
+            Assert.assertNull(body);
+            Assert.assertEquals("[\"Bank\",\"Angel\"]", direct.toString("UTF-8"));
+            Assert.assertEquals(i, writer.count);
+        }
+        Assert.assertEquals(0, cache.getStatistics().getElements());
+    }
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.fourth.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link NetworkGraphSnapshot}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class NetworkGraphSnapshotTest {
+
+    /** The temporary snapshot file. */
+    private File snapshotFile;
+
+    /**
+     * Creates the temporary file.
+     *
+     * @throws IOException If the temporary file cannot be created.
+     */
+    @Before
+    public void createFile() throws IOException {
+        snapshotFile = File.createTempFile("network", ".snapshot");
+        snapshotFile.delete();
+    }
+
+    /**
+     * Deletes the temporary file.
+     */
+    @After
+    public void deleteFile() {
+        if (snapshotFile != null) {
+            snapshotFile.delete();
+        }
+    }
+
+    /**
+     * Tests that the written graph is read back with the same stations, lines and routes.
+     *
+     * @throws IOException If the snapshot cannot be written or read.
+     */
+    @Test
+    public final void roundTripTest() throws IOException {
+        final NetworkGraphSnapshot snapshot = new NetworkGraphSnapshot(snapshotFile);
+        Assert.assertNull(snapshot.read());
+
+        final NetworkGraph graph = createGraph();
+        snapshot.write(graph);
+        final NetworkGraph read = snapshot.read();
+
+        Assert.assertEquals(graph.stationCount(), read.stationCount());
+        Assert.assertEquals(graph.lineCount(), read.lineCount());
+        for (int i = 0; i < graph.stationCount(); i++) {
+            Assert.assertEquals(graph.stationId(i), read.stationId(i));
+            Assert.assertEquals(graph.stationName(i), read.stationName(i));
+            Assert.assertEquals(graph.stationZone(i), read.stationZone(i));
+        }
+        for (int i = 0; i < graph.lineCount(); i++) {
+            Assert.assertEquals(graph.lineName(i), read.lineName(i));
+        }
+
+        final int[][] route = read.findRoute(read.indexOfStation(2), read.indexOfStation(4));
+        Assert.assertEquals(2, route.length);
+        Assert.assertEquals("Jubilee", read.lineName(route[0][0]));
+        Assert.assertEquals("Northern", read.lineName(route[1][0]));
+    }
+
+    /**
+     * Tests that a corrupt snapshot is rejected.
+     *
+     * @throws IOException If the snapshot cannot be written.
+     */
+    @Test
+    public final void corruptSnapshotTest() throws IOException {
+        final NetworkGraphSnapshot snapshot = new NetworkGraphSnapshot(snapshotFile);
+        snapshot.write(createGraph());
+
+        final RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw");
+        try {
+            file.seek(file.length() / 2);
+            final int b = file.read();
+            file.seek(file.length() / 2);
+            file.write(b ^ 0xFF);
+        } finally {
+            file.close();
+        }
+
+        try {
+            snapshot.read();
+            Assert.fail("The corrupt snapshot has been read");
+        } catch (final IOException e) {
+            Assert.assertEquals("Invalid network snapshot checksum", e.getMessage());
+        }
+    }
+
+    /**
+     * Tests that the disabled snapshot is never written.
+     *
+     * @throws IOException If the snapshot cannot be written or read.
+     */
+    @Test
+    public final void disabledTest() throws IOException {
+        NetworkGraphSnapshot.DISABLED.write(createGraph());
+        Assert.assertNull(NetworkGraphSnapshot.DISABLED.read());
+    }
+
+    /**
+     * @return Canada Water (2) - Jubilee - London Bridge (3) - Northern - Kennington (4), with a non ASCII line name.
+     */
+    private static NetworkGraph createGraph() {
+        final NetworkGraph.Builder builder = new NetworkGraph.Builder();
+        builder.station(3, "London Bridge", Integer.valueOf(1));
+        builder.station(2, "Canada Water", Integer.valueOf(2));
+        builder.station(4, "Kennington", null);
+        builder.line(10, "Jubilee");
+        builder.line(11, "Northern");
+        builder.line(12, "Überground");
+        builder.membership(2, 10);
+        builder.membership(3, 10);
+        builder.membership(3, 11);
+        builder.membership(4, 11);
+        builder.membership(2, 12);
+        return builder.build();
+    }
+
+}
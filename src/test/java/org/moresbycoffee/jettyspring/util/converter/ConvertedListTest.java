@@ -0,0 +1,113 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link ConvertedList} and the {@link ConvertedIterable}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ConvertedListTest {
+
+    /** Converter which counts its conversions. */
+    private static final class CountingConverter implements Converter<Integer, StringBuilder> {
+
+        private int count;
+
+        @Override
+        public StringBuilder convert(final Integer from) {
+            count++;
+            return new StringBuilder("#").append(from);
+        }
+
+    }
+
+    /**
+     * Tests that only the accessed elements are converted, at every access.
+     */
+    @Test
+    public final void lazyTest() {
+        final CountingConverter converter = new CountingConverter();
+        final List<StringBuilder> view = Converters.convertedList(Arrays.asList(1, 2, 3), converter);
+
+        Assert.assertEquals(3, view.size());
+        Assert.assertEquals(0, converter.count);
+
+        Assert.assertEquals("#2", view.get(1).toString());
+        Assert.assertEquals("#2", view.get(1).toString());
+        Assert.assertEquals(2, converter.count);
+        Assert.assertNotSame(view.get(1), view.get(1));
+    }
+
+    /**
+     * Tests that the memoising view converts every element at most once.
+     */
+    @Test
+    public final void memoisingTest() {
+        final CountingConverter converter = new CountingConverter();
+        final List<StringBuilder> view = Converters.convertedList(Arrays.asList(1, 2, 3), converter, true);
+
+        final StringBuilder first = view.get(0);
+        Assert.assertSame(first, view.get(0));
+
+        final Iterator<StringBuilder> iterator = view.iterator();
+        Assert.assertSame(first, iterator.next());
+        Assert.assertEquals("#2", iterator.next().toString());
+        Assert.assertEquals("#3", iterator.next().toString());
+        Assert.assertFalse(iterator.hasNext());
+        Assert.assertEquals(3, converter.count);
+    }
+
+    /**
+     * Tests the view of an iterable and the <tt>null</tt> sources.
+     */
+    @Test
+    public final void iterableTest() {
+        final StringBuilder result = new StringBuilder();
+        for (final StringBuilder element : Converters.convertedIterable(Arrays.asList(1, 2, 3), new CountingConverter())) {
+            result.append(element);
+        }
+        Assert.assertEquals("#1#2#3", result.toString());
+
+        Assert.assertNull(Converters.convertedList(null, new CountingConverter()));
+        Assert.assertNull(Converters.convertedIterable(null, new CountingConverter()));
+    }
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link ConverterPipeline}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ConverterPipelineTest {
+
+    private static final List<String> NAMES = Arrays.asList(" Bank ", "Angel", " Oval", "Barbican ");
+
+    /** Keeps the names starting with <tt>B</tt>. */
+    private static final Filter<String> STARTS_WITH_B = new Filter<String>() {
+
+        @Override
+        public boolean accept(final String element) {
+            return element.startsWith("B");
+        }
+
+    };
+
+    /** Converts the names to their lengths. */
+    private static final Converter<String, Integer> LENGTH = new Converter<String, Integer>() {
+
+        @Override
+        public Integer convert(final String from) {
+            return Integer.valueOf(from.length());
+        }
+
+    };
+
+    private static final ConverterPipeline<String, Integer> PIPELINE = ConverterPipeline.of(Converters.TRIM)
+                                                                                        .filter(STARTS_WITH_B)
+                                                                                        .andThen(LENGTH);
+
+    /**
+     * Tests that the pushed elements arrive converted and filtered in the order of the source.
+     */
+    @Test
+    public final void pushTest() {
+        final List<Integer> result = new ArrayList<Integer>();
+        PIPELINE.push(NAMES.iterator(), new Sink<Integer>() {
+
+            @Override
+            public void handle(final Integer element) {
+                result.add(element);
+            }
+
+        });
+        Assert.assertEquals(Arrays.asList(4, 8), result);
+    }
+
+    /**
+     * Tests that the iterator skips the dropped elements.
+     */
+    @Test
+    public final void iteratorTest() {
+        final Iterator<Integer> iterator = PIPELINE.iterator(NAMES.iterator());
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertEquals(Integer.valueOf(4), iterator.next());
+        Assert.assertEquals(Integer.valueOf(8), iterator.next());
+        Assert.assertFalse(iterator.hasNext());
+
+        final Iterator<String> identity = ConverterPipeline.<String>identity().iterator(NAMES.iterator());
+        Assert.assertSame(NAMES.get(0), identity.next());
+    }
+
+    /**
+     * Tests the spliterator in a parallel stream and its characteristics.
+     */
+    @Test
+    public final void spliteratorTest() {
+        final Spliterator<Integer> spliterator = PIPELINE.spliterator(NAMES.spliterator());
+        Assert.assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+        Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+        Assert.assertTrue(ConverterPipeline.of(LENGTH).spliterator(NAMES.spliterator()).hasCharacteristics(Spliterator.SIZED));
+
+        final List<Integer> result = StreamSupport.stream(PIPELINE.spliterator(NAMES.spliterator()), true)
+                                                  .collect(Collectors.<Integer>toList());
+        Assert.assertEquals(Arrays.asList(4, 8), result);
+    }
+
+    /**
+     * Tests that the exception of a converter stops the pushing.
+     */
+    @Test
+    public final void failureTest() {
+        final List<String> handled = new ArrayList<String>();
+        try {
+            ConverterPipeline.of(new Converter<String, String>() {
+
+                @Override
+                public String convert(final String from) {
+                    if (from.startsWith(" O")) {
+                        throw new ConverterException("Closed station: " + from);
+                    }
+                    return from;
+                }
+
+            }).push(NAMES.iterator(), new Sink<String>() {
+
+                @Override
+                public void handle(final String element) {
+                    handled.add(element);
+                }
+
+            });
+            Assert.fail("The failure of the converter has been swallowed.");
+        } catch (final ConverterException e) {
+            Assert.assertEquals(Arrays.asList(" Bank ", "Angel"), handled);
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDTO;
+import org.moresbycoffee.jettyspring.fourth.domain.Station;
+import org.moresbycoffee.jettyspring.fourth.domain.Zone;
+import org.moresbycoffee.jettyspring.fourth.util.StationToDtoConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+
+/**
+ * JMH benchmarks of the {@link Converters} with the {@link StationToDtoConverter}.<br>
+ * The parallel conversions are forced (the threshold is <tt>0</tt>), so comparing them to the
+ * sequential ones by the sizes shows the crossover point of the {@link Converters#DEFAULT_PARALLEL_THRESHOLD}.
+ * On a single processor the parallel conversions fall back to the sequential ones.<br>
+ * The <tt>convertListGenerated</tt> compares the converter generated by the {@link GeneratedConverterFactory}
+ * to the hand-written {@link StationToDtoConverter}.<br>
+ * Run by the <tt>benchmark</tt> Maven profile.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConvertersBenchmark {
+
+    /** The number of the converted stations. */
+    @Param({"100", "1000", "10000", "100000", "1000000" })
+    public int size;
+
+    /** The converter generated from the matching of the {@link Station} and the {@link StationDTO}. */
+    private static final Converter<Station, StationDTO> GENERATED = GeneratedConverterFactory.getInstance().getConverter(Station.class, StationDTO.class);
+
+    private List<Station> stationList;
+    private Station[]     stationArray;
+
+    /**
+     * Creates the detached stations.
+     */
+    @Setup
+    public void createStations() {
+        final Zone zone = new Zone(Integer.valueOf(1));
+        stationList = new ArrayList<Station>(size);
+        for (int i = 0; i < size; i++) {
+            stationList.add(new Station("Station " + i, zone));
+        }
+        stationArray = stationList.toArray(new Station[size]);
+    }
+
+    /**
+     * @return The converted list. (NonNull)
+     */
+    @Benchmark
+    public List<StationDTO> convertList() {
+        return Converters.convertList(stationList, StationToDtoConverter.getInstance());
+    }
+
+    /**
+     * @return The list converted by the generated converter. (NonNull)
+     */
+    @Benchmark
+    public List<StationDTO> convertListGenerated() {
+        return Converters.convertList(stationList, GENERATED);
+    }
+
+    /**
+     * @return The list converted in parallel. (NonNull)
+     */
+    @Benchmark
+    public List<StationDTO> convertListInParallel() {
+        return Converters.convertListInParallel(stationList, StationToDtoConverter.getInstance(), 0, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @return The converted array. (NonNull)
+     */
+    @Benchmark
+    public StationDTO[] convertArray() {
+        return Converters.convertArray(stationArray, StationToDtoConverter.getInstance(), StationDTO.class);
+    }
+
+    /**
+     * @return The array converted in parallel. (NonNull)
+     */
+    @Benchmark
+    public StationDTO[] convertArrayInParallel() {
+        return Converters.convertArrayInParallel(stationArray, StationToDtoConverter.getInstance(), StationDTO.class,
+                                                 0, ForkJoinPool.commonPool());
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import java.beans.ConstructorProperties;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDTO;
+import org.moresbycoffee.jettyspring.fourth.beans.dto.StationDetailDTO;
+import org.moresbycoffee.jettyspring.fourth.domain.Station;
+import org.moresbycoffee.jettyspring.fourth.domain.Zone;
+
+
+/**
+ * Tests the {@link GeneratedConverterFactory}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class GeneratedConverterFactoryTest {
+
+    /** Source with a boxed and a primitive property. */
+    public static class Counter {
+
+        /** @return The count. */
+        public Long getCount() {
+            return Long.valueOf(42);
+        }
+
+        /** @return The zone number. */
+        public int getZone() {
+            return 3;
+        }
+
+    }
+
+    /** DTO with a primitive and a boxed field. */
+    public static class CounterDTO {
+
+        private final long    count;
+        private final Integer zone;
+
+        /**
+         * @param count The count.
+         * @param zone The zone number.
+         */
+        public CounterDTO(final long count, final Integer zone) {
+            this.count = count;
+            this.zone = zone;
+        }
+
+    }
+
+    /** Source with two properties of the same type. */
+    public static class Journey {
+
+        /** @return The name of the departure station. */
+        public String getDeparture() {
+            return "Bank";
+        }
+
+        /** @return The name of the arrival station. */
+        public String getArrival() {
+            return "Bermondsey";
+        }
+
+    }
+
+    /** DTO with two fields of the same type, so its constructor cannot be matched by the field types. */
+    public static class JourneyDTO {
+
+        private final String departure;
+        private final String arrival;
+
+        /**
+         * @param departure The name of the departure station.
+         * @param arrival The name of the arrival station.
+         */
+        public JourneyDTO(final String departure, final String arrival) {
+            this.departure = departure;
+            this.arrival = arrival;
+        }
+
+    }
+
+    /** DTO with two fields of the same type and a constructor which names its parameters in other order than the fields. */
+    public static class NamedJourneyDTO {
+
+        private final String departure;
+        private final String arrival;
+
+        /**
+         * @param arrival The name of the arrival station.
+         * @param departure The name of the departure station.
+         */
+        @ConstructorProperties({"arrival", "departure" })
+        public NamedJourneyDTO(final String arrival, final String departure) {
+            this.departure = departure;
+            this.arrival = arrival;
+        }
+
+    }
+
+    /**
+     * Tests that the generated converter matches the getters of the entity to the constructor of the DTO.
+     */
+    @Test
+    public final void stationTest() {
+        final Converter<Station, StationDTO> converter = GeneratedConverterFactory.getInstance().getConverter(Station.class, StationDTO.class);
+        Assert.assertSame(converter, GeneratedConverterFactory.getInstance().getConverter(Station.class, StationDTO.class));
+
+        final StationDTO dto = converter.convert(new Station("Bank", new Zone(Integer.valueOf(1))));
+        Assert.assertEquals("Bank", dto.getName());
+        Assert.assertNull(dto.getId());
+        Assert.assertNull(converter.convert(null));
+    }
+
+    /**
+     * Tests the boxing and the unboxing of the values.
+     */
+    @Test
+    public final void boxingTest() {
+        final CounterDTO dto = GeneratedConverterFactory.getInstance().getConverter(Counter.class, CounterDTO.class).convert(new Counter());
+        Assert.assertEquals(42L, dto.count);
+        Assert.assertEquals(Integer.valueOf(3), dto.zone);
+    }
+
+    /**
+     * Tests that the fields of the same type are rejected, because their order is not defined at runtime.
+     */
+    @Test(expected = ConverterException.class)
+    public final void repeatedTypeTest() {
+        GeneratedConverterFactory.getInstance().getConverter(Journey.class, JourneyDTO.class);
+    }
+
+    /**
+     * Tests that the parameters of the constructor annotated with {@link ConstructorProperties} are matched by their names.
+     */
+    @Test
+    public final void constructorPropertiesTest() {
+        final NamedJourneyDTO dto = GeneratedConverterFactory.getInstance().getConverter(Journey.class, NamedJourneyDTO.class).convert(new Journey());
+        Assert.assertEquals("Bank", dto.departure);
+        Assert.assertEquals("Bermondsey", dto.arrival);
+    }
+
+    /**
+     * Tests that the mismatching getter is reported when the converter is created.
+     */
+    @Test(expected = ConverterException.class)
+    public final void mismatchTest() {
+        /* The zone of the station is a Zone, but the zone of the DTO is the number of the zone. */
+        GeneratedConverterFactory.getInstance().getConverter(Station.class, StationDetailDTO.class);
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link ParallelConversion} directly, because the parallel methods of the
+ * {@link Converters} convert sequentially on a single processor.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ParallelConversionTest {
+
+    private static final int SIZE = 100000;
+
+    /** Converts the numbers to their negatives. */
+    private static final Converter<Integer, Integer> NEGATE = new Converter<Integer, Integer>() {
+
+        @Override
+        public Integer convert(final Integer from) {
+            return Integer.valueOf(-from.intValue());
+        }
+
+    };
+
+    private ExecutorService executor;
+    private Integer[]       numbers;
+
+    /**
+     * Creates the executor and the numbers.
+     */
+    @Before
+    public final void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        numbers = new Integer[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            numbers[i] = Integer.valueOf(i);
+        }
+    }
+
+    /**
+     * Shuts down the executor.
+     */
+    @After
+    public final void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Tests that the converted elements are in the order of the source elements.
+     */
+    @Test
+    public final void orderTest() {
+        final Integer[] result = new Integer[SIZE];
+        ParallelConversion.convert(numbers, result, NEGATE, executor, 4);
+
+        for (int i = 0; i < SIZE; i++) {
+            Assert.assertEquals(-i, result[i].intValue());
+        }
+    }
+
+    /**
+     * Tests that the exception of the converter is rethrown unchanged to the caller.
+     */
+    @Test
+    public final void failureTest() {
+        final ConverterException failure = new ConverterException("Invalid station");
+        final Converter<Integer, Integer> converter = new Converter<Integer, Integer>() {
+
+            @Override
+            public Integer convert(final Integer from) {
+                if (from.intValue() == SIZE / 2) {
+                    throw failure;
+                }
+                return from;
+            }
+
+        };
+
+        try {
+            ParallelConversion.convert(numbers, new Integer[SIZE], converter, executor, 4);
+            Assert.fail("The failure of the converter has been swallowed.");
+        } catch (final ConverterException e) {
+            Assert.assertSame(failure, e);
+        }
+    }
+
+    /**
+     * Tests that the caller converts all the elements if the executor rejects the tasks.
+     */
+    @Test
+    public final void rejectingExecutorTest() {
+        final Executor rejecting = new Executor() {
+
+            @Override
+            public void execute(final Runnable command) {
+                throw new RejectedExecutionException();
+            }
+
+        };
+
+        final Integer[] result = new Integer[SIZE];
+        ParallelConversion.convert(numbers, result, NEGATE, rejecting, 4);
+        Assert.assertEquals(-(SIZE - 1), result[SIZE - 1].intValue());
+    }
+
+}
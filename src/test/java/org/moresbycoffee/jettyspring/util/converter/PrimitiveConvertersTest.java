@@ -0,0 +1,91 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the primitive converters of the {@link Converters}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class PrimitiveConvertersTest {
+
+    /**
+     * Tests the parsing of the valid numbers.
+     */
+    @Test
+    public final void parseTest() {
+        Assert.assertEquals(2, Converters.PARSE_INT.convert(" 2 "));
+        Assert.assertEquals(-17, Converters.PARSE_INT.convert("-17"));
+        Assert.assertEquals(Integer.MAX_VALUE, Converters.PARSE_INT.convert("+2147483647"));
+        Assert.assertEquals(Integer.MIN_VALUE, Converters.PARSE_INT.convert("-2147483648"));
+        Assert.assertEquals(Long.MIN_VALUE, Converters.PARSE_LONG.convert("\t-9223372036854775808"));
+        Assert.assertEquals(Long.MAX_VALUE, Converters.PARSE_LONG.convert("9223372036854775807"));
+    }
+
+    /**
+     * Tests that the invalid and the out of range numbers are rejected.
+     */
+    @Test
+    public final void invalidTest() {
+        for (final String text : new String[] {null, "", "  ", "-", "1 2", "1a", "2147483648", "-2147483649" }) {
+            try {
+                Converters.PARSE_INT.convert(text);
+                Assert.fail("Parsed: " + text);
+            } catch (final ConverterException e) {
+                /* Expected. */
+            }
+        }
+        try {
+            Converters.PARSE_LONG.convert("9223372036854775808");
+            Assert.fail("Parsed a too big long.");
+        } catch (final ConverterException e) {
+            /* Expected. */
+        }
+    }
+
+    /**
+     * Tests the conversion to primitive arrays.
+     */
+    @Test
+    public final void arrayTest() {
+        Assert.assertArrayEquals(new int[] {1, 2, 3 }, Converters.convertToIntArray(Arrays.asList("1", " 2", "3 "), Converters.PARSE_INT));
+        Assert.assertArrayEquals(new long[] {4L, 5L }, Converters.convertToLongArray(new String[] {"4", "5" }, Converters.PARSE_LONG));
+        Assert.assertNull(Converters.convertToIntArray((String[]) null, Converters.PARSE_INT));
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.moresbycoffee.jettyspring.EntityManagerFactoryUtil;
+import org.moresbycoffee.jettyspring.fourth.dal.CsvNetworkImporter;
+
+
+/**
+ * Tests the {@link ScrollableResultsIterator} as the source of a {@link ConverterPipeline}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class ScrollableResultsIteratorTest {
+
+    /** The entity manager factory of the test database. */
+    private EntityManagerFactory emf;
+
+    /**
+     * Creates the database with three stations.
+     *
+     * @throws IOException If the import fails.
+     */
+    @Before
+    public void createDatabase() throws IOException {
+        emf = EntityManagerFactoryUtil.createH2MemoryEntityManager("scrollableResultsIteratorTest", "org.moresbycoffee.jettyspring.fourth.domain");
+        new CsvNetworkImporter(emf).importCsv(new StringReader("Station,Lines,Zone\nBank,Northern,1\nAngel,Northern,1\nBorough,Northern,1\n"));
+    }
+
+    /**
+     * Drops the database.
+     */
+    @After
+    public void dropDatabase() {
+        if (emf != null && emf.isOpen()) {
+            emf.close();
+        }
+    }
+
+    /**
+     * Tests that the rows of the cursor are converted in their order and the end of the cursor is reported.
+     */
+    @Test
+    public final void pipelineTest() {
+        final EntityManager entityManager = emf.createEntityManager();
+        try {
+            final ScrollableResults results = entityManager.unwrap(Session.class).createQuery("select s.name from Station s order by s.name")
+                                                           .scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                final Iterator<String> iterator = ConverterPipeline.of(Converters.TRIM).filter(new Filter<String>() {
+
+                    @Override
+                    public boolean accept(final String element) {
+                        return element.startsWith("B");
+                    }
+
+                }).iterator(new ScrollableResultsIterator<String>(results));
+
+                final List<String> names = new ArrayList<String>();
+                while (iterator.hasNext()) {
+                    Assert.assertTrue("hasNext() has to be repeatable", iterator.hasNext());
+                    names.add(iterator.next());
+                }
+                Assert.assertEquals(Arrays.asList("Bank", "Borough"), names);
+                try {
+                    iterator.next();
+                    Assert.fail("The end of the cursor has not been reported");
+                } catch (final NoSuchElementException e) {
+                    /* Expected. */
+                }
+            } finally {
+                results.close();
+            }
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Tests that the iterator is read-only.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public final void removeTest() {
+        final EntityManager entityManager = emf.createEntityManager();
+        try {
+            final ScrollableResults results = entityManager.unwrap(Session.class).createQuery("select s.name from Station s")
+                                                           .scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                final Iterator<String> iterator = new ScrollableResultsIterator<String>(results);
+                iterator.next();
+                iterator.remove();
+            } finally {
+                results.close();
+            }
+        } finally {
+            entityManager.close();
+        }
+    }
+
+}
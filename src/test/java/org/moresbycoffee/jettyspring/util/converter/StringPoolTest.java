@@ -0,0 +1,73 @@
+/*
+ * Moresby Coffee Bean
+ *
+ * Copyright (c) 2012, Barnabas Sudy (barnabas.sudy@gmail.com)
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those
+ * of the authors and should not be interpreted as representing official policies,
+ * either expressed or implied, of the FreeBSD Project.
+ */
+package org.moresbycoffee.jettyspring.util.converter;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+/**
+ * Tests the {@link StringPool}.
+ *
+ * @author Barnabas Sudy (barnabas.sudy@gmail.com)
+ * @since 2012
+ */
+public class StringPoolTest {
+
+    /**
+     * Tests that the equal strings are canonicalised to the first pooled instance.
+     */
+    @Test
+    public final void sharingTest() {
+        final StringPool pool = new StringPool();
+        final String jubilee = new String("Jubilee");
+
+        Assert.assertSame(jubilee, pool.convert(jubilee));
+        Assert.assertSame(jubilee, pool.convert(new String("Jubilee")));
+        Assert.assertSame(jubilee, pool.convert(Converters.TRIM.convert(" Jubilee ")));
+        Assert.assertNull(pool.convert(null));
+    }
+
+    /**
+     * Tests that the pool never grows beyond its capacity, the evicted strings are simply not shared.
+     */
+    @Test
+    public final void boundedTest() {
+        final StringPool pool = new StringPool(100);
+        Assert.assertEquals(128, pool.capacity());
+
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertEquals("Line " + i, pool.convert("Line " + i));
+        }
+        Assert.assertEquals(128, pool.capacity());
+    }
+
+}